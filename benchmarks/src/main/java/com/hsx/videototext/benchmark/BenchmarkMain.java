@@ -0,0 +1,27 @@
+package com.hsx.videototext.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * benchmarks.jar 的入口：参数原样交给 JMH，未指定结果格式时默认输出 JSON 到 jmh-result.json，
+ * 供 {@link CompareResults} 与上一个版本的结果比对
+ */
+public class BenchmarkMain {
+
+    static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.add("-rf");
+            arguments.add("json");
+            if (!arguments.contains("-rff")) {
+                arguments.add("-rff");
+                arguments.add(DEFAULT_RESULT_FILE);
+            }
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,65 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.engine.ParallelTranscriber;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.Segment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分段并行识别随并行度的加速比
+ * 使用计算量固定的模拟引擎，parallelism=1 的结果即单线程基线
+ *
+ * 运行: java -jar target/benchmarks.jar ChunkedTranscriptionBenchmark -p parallelism=1,2,4,8,16,32
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChunkedTranscriptionBenchmark {
+
+    @Param({"600"})
+    public int audioSeconds;
+
+    @Param({"30"})
+    public int chunkSeconds;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"32"})
+    public int taps;
+
+    private File wavFile;
+    private SimulatedEngine engine;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        wavFile = SyntheticClips.wav(audioSeconds);
+        engine = new SimulatedEngine(taps);
+    }
+
+    @Benchmark
+    public List<Segment> transcribe() throws Exception {
+        TranscribeOptions options = new TranscribeOptions()
+                .setChunkSeconds(chunkSeconds)
+                .setParallelism(parallelism);
+        return ParallelTranscriber.transcribe(wavFile, engine, options);
+    }
+}
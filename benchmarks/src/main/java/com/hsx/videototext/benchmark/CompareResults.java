@@ -0,0 +1,93 @@
+package com.hsx.videototext.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 比对两次 JMH JSON 结果，找出变慢超过阈值的基准；有回退时以退出码 1 结束，可直接用在发版流水线里
+ * 吞吐模式（thrpt）分数越大越好，其余模式（avgt、sample、ss）越小越好
+ *
+ * 运行: java -cp target/benchmarks.jar com.hsx.videototext.benchmark.CompareResults 上一版.json 本版.json [阈值百分比，默认 10]
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法: CompareResults <基线结果.json> <本次结果.json> [阈值百分比]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, JSONObject> baseline = load(args[0]);
+        Map<String, JSONObject> current = load(args[1]);
+
+        int regressions = 0;
+        for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+            JSONObject before = baseline.get(entry.getKey());
+            JSONObject after = entry.getValue().getJSONObject("primaryMetric");
+            if (before == null) {
+                System.out.println("[新增] " + entry.getKey() + " " + format(after));
+                continue;
+            }
+            JSONObject base = before.getJSONObject("primaryMetric");
+            double change = change(entry.getValue().getString("mode"), base.getDouble("score"), after.getDouble("score"));
+            boolean regressed = change > threshold;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("[%s] %s %s -> %s (%+.1f%%)%n", regressed ? "回退" : "正常", entry.getKey(),
+                    format(base), format(after), change);
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.println("[缺失] " + key);
+            }
+        }
+        System.out.println("共比对 " + current.size() + " 项，回退 " + regressions + " 项（阈值 " + threshold + "%）");
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 变差的百分比，正数表示变慢
+     */
+    static double change(String mode, double before, double after) {
+        if (before == 0) {
+            return 0;
+        }
+        double ratio = "thrpt".equals(mode) ? before / after : after / before;
+        return (ratio - 1) * 100;
+    }
+
+    /**
+     * 基准名 + 参数 -> 结果，同名不同参数的组合分别比对
+     */
+    private static Map<String, JSONObject> load(String path) throws IOException {
+        JSONArray results = new JSONArray(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        Map<String, JSONObject> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < results.length(); i++) {
+            JSONObject result = results.getJSONObject(i);
+            StringBuilder key = new StringBuilder(result.getString("benchmark"));
+            JSONObject params = result.optJSONObject("params");
+            if (params != null) {
+                Map<String, Object> sorted = new TreeMap<>(params.toMap());
+                key.append(' ').append(sorted);
+            }
+            byKey.put(key.toString(), result);
+        }
+        return byKey;
+    }
+
+    private static String format(JSONObject metric) {
+        return String.format("%.3f±%.3f %s", metric.getDouble("score"), metric.optDouble("scoreError", 0),
+                metric.getString("scoreUnit"));
+    }
+}
@@ -0,0 +1,152 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.audio.DecodeProfile;
+import com.hsx.videototext.audio.PcmDecoder;
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.utils.SpeechToWavUtil;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解码参数对 CPU 开销的影响：每媒体小时消耗的 CPU 秒数
+ * profile=default 为调整前的 grabber 默认行为（打开视频解码器、不丢弃视频流、按原采样率取出再转换），
+ * profile=tuned 为 DecodeProfile 的默认配置（只解码音频、解复用层丢弃视频流、FFmpeg 内重采样为 16kHz 单声道）
+ * CPU 时间取整个进程（包括 FFmpeg 解码线程），辅助计数器 cpuSeconds / mediaHours 即每媒体小时 CPU 秒数，结束时也会打印
+ * legacySpeechToWav 为旧版 SpeechToWavUtil.extractAudioToWav（grab() 解码视频帧、逐帧打印），profile 参数对它无影响
+ *
+ * 运行: java -jar target/benchmarks.jar DecodeProfileBenchmark -p clipSeconds=300
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeProfileBenchmark {
+
+    @Param({"60"})
+    public int clipSeconds;
+
+    @Param({"default", "tuned"})
+    public String profile;
+
+    @Param({"0"})
+    public int decoderThreads;
+
+    private String videoPath;
+    private String legacyWavPath;
+    private String outputPath;
+
+    private double totalCpuSeconds;
+    private double totalMediaHours;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        videoPath = SyntheticClips.clip(clipSeconds).getAbsolutePath();
+        legacyWavPath = videoPath.replace(".mp4", "_legacy.wav");
+        boolean tuned = "tuned".equals(profile);
+        DecodeProfile config = new DecodeProfile();
+        config.setAudioOnly(tuned);
+        config.setResampleInDecoder(tuned);
+        config.setDecoderThreads(decoderThreads);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteOutput() {
+        if (outputPath != null) {
+            new File(outputPath).delete();
+            outputPath = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void report() {
+        if (totalMediaHours > 0) {
+            System.out.printf("%n每媒体小时 CPU 秒数: %.1f（profile=%s）%n", totalCpuSeconds / totalMediaHours, profile);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class CpuCounters {
+        public double cpuSeconds;
+        public double mediaHours;
+        private long start;
+
+        @Setup(Level.Invocation)
+        public void begin() {
+            start = processCpuNanos();
+        }
+
+        void end(DecodeProfileBenchmark benchmark) {
+            double cpu = (processCpuNanos() - start) / 1e9;
+            double hours = benchmark.clipSeconds / 3600.0;
+            cpuSeconds += cpu;
+            mediaHours += hours;
+            benchmark.totalCpuSeconds += cpu;
+            benchmark.totalMediaHours += hours;
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+                .getProcessCpuTime();
+    }
+
+    @Benchmark
+    public String extractAudioFromVideo(CpuCounters cpu) throws Exception {
+        outputPath = VideoToWavUtil.extractAudioFromVideo(videoPath);
+        cpu.end(this);
+        return outputPath;
+    }
+
+    @Benchmark
+    public String speechToWav(CpuCounters cpu) throws Exception {
+        outputPath = SpeechToWavUtil.extractAudioToWav(videoPath);
+        cpu.end(this);
+        return outputPath;
+    }
+
+    /**
+     * 流式识别路径：解码为 PCM 并读空管道，不写文件
+     */
+    @Benchmark
+    public long pcmDecode(CpuCounters cpu) throws Exception {
+        long samples = 0;
+        try (PcmPipe pipe = new PcmPipe()) {
+            Future<?> decoding = PcmDecoder.start(videoPath, pipe);
+            short[] chunk;
+            while ((chunk = pipe.read()) != null) {
+                samples += chunk.length;
+            }
+            decoding.get();
+        }
+        cpu.end(this);
+        return samples;
+    }
+
+    @Benchmark
+    public String legacySpeechToWav(CpuCounters cpu) throws Exception {
+        outputPath = LegacySpeechExtractor.extract(videoPath, legacyWavPath);
+        cpu.end(this);
+        return outputPath;
+    }
+}
@@ -0,0 +1,118 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.engine.PythonWhisperEngine;
+import com.hsx.videototext.engine.SphinxEngine;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.engine.VoskEngine;
+import com.hsx.videototext.engine.WhisperJniEngine;
+import com.hsx.videototext.model.entity.Segment;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各识别引擎在固定音频上的实时率
+ * 引擎通过最小的 Spring 上下文创建，与服务相同地读取配置并执行 @PostConstruct 加载模型，
+ * 模型路径等配置用 -jvmArgsAppend 传系统属性（如 -Dvosk.model-path=...）；模型不可用的引擎在准备阶段报错并跳过
+ * 辅助计数器 audioSecondsDone 为每秒识别的音频秒数，其倒数即实时率（小于 1 表示快于实时）
+ *
+ * 运行: java -jar target/benchmarks.jar EngineRealTimeFactorBenchmark -p fixture=/data/fixtures/en_60s.wav
+ *      -jvmArgsAppend "-Dvosk.model-path=/models/vosk-small -Dwhisper.jni.model-path=/models/ggml-base.bin"
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 30)
+@Measurement(iterations = 3, time = 60)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineRealTimeFactorBenchmark {
+
+    @Param({"sphinx", "vosk", "whisper-jni", "whisper-python"})
+    public String engine;
+
+    /**
+     * 16kHz 单声道 WAV 样本；为空时使用合成音频（只适合比较开销，不代表真实语音上的实时率）
+     */
+    @Param({""})
+    public String fixture;
+
+    @Param({"60"})
+    public int audioSeconds;
+
+    private AnnotationConfigApplicationContext context;
+    private TranscriptionEngine transcriptionEngine;
+    private File wavFile;
+    private double fixtureSeconds;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        wavFile = fixture.isEmpty() ? SyntheticClips.wav(audioSeconds) : new File(fixture);
+        if (!wavFile.isFile()) {
+            throw new IllegalStateException("音频样本不存在: " + wavFile);
+        }
+        fixtureSeconds = WavFiles.sampleCount(wavFile) / (double) PcmPipe.SAMPLE_RATE;
+        context = new AnnotationConfigApplicationContext();
+        context.register(engineClass(engine));
+        context.refresh();
+        transcriptionEngine = context.getBean(TranscriptionEngine.class);
+        if (!transcriptionEngine.isAvailable()) {
+            throw new IllegalStateException("引擎不可用（模型未配置或加载失败）: " + engine);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        if (transcriptionEngine != null) {
+            System.out.println(engine + " 累计实时率: " + transcriptionEngine.getRealTimeFactor());
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private static Class<?> engineClass(String name) {
+        switch (name) {
+            case "sphinx":
+                return SphinxEngine.class;
+            case "vosk":
+                return VoskEngine.class;
+            case "whisper-jni":
+                return WhisperJniEngine.class;
+            case "whisper-python":
+                return PythonWhisperEngine.class;
+            default:
+                throw new IllegalArgumentException("未知引擎: " + name);
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class AudioCounters {
+        public double audioSecondsDone;
+    }
+
+    @Benchmark
+    public List<Segment> transcribe(AudioCounters counters) throws Exception {
+        List<Segment> segments = transcriptionEngine.transcribe(wavFile, engine);
+        counters.audioSecondsDone += fixtureSeconds;
+        return segments;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.utils.SpeechToWavUtil;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 音频提取：单次解码 vs 旧版两次解码，以及英语识别路径使用的 SpeechToWavUtil.extractAudioToWav（原采样率、原声道）
+ * 墙钟时间由 JMH 统计，读取字节数通过辅助计数器 bytesRead 输出（每次调用的平均值）
+ *
+ * 运行: java -jar target/benchmarks.jar ExtractAudioBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractAudioBenchmark {
+
+    @Param({"60"})
+    public int clipSeconds;
+
+    private String videoPath;
+    private String audioPath;
+
+    /**
+     * extractAudioToWav 的输出文件名带随机数，调用后记录下来再删除
+     */
+    private String speechWavPath;
+
+    @Setup(Level.Trial)
+    public void prepareClip() throws Exception {
+        File clip = SyntheticClips.clip(clipSeconds);
+        videoPath = clip.getAbsolutePath();
+        audioPath = videoPath.replace(".mp4", "_audio.wav");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteWav() {
+        new File(audioPath).delete();
+        if (speechWavPath != null) {
+            new File(speechWavPath).delete();
+            speechWavPath = null;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class IoCounters {
+        public long bytesRead;
+        private long start;
+
+        @Setup(Level.Invocation)
+        public void begin() {
+            start = ProcessIo.bytesRead();
+        }
+
+        @TearDown(Level.Invocation)
+        public void end() {
+            long now = ProcessIo.bytesRead();
+            if (start >= 0 && now >= 0) {
+                bytesRead += now - start;
+            }
+        }
+    }
+
+    @Benchmark
+    public String singlePass(IoCounters io) throws Exception {
+        return VideoToWavUtil.extractAudioFromVideo(videoPath);
+    }
+
+    @Benchmark
+    public String legacyTwoPass(IoCounters io) throws Exception {
+        return LegacyTwoPassExtractor.extract(videoPath, audioPath);
+    }
+
+    @Benchmark
+    public String speechToWav(IoCounters io) throws Exception {
+        speechWavPath = SpeechToWavUtil.extractAudioToWav(videoPath);
+        return speechWavPath;
+    }
+}
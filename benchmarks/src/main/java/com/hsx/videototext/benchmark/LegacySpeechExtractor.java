@@ -0,0 +1,55 @@
+package com.hsx.videototext.benchmark;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+/**
+ * 旧版 SpeechToWavUtil.extractAudioToWav 的原样拷贝（grab() 连视频帧一起解码、每帧打印一行、按原采样率写 WAV），仅作基准对照
+ */
+final class LegacySpeechExtractor {
+
+    private LegacySpeechExtractor() {
+    }
+
+    static String extract(String videoPath, String fileName) throws Exception {
+        FFmpegFrameGrabber frameGrabber = new FFmpegFrameGrabber(videoPath);
+        Frame frame = null;
+        FFmpegFrameRecorder recorder = null;
+
+        try {
+            frameGrabber.start();
+
+            recorder = new FFmpegFrameRecorder(fileName, frameGrabber.getAudioChannels());
+            recorder.setFormat("wav");
+            recorder.setSampleRate(frameGrabber.getSampleRate());
+            recorder.setTimestamp(frameGrabber.getTimestamp());
+            recorder.setAudioQuality(0);
+            recorder.start();
+
+            int index = 0;
+            while (true) {
+                frame = frameGrabber.grab();
+                if (frame == null) {
+                    System.out.println("视频处理完成");
+                    break;
+                }
+                if (frame.samples != null) {
+                    recorder.recordSamples(frame.sampleRate, frame.audioChannels, frame.samples);
+                }
+                System.out.println("处理帧: " + index);
+                index++;
+            }
+
+            return fileName;
+        } finally {
+            if (recorder != null) {
+                try { recorder.stop(); } catch (Exception e) { e.printStackTrace(); }
+                try { recorder.release(); } catch (Exception e) { e.printStackTrace(); }
+            }
+            if (frameGrabber != null) {
+                try { frameGrabber.stop(); } catch (Exception e) { e.printStackTrace(); }
+            }
+        }
+    }
+}
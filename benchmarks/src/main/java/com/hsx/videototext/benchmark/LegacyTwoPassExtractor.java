@@ -0,0 +1,73 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+/**
+ * 旧版 VideoToWavUtil.extractAudioFromVideo 的原样拷贝（先完整解码一遍数帧，再解码一遍写入），仅作基准对照
+ */
+final class LegacyTwoPassExtractor {
+
+    private LegacyTwoPassExtractor() {
+    }
+
+    static String extract(String videoPath, String audioPath) throws Exception {
+        FFmpegFrameGrabber grabber = null;
+        FFmpegFrameRecorder recorder = null;
+
+        try {
+            grabber = new FFmpegFrameGrabber(videoPath);
+            grabber.start();
+            grabber.setAudioStream(0);
+
+            recorder = new FFmpegFrameRecorder(audioPath, 1);
+            recorder.setFormat("wav");
+            recorder.setSampleRate(16000);
+            recorder.setAudioCodec(avcodec.AV_CODEC_ID_PCM_S16LE);
+            recorder.setAudioOption("ar", "16000");
+            recorder.setAudioOption("ac", "1");
+            recorder.setAudioOption("sample_fmt", "s16");
+            recorder.setAudioQuality(0);
+            recorder.start();
+
+            Frame frame;
+            int frameCount = 0;
+            int totalFrames = 0;
+
+            while ((frame = grabber.grab()) != null) {
+                if (frame.samples != null) {
+                    totalFrames++;
+                }
+            }
+
+            grabber.stop();
+            grabber.start();
+            grabber.setAudioStream(0);
+
+            while ((frame = grabber.grab()) != null) {
+                if (frame.samples != null) {
+                    recorder.recordSamples(frame.sampleRate, frame.audioChannels, frame.samples);
+                    frameCount++;
+                    if (frameCount % 50 == 0) {
+                        int progress = (int) ((frameCount * 100.0) / totalFrames);
+                        System.out.println("音频提取进度: " + progress + "% (" + frameCount + "/" + totalFrames + ")");
+                        ProgressWebSocketHandler.sendProgress("音频提取进度: " + progress + "% (" + frameCount + "/" + totalFrames + ")");
+                    }
+                }
+            }
+        } finally {
+            if (recorder != null) {
+                try { recorder.stop(); } catch (Exception e) { e.printStackTrace(); }
+                try { recorder.release(); } catch (Exception e) { e.printStackTrace(); }
+            }
+            if (grabber != null) {
+                try { grabber.stop(); } catch (Exception e) { e.printStackTrace(); }
+                try { grabber.release(); } catch (Exception e) { e.printStackTrace(); }
+            }
+        }
+        return audioPath;
+    }
+}
@@ -0,0 +1,129 @@
+package com.hsx.videototext.benchmark;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不走网络的 WebSocket 会话：发送时只计数，可选地忙等一段时间模拟写网络的耗时
+ */
+class MockWebSocketSession implements WebSocketSession {
+
+    private final String id;
+    private final URI uri;
+    private final long sendNanos;
+    private final AtomicLong delivered;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private volatile boolean open = true;
+
+    /**
+     * @param delivered 所有会话共享的已发送消息计数
+     */
+    MockWebSocketSession(String id, String taskId, long sendMicros, AtomicLong delivered) {
+        this.id = id;
+        this.uri = URI.create("ws://localhost:8080/ws/progress?taskId=" + taskId);
+        this.sendNanos = TimeUnit.MICROSECONDS.toNanos(sendMicros);
+        this.delivered = delivered;
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (sendNanos > 0) {
+            long until = System.nanoTime() + sendNanos;
+            while (System.nanoTime() < until) {
+                // 忙等，模拟序列化后写 socket 的耗时
+            }
+        }
+        delivered.incrementAndGet();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.hsx.videototext.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 读取 /proc/self/io 中本进程累计读取的字节数，非 Linux 平台返回 -1
+ */
+public final class ProcessIo {
+
+    private static final Path PROC_IO = Paths.get("/proc/self/io");
+
+    private ProcessIo() {
+    }
+
+    public static long bytesRead() {
+        if (!Files.isReadable(PROC_IO)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(PROC_IO, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("rchar:")) {
+                    return Long.parseLong(line.substring("rchar:".length()).trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进度推送的扇出开销：一个任务有 N 个 WebSocket 订阅者时 sendProgress 的耗时
+ * publish 只测发送方（识别线程）被占用的时间；deliverToAll 测一条消息送达全部订阅者的端到端耗时
+ * sendMicros 模拟每次写网络的耗时，用来观察慢客户端是否会拖住发送方
+ *
+ * 运行: java -jar target/benchmarks.jar ProgressFanOutBenchmark -p sessions=1,10,100,1000 -p sendMicros=0,200
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProgressFanOutBenchmark {
+
+    @Param({"1", "10", "100", "1000"})
+    public int sessions;
+
+    @Param({"0"})
+    public int sendMicros;
+
+    private final ProgressWebSocketHandler handler = new ProgressWebSocketHandler();
+    private final AtomicLong delivered = new AtomicLong();
+    private final List<MockWebSocketSession> connected = new ArrayList<>();
+    private String taskId;
+
+    @Setup(Level.Trial)
+    public void connect() throws Exception {
+        taskId = "bench-" + UUID.randomUUID();
+        for (int i = 0; i < sessions; i++) {
+            MockWebSocketSession session = new MockWebSocketSession("s" + i, taskId, sendMicros, delivered);
+            handler.afterConnectionEstablished(session);
+            connected.add(session);
+        }
+        // 等连接时补发的事件发完
+        awaitDelivered(sessions);
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() throws Exception {
+        for (MockWebSocketSession session : connected) {
+            session.close();
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+        connected.clear();
+    }
+
+    @Benchmark
+    public void publish() {
+        ProgressWebSocketHandler.sendProgress(taskId, "正在识别第 12 段");
+    }
+
+    @Benchmark
+    public void deliverToAll() {
+        long target = delivered.get() + sessions;
+        ProgressWebSocketHandler.sendProgress(taskId, "正在识别第 12 段");
+        awaitDelivered(target);
+    }
+
+    private void awaitDelivered(long target) {
+        while (delivered.get() < target) {
+            Thread.yield();
+        }
+    }
+}
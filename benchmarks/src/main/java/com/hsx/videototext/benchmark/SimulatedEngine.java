@@ -0,0 +1,75 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.engine.AbstractTranscriptionEngine;
+import com.hsx.videototext.model.entity.Segment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 计算量与音频时长成正比的模拟引擎（对每个采样做 FIR 滤波），用于在没有模型文件的机器上测量分段并行的加速比
+ * 每秒音频输出一个片段
+ */
+class SimulatedEngine extends AbstractTranscriptionEngine {
+
+    private final int taps;
+
+    SimulatedEngine(int taps) {
+        this.taps = taps;
+    }
+
+    @Override
+    public String getName() {
+        return "simulated";
+    }
+
+    @Override
+    public boolean supports(String model) {
+        return true;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsWindows() {
+        return true;
+    }
+
+    @Override
+    protected List<Segment> doTranscribe(PcmPipe pipe, String model) throws Exception {
+        float[] history = new float[taps];
+        float[] coefficients = new float[taps];
+        for (int i = 0; i < taps; i++) {
+            coefficients[i] = 1f / (i + 1);
+        }
+        List<Segment> segments = new ArrayList<>();
+        long samples = 0;
+        double acc = 0;
+        short[] chunk;
+        while ((chunk = pipe.read()) != null) {
+            for (short sample : chunk) {
+                System.arraycopy(history, 0, history, 1, taps - 1);
+                history[0] = sample;
+                float y = 0;
+                for (int t = 0; t < taps; t++) {
+                    y += history[t] * coefficients[t];
+                }
+                acc += y;
+                if (++samples % PcmPipe.SAMPLE_RATE == 0) {
+                    long end = samples * 1000 / PcmPipe.SAMPLE_RATE;
+                    segments.add(new Segment(end - 1000, end, acc > 0 ? "+" : "-"));
+                }
+            }
+        }
+        return segments;
+    }
+}
@@ -0,0 +1,73 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.audio.PcmBuffer;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.engine.SphinxRecognizerPool;
+import com.hsx.videototext.utils.SpeechToWavUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.ShortBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单次短音频识别请求的延迟：每次新建 Sphinx4 识别器与从 SphinxRecognizerPool 借用
+ * pool=cold 为调整前的行为（sphinx.pool.size=0，每个请求解析配置、加载声学模型后再识别），
+ * pool=pooled 为默认的识别器池（准备阶段先识别一次，测量时识别器已创建）
+ * 音频在准备阶段内存映射，测量的只有 transcribeEnglishAudio 本身；SampleTime 模式给出延迟分位数
+ *
+ * 运行: java -jar target/benchmarks.jar SphinxRecognizerBenchmark -p fixture=/data/fixtures/en_5s.wav
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SphinxRecognizerBenchmark {
+
+    @Param({"cold", "pooled"})
+    public String pool;
+
+    /**
+     * 16kHz 单声道 WAV 样本；为空时使用合成音频
+     */
+    @Param({""})
+    public String fixture;
+
+    @Param({"5"})
+    public int audioSeconds;
+
+    private ShortBuffer samples;
+    private SphinxRecognizerPool recognizerPool;
+
+    @Setup(Level.Trial)
+    public void prepare() throws Exception {
+        File wavFile = fixture.isEmpty() ? SyntheticClips.wav(audioSeconds) : new File(fixture);
+        if (!wavFile.isFile()) {
+            throw new IllegalStateException("音频样本不存在: " + wavFile);
+        }
+        samples = WavFiles.map(wavFile);
+        recognizerPool = new SphinxRecognizerPool();
+        recognizerPool.setSize("pooled".equals(pool) ? 1 : 0);
+        if ("pooled".equals(pool)) {
+            SpeechToWavUtil.transcribeEnglishAudio(recognizerPool, PcmBuffer.asInputStream(samples));
+        }
+    }
+
+    @Benchmark
+    public String transcribe() throws Exception {
+        return SpeechToWavUtil.transcribeEnglishAudio(recognizerPool, PcmBuffer.asInputStream(samples));
+    }
+}
@@ -0,0 +1,180 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.Word;
+import com.hsx.videototext.subtitle.SubtitleFormat;
+import com.hsx.videototext.subtitle.SubtitleWriter;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字幕序列化吞吐：各格式的流式写出器 vs 旧版 String.format + BufferedWriter 写 VTT
+ * 输出写到丢弃数据的通道，只测序列化和编码本身；加 -prof gc 可看每次写出的分配量
+ * generateVttFile 为服务实际调用的落盘路径（含文件创建和写入），用于发版间比对
+ *
+ * 运行: java -jar target/benchmarks.jar SubtitleWriterBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubtitleWriterBenchmark {
+
+    @Param({"10000"})
+    public int cues;
+
+    @Param({"vtt", "srt", "ttml", "json"})
+    public String format;
+
+    private List<Segment> segments;
+    private SubtitleFormat subtitleFormat;
+    private File vttFile;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        subtitleFormat = SubtitleFormat.of(format);
+        vttFile = File.createTempFile("bench_", ".vtt");
+        Random random = new Random(42);
+        segments = new ArrayList<>(cues);
+        long time = 0;
+        for (int i = 0; i < cues; i++) {
+            List<Word> words = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+            long wordStart = time;
+            for (int w = 0; w < 8; w++) {
+                String word = i % 2 == 0 ? "word" + random.nextInt(1000) : "字幕" + random.nextInt(100);
+                long wordEnd = wordStart + 200 + random.nextInt(300);
+                words.add(new Word(wordStart, wordEnd, word, random.nextDouble()));
+                text.append(w == 0 ? "" : " ").append(word);
+                wordStart = wordEnd;
+            }
+            Segment segment = new Segment(time, wordStart, text.toString());
+            segment.setConfidence(random.nextDouble());
+            segment.setWords(words);
+            segments.add(segment);
+            time = wordStart + random.nextInt(500);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        vttFile.delete();
+    }
+
+    @Benchmark
+    public int streamingWriter() throws IOException {
+        DiscardChannel channel = new DiscardChannel();
+        try (SubtitleWriter writer = subtitleFormat.newWriter(channel)) {
+            writer.begin();
+            for (Segment segment : segments) {
+                writer.write(segment);
+            }
+            writer.end();
+        }
+        return channel.written;
+    }
+
+    /**
+     * 格式参数不影响，始终写 VTT 文件
+     */
+    @Benchmark
+    public long generateVttFile() throws IOException {
+        VideoToWavUtil.generateVttFile(segments, vttFile.getPath());
+        return vttFile.length();
+    }
+
+    /**
+     * 旧版 generateVttFile 的写法（格式参数不影响），仅作对照
+     */
+    @Benchmark
+    public int legacyVtt() throws IOException {
+        DiscardChannel channel = new DiscardChannel();
+        try (BufferedWriter writer = new BufferedWriter(
+                new OutputStreamWriter(new ChannelStream(channel), StandardCharsets.UTF_8))) {
+            writer.write("WEBVTT");
+            writer.newLine();
+            writer.newLine();
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                writer.write(String.valueOf(i + 1));
+                writer.newLine();
+                writer.write(legacyTime(segment.getStartMs()) + " --> " + legacyTime(segment.getEndMs()));
+                writer.newLine();
+                writer.write("=== " + segment.getText());
+                writer.newLine();
+                writer.newLine();
+            }
+        }
+        return channel.written;
+    }
+
+    private static String legacyTime(long ms) {
+        return String.format("%02d:%02d:%02d.%03d", ms / 3_600_000, ms / 60_000 % 60, ms / 1000 % 60, ms % 1000);
+    }
+
+    private static class DiscardChannel implements WritableByteChannel {
+        private int written;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            written += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class ChannelStream extends OutputStream {
+        private final DiscardChannel channel;
+
+        ChannelStream(DiscardChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) {
+            channel.written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            channel.written += len;
+        }
+    }
+}
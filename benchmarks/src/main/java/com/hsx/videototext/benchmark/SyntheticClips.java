@@ -0,0 +1,126 @@
+package com.hsx.videototext.benchmark;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.audio.WavFiles;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * 用 FFmpeg 生成基准测试用的合成视频
+ * 画面为逐帧移动的渐变，音频为间隔静音的“语音”脉冲，保证视频解码有真实开销、音频有可切分的停顿
+ */
+public final class SyntheticClips {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 360;
+    private static final int FRAME_RATE = 25;
+    private static final int SAMPLE_RATE = 44100;
+    private static final int CHANNELS = 2;
+
+    private SyntheticClips() {
+    }
+
+    /**
+     * 获取指定时长的合成视频，同一时长只生成一次
+     */
+    public static synchronized File clip(int seconds) throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "videoToText-bench");
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File file = new File(dir, "clip_" + seconds + "s.mp4");
+        if (file.exists() && file.length() > 0) {
+            return file;
+        }
+        File partial = new File(dir, "clip_" + seconds + "s.partial.mp4");
+        generate(partial, seconds);
+        if (!partial.renameTo(file)) {
+            throw new IllegalStateException("无法生成合成视频: " + file);
+        }
+        return file;
+    }
+
+    /**
+     * 获取指定时长的 16kHz 单声道 WAV（直接合成，不经过视频解码）
+     */
+    public static synchronized File wav(int seconds) throws Exception {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "videoToText-bench");
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File file = new File(dir, "speech_" + seconds + "s.wav");
+        if (file.exists() && file.length() > 0) {
+            return file;
+        }
+        int rate = PcmPipe.SAMPLE_RATE;
+        int chunk = rate / 10;
+        PcmPipe pipe = new PcmPipe(seconds * 10 + 1);
+        for (long i = 0; i < (long) seconds * rate; i += chunk) {
+            short[] samples = new short[chunk];
+            for (int k = 0; k < chunk; k++) {
+                samples[k] = speechLike((i + k) * SAMPLE_RATE / rate);
+            }
+            pipe.write(samples);
+        }
+        pipe.finish();
+        WavFiles.write(pipe, file);
+        return file;
+    }
+
+    private static void generate(File target, int seconds) throws Exception {
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(target, WIDTH, HEIGHT, CHANNELS);
+        recorder.setFormat("mp4");
+        recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+        recorder.setVideoBitrate(1_500_000);
+        recorder.setFrameRate(FRAME_RATE);
+        recorder.setAudioCodec(avcodec.AV_CODEC_ID_AAC);
+        recorder.setSampleRate(SAMPLE_RATE);
+        recorder.setAudioBitrate(128_000);
+        recorder.start();
+        try {
+            Frame image = new Frame(WIDTH, HEIGHT, Frame.DEPTH_UBYTE, 3);
+            ByteBuffer pixels = (ByteBuffer) image.image[0];
+            int samplesPerFrame = SAMPLE_RATE / FRAME_RATE;
+            short[] samples = new short[samplesPerFrame * CHANNELS];
+            long sampleIndex = 0;
+            for (int i = 0; i < seconds * FRAME_RATE; i++) {
+                for (int y = 0; y < HEIGHT; y++) {
+                    int row = y * image.imageStride;
+                    for (int x = 0; x < WIDTH * 3; x++) {
+                        pixels.put(row + x, (byte) (x + y + i * 4));
+                    }
+                }
+                recorder.record(image);
+
+                for (int k = 0; k < samplesPerFrame; k++, sampleIndex++) {
+                    short value = speechLike(sampleIndex);
+                    samples[k * CHANNELS] = value;
+                    samples[k * CHANNELS + 1] = value;
+                }
+                recorder.recordSamples(SAMPLE_RATE, CHANNELS, ShortBuffer.wrap(samples));
+            }
+        } finally {
+            recorder.stop();
+            recorder.release();
+        }
+    }
+
+    /**
+     * 每 3 秒一个周期：前 2.4 秒为调幅音调，后 0.6 秒静音
+     */
+    private static short speechLike(long sampleIndex) {
+        double t = sampleIndex / (double) SAMPLE_RATE;
+        double phase = t % 3.0;
+        if (phase > 2.4) {
+            return 0;
+        }
+        double envelope = 0.5 + 0.5 * Math.sin(2 * Math.PI * 4 * t);
+        double tone = Math.sin(2 * Math.PI * 220 * t) + 0.5 * Math.sin(2 * Math.PI * 660 * t);
+        return (short) (6000 * envelope * tone);
+    }
+}
@@ -0,0 +1,25 @@
+package com.hsx.videototext.audio;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 一段待识别的音频窗口，位置以 16kHz 采样为单位
+ */
+@Data
+@AllArgsConstructor
+public class AudioChunk {
+
+    private int startSample;
+
+    private int length;
+
+    /**
+     * 整段都低于静音阈值，无需识别
+     */
+    private boolean silent;
+
+    public long getStartMs() {
+        return startSample * 1000L / PcmPipe.SAMPLE_RATE;
+    }
+}
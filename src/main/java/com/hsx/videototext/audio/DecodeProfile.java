@@ -0,0 +1,83 @@
+package com.hsx.videototext.audio;
+
+import org.bytedeco.ffmpeg.avformat.AVFormatContext;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 音频解码参数，所有从视频取音频的地方（提取 WAV、PCM 流式解码）都通过 {@link #start} 打开 FFmpegFrameGrabber
+ * audio-only：不打开视频解码器，并在解复用层丢弃视频等其他流（mp4 等封装不再读取这些流的数据）；
+ * decoder-threads：解码线程数，0 由 FFmpeg 自动决定；
+ * resample-in-decoder：在 grabber 内用 swresample 直接输出 16kHz 单声道 s16，而不是按原采样率取出再由写 WAV 时转换
+ * 不依赖具体硬件，配置项只影响 CPU 开销，不改变输出
+ */
+@Component
+public class DecodeProfile {
+
+    private static volatile boolean audioOnly = true;
+    private static volatile int decoderThreads = 0;
+    private static volatile boolean resampleInDecoder = true;
+
+    @Value("${decode.audio-only:true}")
+    public void setAudioOnly(boolean value) {
+        audioOnly = value;
+    }
+
+    @Value("${decode.decoder-threads:0}")
+    public void setDecoderThreads(int value) {
+        decoderThreads = Math.max(0, value);
+    }
+
+    @Value("${decode.resample-in-decoder:true}")
+    public void setResampleInDecoder(boolean value) {
+        resampleInDecoder = value;
+    }
+
+    public static boolean isResampleInDecoder() {
+        return resampleInDecoder;
+    }
+
+    /**
+     * 按当前配置启动 grabber；resample-in-decoder 开启时输出 16kHz 单声道 s16，
+     * 调用方在此之前自行设置的采样参数（如 PcmDecoder 必须重采样）不会被清除
+     */
+    public static void start(FFmpegFrameGrabber grabber) throws FrameGrabber.Exception {
+        if (audioOnly) {
+            // 指定一个不存在的视频流序号，grabber 不会选中任何视频流，也就不打开视频解码器
+            grabber.setVideoStream(Integer.MAX_VALUE);
+        }
+        if (decoderThreads > 0) {
+            grabber.setAudioOption("threads", String.valueOf(decoderThreads));
+            grabber.setVideoOption("threads", String.valueOf(decoderThreads));
+        }
+        if (resampleInDecoder) {
+            grabber.setSampleRate(PcmPipe.SAMPLE_RATE);
+            grabber.setAudioChannels(1);
+            grabber.setSampleFormat(avutil.AV_SAMPLE_FMT_S16);
+        }
+        grabber.start();
+        if (audioOnly) {
+            discardOtherStreams(grabber);
+        }
+    }
+
+    /**
+     * 解复用器跳过被丢弃流的数据包，grabSamples 不再逐个读出并释放视频包
+     */
+    private static void discardOtherStreams(FFmpegFrameGrabber grabber) {
+        AVFormatContext context = grabber.getFormatContext();
+        if (context == null) {
+            return;
+        }
+        int audioStream = grabber.getAudioStream();
+        for (int i = 0; i < context.nb_streams(); i++) {
+            if (i != audioStream) {
+                context.streams(i).discard(avcodec.AVDISCARD_ALL);
+            }
+        }
+    }
+}
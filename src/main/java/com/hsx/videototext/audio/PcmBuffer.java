@@ -0,0 +1,111 @@
+package com.hsx.videototext.audio;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 从 PcmBufferPool 借出的一段堆外 PCM 缓冲（16kHz 单声道 s16），整段短视频的音频解码到这里后直接交给引擎，不落地 WAV
+ * close 时归还到池中，之后不能再使用 {@link #samples()} 返回的视图
+ */
+public class PcmBuffer implements Closeable {
+
+    private final ByteBuffer bytes;
+    private final ShortBuffer writer;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    PcmBuffer(ByteBuffer bytes) {
+        bytes.clear();
+        this.bytes = bytes;
+        this.writer = bytes.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+    }
+
+    /**
+     * 追加一块采样，剩余容量不足时不写入并返回 false
+     */
+    public boolean put(ShortBuffer chunk) {
+        if (chunk.remaining() > writer.remaining()) {
+            return false;
+        }
+        writer.put(chunk.duplicate());
+        return true;
+    }
+
+    /**
+     * 已写入的采样数
+     */
+    public int size() {
+        return writer.position();
+    }
+
+    /**
+     * 已写入采样的只读视图，position 为 0
+     */
+    public ShortBuffer samples() {
+        ShortBuffer view = writer.duplicate();
+        view.flip();
+        return view.asReadOnlyBuffer();
+    }
+
+    ByteBuffer bytes() {
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            PcmBufferPool.release(this);
+        }
+    }
+
+    /**
+     * 以 s16le 字节流的形式读取一段采样，不拷贝整段音频，供只接受 InputStream 的识别器使用
+     */
+    public static InputStream asInputStream(ShortBuffer samples) {
+        ShortBuffer source = samples.duplicate();
+        return new InputStream() {
+            private int pending = -1;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (pending < 0 && !source.hasRemaining()) {
+                    return -1;
+                }
+                int n = 0;
+                if (pending >= 0) {
+                    b[off + n++] = (byte) pending;
+                    pending = -1;
+                }
+                while (n + 1 < len && source.hasRemaining()) {
+                    short sample = source.get();
+                    b[off + n++] = (byte) sample;
+                    b[off + n++] = (byte) (sample >> 8);
+                }
+                if (n < len && source.hasRemaining()) {
+                    // 只剩一个字节的空间，高位字节留到下次读取
+                    short sample = source.get();
+                    b[off + n++] = (byte) sample;
+                    pending = (sample >> 8) & 0xff;
+                }
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return source.remaining() * 2 + (pending >= 0 ? 1 : 0);
+            }
+        };
+    }
+}
@@ -0,0 +1,104 @@
+package com.hsx.videototext.audio;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 短视频 PCM 的堆外缓冲池
+ * 时长不超过 decode.in-memory-max-seconds 的视频整段解码到池中的直接缓冲区，识别完成后归还，在任务之间复用；
+ * 每个缓冲区按最大时长分配，总量不超过 decode.buffer-pool-mb，用满时新任务改为提取 WAV（长视频始终走 WAV + 内存映射）
+ */
+@Component
+public class PcmBufferPool {
+
+    private static int maxSeconds = 300;
+    private static long poolBytes = 256L * 1024 * 1024;
+
+    private static final Deque<ByteBuffer> IDLE = new ArrayDeque<>();
+    private static long allocatedBytes;
+    private static long usedBytes;
+
+    @Value("${decode.in-memory-max-seconds:300}")
+    public void setMaxSeconds(int value) {
+        synchronized (PcmBufferPool.class) {
+            // 单个直接缓冲区最大 2GB，超过一小时的视频也不适合整段放在内存中
+            maxSeconds = Math.max(0, Math.min(value, 3600));
+            // 缓冲区大小变了，空闲的旧缓冲区不再复用
+            ByteBuffer stale;
+            while ((stale = IDLE.poll()) != null) {
+                allocatedBytes -= stale.capacity();
+            }
+        }
+    }
+
+    @Value("${decode.buffer-pool-mb:256}")
+    public void setPoolMb(long value) {
+        synchronized (PcmBufferPool.class) {
+            poolBytes = Math.max(0, value) * 1024 * 1024;
+        }
+    }
+
+    /**
+     * 该时长的音频能否放入一个缓冲区；时长未知（&lt;= 0）时不放入
+     */
+    public static synchronized boolean fits(long durationMs) {
+        return durationMs > 0 && durationMs <= maxSeconds * 1000L;
+    }
+
+    /**
+     * 借出一个缓冲区，池已用满时返回 null
+     */
+    public static synchronized PcmBuffer acquire() {
+        int capacity = bufferBytes();
+        ByteBuffer bytes = IDLE.poll();
+        if (bytes == null) {
+            if (maxSeconds == 0 || allocatedBytes + capacity > poolBytes) {
+                return null;
+            }
+            bytes = ByteBuffer.allocateDirect(capacity);
+            allocatedBytes += capacity;
+        }
+        usedBytes += bytes.capacity();
+        return new PcmBuffer(bytes);
+    }
+
+    static synchronized void release(PcmBuffer buffer) {
+        ByteBuffer bytes = buffer.bytes();
+        usedBytes -= bytes.capacity();
+        if (bytes.capacity() == bufferBytes() && allocatedBytes <= poolBytes) {
+            IDLE.push(bytes);
+        } else {
+            // 配置已变更，交给 GC 回收
+            allocatedBytes -= bytes.capacity();
+        }
+    }
+
+    /**
+     * 每个缓冲区多留一秒，容器时长与实际采样数常有几十毫秒的出入
+     */
+    private static int bufferBytes() {
+        return (maxSeconds + 1) * PcmPipe.SAMPLE_RATE * 2;
+    }
+
+    /**
+     * 正在被任务使用的字节数
+     */
+    public static synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 已分配的堆外字节数（使用中 + 空闲）
+     */
+    public static synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public static synchronized long getCapacityBytes() {
+        return poolBytes;
+    }
+}
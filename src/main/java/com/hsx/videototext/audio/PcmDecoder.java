@@ -0,0 +1,140 @@
+package com.hsx.videototext.audio;
+
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.websocket.ProgressEmitter;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+
+import java.io.InputStream;
+import java.nio.ShortBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把视频中的音频解码为 16kHz 单声道 s16 PCM 写入 PcmPipe，不落地 WAV 文件
+ * 重采样由 FFmpegFrameGrabber 内部的 swresample 完成，其余解码参数见 DecodeProfile
+ */
+public class PcmDecoder {
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private static final ExecutorService DECODE_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "PcmDecoder-" + THREAD_INDEX.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PcmDecoder() {
+    }
+
+    /**
+     * 在后台线程中解码，识别端可以立即开始读取 pipe
+     */
+    public static Future<?> start(String videoPath, PcmPipe pipe) {
+        return DECODE_EXECUTOR.submit(ProgressWebSocketHandler.bound(() -> {
+            decode(videoPath, pipe);
+            return null;
+        }));
+    }
+
+    /**
+     * 从输入流解码，流需支持 mark/reset 才能让 FFmpeg 在容器内定位（如 moov 在文件尾的 mp4）
+     */
+    public static Future<?> start(InputStream in, PcmPipe pipe) {
+        return DECODE_EXECUTOR.submit(ProgressWebSocketHandler.bound(() -> {
+            decode(new FFmpegFrameGrabber(in, Integer.MAX_VALUE), pipe);
+            return null;
+        }));
+    }
+
+    /**
+     * 在当前线程中解码，结束（或失败）时关闭 pipe 的写端
+     */
+    public static void decode(String videoPath, PcmPipe pipe) throws Exception {
+        decode(new FFmpegFrameGrabber(videoPath), pipe);
+    }
+
+    /**
+     * 在当前线程中把整段音频解码到 PcmBufferPool 借出的堆外缓冲
+     * 时长超过 decode.in-memory-max-seconds、时长未知或池已用满时不解码，返回 null，由调用方改为提取 WAV
+     */
+    public static PcmBuffer decodeToBuffer(String videoPath) throws Exception {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath);
+        PcmBuffer buffer = null;
+        try {
+            start(grabber);
+            long totalMs = grabber.getLengthInTime() / 1000;
+            if (!PcmBufferPool.fits(totalMs)) {
+                PipelineMetrics.pcmBufferFallback(totalMs > 0 ? "too_long" : "unknown_duration");
+                return null;
+            }
+            buffer = PcmBufferPool.acquire();
+            if (buffer == null) {
+                PipelineMetrics.pcmBufferFallback("pool_exhausted");
+                return null;
+            }
+
+            ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                if (frame.samples == null) {
+                    continue;
+                }
+                if (!buffer.put((ShortBuffer) frame.samples[0])) {
+                    // 容器记录的时长偏短
+                    PipelineMetrics.pcmBufferFallback("overflow");
+                    buffer.close();
+                    return null;
+                }
+                emitter.progress(grabber.getTimestamp() / 1000, totalMs);
+            }
+            PcmBuffer result = buffer;
+            buffer = null;
+            return result;
+        } finally {
+            if (buffer != null) {
+                buffer.close();
+            }
+            try { grabber.stop(); } catch (Exception e) { e.printStackTrace(); }
+            try { grabber.release(); } catch (Exception e) { e.printStackTrace(); }
+        }
+    }
+
+    private static void start(FFmpegFrameGrabber grabber) throws Exception {
+        grabber.setSampleRate(PcmPipe.SAMPLE_RATE);
+        grabber.setAudioChannels(1);
+        grabber.setSampleFormat(avutil.AV_SAMPLE_FMT_S16);
+        DecodeProfile.start(grabber);
+    }
+
+    private static void decode(FFmpegFrameGrabber grabber, PcmPipe pipe) throws Exception {
+        try {
+            start(grabber);
+
+            ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+            long totalMs = grabber.getLengthInTime() / 1000;
+            Frame frame;
+            while ((frame = grabber.grabSamples()) != null) {
+                if (frame.samples == null) {
+                    continue;
+                }
+                pipe.write((ShortBuffer) frame.samples[0]);
+                emitter.progress(grabber.getTimestamp() / 1000, totalMs);
+            }
+            pipe.finish();
+        } catch (CancellationException e) {
+            // 读端已放弃，直接结束
+        } catch (Exception e) {
+            pipe.fail(e);
+            throw e;
+        } finally {
+            try { grabber.stop(); } catch (Exception e) { e.printStackTrace(); }
+            try { grabber.release(); } catch (Exception e) { e.printStackTrace(); }
+        }
+    }
+}
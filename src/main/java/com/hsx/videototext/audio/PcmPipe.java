@@ -0,0 +1,201 @@
+package com.hsx.videototext.audio;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解码线程与识别线程之间的有界 PCM 缓冲（16kHz 单声道 s16）
+ * 解码端 write/finish/fail，识别端 read 或 asInputStream；缓冲满时解码端阻塞，形成背压
+ */
+public class PcmPipe implements Closeable {
+
+    public static final int SAMPLE_RATE = 16000;
+
+    /**
+     * 默认缓冲块数，按每块约 1024 个采样估算约 30 秒音频
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final short[] EOF = new short[0];
+
+    private final BlockingQueue<short[]> queue;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private boolean finished;
+    private long samplesRead;
+    private long readWaitNanos;
+
+    public PcmPipe() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PcmPipe(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 用内存中已有的一段采样构造一个已写完的管道，供只接受流式输入的引擎识别单个窗口
+     */
+    public static PcmPipe of(ShortBuffer samples) {
+        int chunkSize = 4096;
+        ShortBuffer source = samples.duplicate();
+        PcmPipe pipe = new PcmPipe((source.remaining() + chunkSize - 1) / chunkSize + 1);
+        while (source.hasRemaining()) {
+            short[] chunk = new short[Math.min(chunkSize, source.remaining())];
+            source.get(chunk);
+            pipe.queue.add(chunk);
+        }
+        pipe.queue.add(EOF);
+        return pipe;
+    }
+
+    /**
+     * 写入一块采样（会拷贝，调用方可复用缓冲区）
+     */
+    public void write(ShortBuffer samples) throws InterruptedException {
+        short[] chunk = new short[samples.remaining()];
+        samples.duplicate().get(chunk);
+        write(chunk);
+    }
+
+    public void write(short[] chunk) throws InterruptedException {
+        if (chunk.length == 0) {
+            return;
+        }
+        put(chunk);
+    }
+
+    /**
+     * 解码端正常结束
+     */
+    public void finish() throws InterruptedException {
+        put(EOF);
+    }
+
+    /**
+     * 解码端异常结束，读端会在读完已缓冲数据后抛出该异常
+     */
+    public void fail(Throwable cause) {
+        failure = cause;
+        try {
+            put(EOF);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (CancellationException ignored) {
+            // 读端已关闭，无需再通知
+        }
+    }
+
+    /**
+     * 读取下一块采样，结束时返回 null
+     */
+    public short[] read() throws IOException, InterruptedException {
+        if (finished) {
+            return null;
+        }
+        long waitStart = System.nanoTime();
+        short[] chunk = queue.take();
+        readWaitNanos += System.nanoTime() - waitStart;
+        if (chunk == EOF) {
+            finished = true;
+            if (failure != null) {
+                throw new IOException("音频解码失败: " + failure.getMessage(), failure);
+            }
+            return null;
+        }
+        samplesRead += chunk.length;
+        return chunk;
+    }
+
+    /**
+     * 读端已读取的采样数
+     */
+    public long getSamplesRead() {
+        return samplesRead;
+    }
+
+    /**
+     * 读端等待解码端的累计时间，用于从识别耗时中扣除
+     */
+    public long getReadWaitNanos() {
+        return readWaitNanos;
+    }
+
+    /**
+     * 以 s16le 字节流的形式读取，供只接受 InputStream 的识别器使用
+     */
+    public InputStream asInputStream() {
+        return new InputStream() {
+            private short[] chunk;
+            private int bytePos;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                if (chunk == null || bytePos >= chunk.length * 2) {
+                    try {
+                        chunk = PcmPipe.this.read();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("读取PCM数据被中断");
+                    }
+                    bytePos = 0;
+                    if (chunk == null) {
+                        return -1;
+                    }
+                }
+                int n = Math.min(len, chunk.length * 2 - bytePos);
+                for (int i = 0; i < n; i++, bytePos++) {
+                    short sample = chunk[bytePos >> 1];
+                    b[off + i] = (byte) ((bytePos & 1) == 0 ? sample : sample >> 8);
+                }
+                return n;
+            }
+
+            @Override
+            public void close() {
+                PcmPipe.this.close();
+            }
+        };
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 读端放弃读取，解码端的下一次写入会收到 CancellationException
+     */
+    @Override
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private void put(short[] chunk) throws InterruptedException {
+        while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                throw new CancellationException("PCM读取端已关闭");
+            }
+        }
+        if (closed) {
+            queue.clear();
+            throw new CancellationException("PCM读取端已关闭");
+        }
+    }
+}
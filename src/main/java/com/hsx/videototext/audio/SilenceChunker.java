@@ -0,0 +1,82 @@
+package com.hsx.videototext.audio;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于能量的静音切分：把长音频切成约 chunkSeconds 秒的窗口，切点选在窗口末尾 1/3 范围内能量最低的帧
+ */
+public class SilenceChunker {
+
+    /**
+     * 能量计算的帧长，30 毫秒
+     */
+    static final int FRAME_SAMPLES = PcmPipe.SAMPLE_RATE * 30 / 1000;
+
+    /**
+     * 帧均方根低于该值视为静音（约 -50 dBFS）
+     */
+    static final int SILENCE_RMS = 100;
+
+    private SilenceChunker() {
+    }
+
+    /**
+     * 切分 pcm 中 position 到 limit 之间的采样，返回的位置相对于 position
+     */
+    public static List<AudioChunk> split(ShortBuffer pcm, int chunkSeconds) {
+        int total = pcm.remaining();
+        int chunkSamples = Math.max(FRAME_SAMPLES * 2, chunkSeconds * PcmPipe.SAMPLE_RATE);
+        int searchSamples = Math.max(FRAME_SAMPLES, chunkSamples / 3);
+
+        List<AudioChunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (total - start > chunkSamples) {
+            int windowEnd = start + chunkSamples;
+            int cut = quietestPoint(pcm, windowEnd - searchSamples, windowEnd);
+            chunks.add(new AudioChunk(start, cut - start, isSilent(pcm, start, cut)));
+            start = cut;
+        }
+        if (total > start) {
+            chunks.add(new AudioChunk(start, total - start, isSilent(pcm, start, total)));
+        }
+        return chunks;
+    }
+
+    /**
+     * [from, to) 内能量最低的帧的中点，能量相同时取靠后的帧，使窗口尽量接近目标时长
+     */
+    private static int quietestPoint(ShortBuffer pcm, int from, int to) {
+        long minEnergy = Long.MAX_VALUE;
+        int best = to;
+        for (int frame = from; frame + FRAME_SAMPLES <= to; frame += FRAME_SAMPLES) {
+            long energy = energy(pcm, frame, FRAME_SAMPLES);
+            if (energy <= minEnergy) {
+                minEnergy = energy;
+                best = frame + FRAME_SAMPLES / 2;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isSilent(ShortBuffer pcm, int from, int to) {
+        long threshold = (long) SILENCE_RMS * SILENCE_RMS * FRAME_SAMPLES;
+        for (int frame = from; frame < to; frame += FRAME_SAMPLES) {
+            if (energy(pcm, frame, Math.min(FRAME_SAMPLES, to - frame)) > threshold) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long energy(ShortBuffer pcm, int from, int length) {
+        int base = pcm.position() + from;
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            int sample = pcm.get(base + i);
+            sum += sample * sample;
+        }
+        return sum;
+    }
+}
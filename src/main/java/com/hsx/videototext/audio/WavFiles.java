@@ -0,0 +1,133 @@
+package com.hsx.videototext.audio;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 16kHz 单声道 s16le WAV 文件读写
+ */
+public class WavFiles {
+
+    public static final int HEADER_SIZE = 44;
+
+    private WavFiles() {
+    }
+
+    /**
+     * 把管道中的全部 PCM 写成 WAV 文件，返回写入的采样数
+     */
+    public static long write(PcmPipe pipe, File target) throws IOException, InterruptedException {
+        long samples = 0;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target), 64 * 1024)) {
+            out.write(header(0));
+            short[] chunk;
+            byte[] bytes = new byte[0];
+            while ((chunk = pipe.read()) != null) {
+                if (bytes.length < chunk.length * 2) {
+                    bytes = new byte[chunk.length * 2];
+                }
+                for (int i = 0; i < chunk.length; i++) {
+                    bytes[2 * i] = (byte) chunk[i];
+                    bytes[2 * i + 1] = (byte) (chunk[i] >> 8);
+                }
+                out.write(bytes, 0, chunk.length * 2);
+                samples += chunk.length;
+            }
+        }
+        // 回填 RIFF 与 data 块长度
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            raf.write(header(samples * 2));
+        }
+        return samples;
+    }
+
+    /**
+     * 以内存映射方式打开 WAV 的 data 块，返回小端 s16 采样视图，不把整段音频读入堆
+     */
+    public static ShortBuffer map(File wavFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(wavFile.toPath(), StandardOpenOption.READ)) {
+            long[] data = findDataChunk(channel);
+            long size = Math.min(data[1], channel.size() - data[0]);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("WAV文件过大，无法映射: " + wavFile);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, data[0], size & ~1L);
+            return buffer.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        }
+    }
+
+    /**
+     * 查找 data 块的偏移和长度（FFmpeg 写出的 WAV 在 fmt 与 data 之间可能还有 LIST 块）
+     */
+    private static long[] findDataChunk(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        long pos = 12;
+        while (pos + 8 <= channel.size()) {
+            header.clear();
+            channel.read(header, pos);
+            header.flip();
+            byte[] id = new byte[4];
+            header.get(id);
+            long length = header.getInt() & 0xffffffffL;
+            if (id[0] == 'd' && id[1] == 'a' && id[2] == 't' && id[3] == 'a') {
+                // 未回填长度（流式写入中断）时按文件剩余长度处理
+                return new long[]{pos + 8, length == 0 || length == 0xffffffffL ? channel.size() - pos - 8 : length};
+            }
+            pos += 8 + length + (length & 1);
+        }
+        throw new IOException("不是有效的WAV文件，未找到data块");
+    }
+
+    /**
+     * 由文件大小估算采样数
+     */
+    public static long sampleCount(File wavFile) {
+        return Math.max(0, (wavFile.length() - HEADER_SIZE) / 2);
+    }
+
+    private static byte[] header(long dataBytes) {
+        byte[] h = new byte[HEADER_SIZE];
+        putAscii(h, 0, "RIFF");
+        putInt(h, 4, (int) (36 + dataBytes));
+        putAscii(h, 8, "WAVE");
+        putAscii(h, 12, "fmt ");
+        putInt(h, 16, 16);
+        putShort(h, 20, 1);
+        putShort(h, 22, 1);
+        putInt(h, 24, PcmPipe.SAMPLE_RATE);
+        putInt(h, 28, PcmPipe.SAMPLE_RATE * 2);
+        putShort(h, 32, 2);
+        putShort(h, 34, 16);
+        putAscii(h, 36, "data");
+        putInt(h, 40, (int) dataBytes);
+        return h;
+    }
+
+    private static void putAscii(byte[] h, int pos, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h[pos + i] = (byte) s.charAt(i);
+        }
+    }
+
+    private static void putInt(byte[] h, int pos, int v) {
+        h[pos] = (byte) v;
+        h[pos + 1] = (byte) (v >> 8);
+        h[pos + 2] = (byte) (v >> 16);
+        h[pos + 3] = (byte) (v >> 24);
+    }
+
+    private static void putShort(byte[] h, int pos, int v) {
+        h[pos] = (byte) v;
+        h[pos + 1] = (byte) (v >> 8);
+    }
+}
@@ -1,35 +1,65 @@
 package com.hsx.videototext.controller;
 
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.engine.TranscriptionEngineRegistry;
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.dto.BatchManifestDTO;
+import com.hsx.videototext.model.dto.TranscribeOptions;
 import com.hsx.videototext.model.dto.UploadVideoDTO;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import com.hsx.videototext.model.vo.BatchItemVO;
+import com.hsx.videototext.model.vo.BatchStatusVO;
+import com.hsx.videototext.model.vo.ChunkedUploadVO;
+import com.hsx.videototext.model.vo.EngineInfoVO;
+import com.hsx.videototext.model.vo.JobStatusVO;
+import com.hsx.videototext.model.vo.UploadResultVO;
+import com.hsx.videototext.service.BatchItem;
+import com.hsx.videototext.service.BatchService;
+import com.hsx.videototext.service.ChunkedUpload;
+import com.hsx.videototext.service.ChunkedUploadService;
+import com.hsx.videototext.service.JobRejectedException;
+import com.hsx.videototext.service.JobScheduler;
+import com.hsx.videototext.service.JobState;
+import com.hsx.videototext.service.SubtitleCache;
+import com.hsx.videototext.service.TranscriptionBatch;
+import com.hsx.videototext.service.TranscriptionJob;
+import com.hsx.videototext.service.UrlDownloadService;
+import com.hsx.videototext.service.WorkspaceManager;
+import com.hsx.videototext.subtitle.SubtitleFiles;
+import com.hsx.videototext.subtitle.SubtitleFormat;
+import com.hsx.videototext.utils.FileDownloadUtil;
 import com.hsx.videototext.utils.R;
-import com.hsx.videototext.utils.SpeechToWavUtil;
 import com.hsx.videototext.utils.VideoToWavUtil;
+import com.hsx.videototext.websocket.ProgressStage;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
 import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.task.TaskExecutor;
 
 import java.io.File;
-import java.io.InputStream;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 /**
  * @description:
@@ -43,22 +73,45 @@ import java.nio.file.Paths;
 public class ziMuController {
 
     @Autowired
-    private TaskExecutor taskExecutor;
+    private JobScheduler jobScheduler;
 
-    //统一临时目录路径
-    private static final String TEMP_DIR = "F:/temp_dir";
-    @PostConstruct
-    public void init() {
-        //确保临时目录存在
-        File tempDir = new File(TEMP_DIR);
-        if (!tempDir.exists()) {
-            tempDir.mkdirs();
-        }
-    }
+    @Autowired
+    private TranscriptionEngineRegistry engineRegistry;
+
+    @Autowired
+    private SubtitleCache subtitleCache;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private UrlDownloadService urlDownloadService;
+
+    @Autowired
+    private WorkspaceManager workspaces;
+
+    @Autowired
+    private BatchService batchService;
+
+    @Value("${transcription.chunk-seconds:30}")
+    private int defaultChunkSeconds;
+
+    @Value("${transcription.parallelism:0}")
+    private int defaultParallelism;
+
+    //结果下载的 Cache-Control max-age（秒）
+    @Value("${video.download.max-age-seconds:86400}")
+    private long downloadMaxAge;
+
+    //长轮询最多挂起的秒数
+    private static final int MAX_WAIT_SECONDS = 60;
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public R WavSub(@RequestParam("videoFile") MultipartFile videoFile,
-                   @RequestParam(value = "model", required = false, defaultValue = "whisper-large") String model) {
+                   @RequestParam(value = "model", required = false, defaultValue = "whisper-large") String model,
+                   @RequestParam(value = "chunkSeconds", required = false) Integer chunkSeconds,
+                   @RequestParam(value = "parallelism", required = false) Integer parallelism,
+                   HttpServletRequest request) {
         try {
             // 验证文件
             if (videoFile == null || videoFile.isEmpty()) {
@@ -76,59 +129,459 @@ public class ziMuController {
                 return R.failure("视频文件大小不能超过500MB");
             }
 
-            // 生成唯一的任务ID
-            String taskId = UUID.randomUUID().toString();
+            // 根据model参数选择识别引擎
+            TranscriptionEngine engine;
+            try {
+                engine = engineRegistry.resolve(model);
+            } catch (IllegalArgumentException e) {
+                return R.failure(e.getMessage());
+            }
+            TranscribeOptions options = transcribeOptions(model, chunkSeconds, parallelism);
+
+            // 队列已满或临时空间不足时在保存上传文件前拒绝，通过时占用排队名额
+            String userId = userId(request);
+            JobScheduler.Reservation reservation = jobScheduler.reserve(userId, videoFile.getSize());
+            try {
+                // 生成唯一的任务ID
+                String taskId = UUID.randomUUID().toString();
+
+                // 保存上传文件（同时计算内容哈希）
+                long uploadStart = System.nanoTime();
+                UploadedVideo upload = saveUpload(taskId, videoFile, "uploaded_video");
+                PipelineMetrics.record(PipelineMetrics.UPLOAD, engine, model, uploadStart);
+                return startSubtitleTask(taskId, userId, upload, engine, options, reservation);
+            } finally {
+                reservation.release();
+            }
+
+        } catch (JobRejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            return R.failure("上传失败：" + e.getMessage());
+        }
+    }
 
-            // 立即返回响应，告知前端任务已开始
-            R response = R.success().setData(taskId);
-            response.setMsg("视频上传成功，开始处理...");
+    /**
+     * 同一视频用同一引擎和模型处理过时直接返回缓存的字幕，否则加入调度队列生成字幕
+     */
+    private R startSubtitleTask(String taskId, String userId, UploadedVideo upload, TranscriptionEngine engine,
+                                TranscribeOptions options, JobScheduler.Reservation reservation) {
+        String model = options.getModel();
+        String cachedVtt = subtitleCache.getResult(upload.getMd5(), engine, model, "vtt");
+        if (cachedVtt != null) {
+            chunkedUploadService.discard(taskId, false);
+            jobScheduler.recordCached(new TranscriptionJob(taskId, userId, upload, engine, options, "vtt"), cachedVtt);
+            ProgressWebSocketHandler.finishTask(taskId, ProgressStage.DONE, "视频处理完成！生成的字幕文件：" + cachedVtt);
+            R hit = R.success(new UploadResultVO(taskId, true, cachedVtt));
+            hit.setMsg("该视频已处理过，直接返回缓存的字幕");
+            return hit;
+        }
+        useCachedAudio(taskId, upload, options);
 
-            // 异步处理视频
-            taskExecutor.execute(() -> {
-                try {
-                    // 发送开始处理的消息
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("开始处理上传的视频文件...\n选择的模型: " + model);
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("文件大小: " + (videoFile.getSize() / 1024 / 1024) + "MB");
+        submitJob(new TranscriptionJob(taskId, userId, upload, engine, options, "vtt"), reservation);
 
-                    // 处理视频生成字幕
-                    String result = VideoToWavUtil.UploadVideo(videoFile);
+        // 立即返回响应，告知前端任务已开始
+        R response = R.success(new UploadResultVO(taskId, false, null));
+        response.setMsg("视频上传成功，已加入处理队列...");
+        return response;
+    }
 
-                    // 发送完成消息
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("视频处理完成！生成的字幕文件：" + result);
+    /**
+     * 已缓存该视频的 WAV 时直接使用，并停止分片上传时的边传边提取
+     */
+    private void useCachedAudio(String taskId, UploadedVideo upload, TranscribeOptions options) {
+        String cachedAudio = subtitleCache.getAudio(upload.getMd5());
+        if (cachedAudio != null) {
+            chunkedUploadService.discard(taskId, false);
+        }
+        options.setAudioPath(cachedAudio);
+    }
 
-                } catch (Exception e) {
-                    // 发送错误消息
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("处理失败：" + e.getMessage());
-                    e.printStackTrace();
+    /**
+     * 保存到任务的工作目录，失败时删除该目录
+     */
+    private UploadedVideo saveUpload(String taskId, MultipartFile videoFile, String name) throws IOException {
+        try {
+            return VideoToWavUtil.saveUpload(videoFile, workspaces.create(taskId), name);
+        } catch (IOException | RuntimeException e) {
+            workspaces.release(taskId);
+            throw e;
+        }
+    }
+
+    /**
+     * 用上传前占用的名额提交到调度器，被拒绝时删除任务的工作目录
+     */
+    private void submitJob(TranscriptionJob job, JobScheduler.Reservation reservation) {
+        try {
+            jobScheduler.submit(job, reservation);
+        } catch (JobRejectedException e) {
+            chunkedUploadService.discard(job.getTaskId(), false);
+            workspaces.release(job.getTaskId());
+            throw e;
+        }
+    }
+
+    /**
+     * 用于按用户公平调度：优先取 X-User-Id 请求头，没有时按客户端地址区分
+     */
+    private static String userId(HttpServletRequest request) {
+        String userId = request.getHeader("X-User-Id");
+        return userId != null && !userId.isEmpty() ? userId : request.getRemoteAddr();
+    }
+
+    /**
+     * 排队已满：返回 429，Retry-After 和 data.estimatedStartTime 给出预计可开始处理的时间
+     */
+    @ExceptionHandler(JobRejectedException.class)
+    public ResponseEntity<R> jobRejected(JobRejectedException e) {
+        long waitSeconds = Math.max(1, (e.getEstimatedStartTime() - System.currentTimeMillis() + 999) / 1000);
+        Map<String, Object> data = new HashMap<>();
+        data.put("estimatedStartTime", e.getEstimatedStartTime());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(waitSeconds))
+                .body(R.failure(e.getMessage()).setData(data));
+    }
+
+    /**
+     * 任务状态：所处阶段、各阶段耗时、排队位置、预计开始时间和结果地址
+     * wait 大于 0 时为长轮询：任务未结束则挂起请求，任务结束或等待 wait 秒（最多 60 秒）后返回当前状态，
+     * 挂起期间不占用请求线程
+     */
+    @GetMapping("/tasks/{taskId}")
+    public DeferredResult<R> taskStatus(@PathVariable String taskId,
+                                        @RequestParam(value = "wait", required = false, defaultValue = "0") int wait) {
+        TranscriptionJob job = jobScheduler.getJob(taskId);
+        long waitMillis = Math.min(Math.max(wait, 0), MAX_WAIT_SECONDS) * 1000L;
+        DeferredResult<R> result = new DeferredResult<>(waitMillis > 0 ? waitMillis : null,
+                () -> R.success(jobStatus(job)));
+        if (job == null) {
+            result.setResult(R.failure("任务不存在: " + taskId));
+            return result;
+        }
+        if (waitMillis == 0) {
+            result.setResult(R.success(jobStatus(job)));
+            return result;
+        }
+        Runnable listener = () -> result.setResult(R.success(jobStatus(job)));
+        result.onCompletion(() -> job.removeFinishListener(listener));
+        job.whenFinished(listener);
+        return result;
+    }
+
+    private JobStatusVO jobStatus(TranscriptionJob job) {
+        Map<JobState, Long> times = job.getStateTimes();
+        Map<String, Long> stateTimes = new LinkedHashMap<>();
+        Map<String, Long> durations = new LinkedHashMap<>();
+        List<Map.Entry<JobState, Long>> entries = new ArrayList<>(times.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+        for (int i = 0; i < entries.size(); i++) {
+            JobState state = entries.get(i).getKey();
+            long entered = entries.get(i).getValue();
+            stateTimes.put(state.name().toLowerCase(), entered);
+            if (!state.isFinished()) {
+                long left = i + 1 < entries.size() ? entries.get(i + 1).getValue() : System.currentTimeMillis();
+                durations.put(state.name().toLowerCase(), left - entered);
+            }
+        }
+        JobState state = job.getState();
+        String resultUrl = state == JobState.DONE ? "/video/tasks/" + job.getTaskId() + "/subtitle" : null;
+        return new JobStatusVO(job.getTaskId(), state.name().toLowerCase(), jobScheduler.queuePosition(job),
+                jobScheduler.estimateStartTime(job), stateTimes, durations, resultUrl, job.getError());
+    }
+
+    /**
+     * 按任务 ID 下载结果：默认字幕任务返回 VTT，英语文本任务返回 TXT；
+     * 指定 format（vtt / srt / ttml / json / txt）时由保存的 JSON 转写稿生成对应格式，不重新识别
+     * 字幕任务识别过程中返回已写入的部分（不缓存），尚未开始写字幕时返回 409
+     */
+    @GetMapping("/tasks/{taskId}/subtitle")
+    public void taskResult(@PathVariable String taskId,
+                           @RequestParam(value = "format", required = false) String format,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        TranscriptionJob job = jobScheduler.getJob(taskId);
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (job.getState() != JobState.DONE) {
+            String partial = job.getOptions().getSubtitlePath();
+            if (!job.getState().isFinished() && partial != null && format == null) {
+                FileDownloadUtil.servePartial(new File(partial), "text/vtt", request, response);
+            } else {
+                response.sendError(HttpServletResponse.SC_CONFLICT);
+            }
+            return;
+        }
+        SubtitleFormat target;
+        try {
+            target = SubtitleFormat.of(format != null ? format : job.getFormat());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        if (format == null || target.getExtension().equals(job.getFormat())) {
+            File result = new File(job.getResult());
+            FileDownloadUtil.serve(result, target.getContentType(), downloadMaxAge, isOutputFile(result), request, response);
+            // 可能刚在结果文件旁生成了 .gz
+            subtitleCache.recount(result);
+            return;
+        }
+        String transcript = subtitleCache.getResult(job.getUpload().getMd5(), job.getEngine(),
+                job.getOptions().getModel(), SubtitleFormat.JSON.getExtension());
+        if (transcript == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        File rendered = SubtitleFiles.render(new File(transcript), target);
+        FileDownloadUtil.serve(rendered, target.getContentType(), downloadMaxAge, isOutputFile(rendered), request, response);
+        // 生成的格式和它的 .gz 都在转写稿旁，计入转写稿所在的缓存项
+        subtitleCache.recount(new File(transcript));
+    }
+
+    /**
+     * 分片上传第一步：预分配文件，返回分片大小和分片数
+     */
+    @PostMapping("/upload/chunked")
+    public R initChunkedUpload(@RequestParam("totalSize") long totalSize,
+                               @RequestParam(value = "chunkSize", required = false) Integer chunkSize,
+                               @RequestParam(value = "model", required = false, defaultValue = "whisper-large") String model,
+                               @RequestParam(value = "chunkSeconds", required = false) Integer chunkSeconds,
+                               @RequestParam(value = "parallelism", required = false) Integer parallelism,
+                               HttpServletRequest request) {
+        try {
+            TranscriptionEngine engine = engineRegistry.resolve(model);
+            // 名额在创建会话时占用，complete 时不会因排队已满而丢弃已上传的文件
+            JobScheduler.Reservation reservation = jobScheduler.reserve(userId(request), totalSize);
+            ChunkedUpload upload;
+            try {
+                upload = chunkedUploadService.init(totalSize, chunkSize, engine,
+                        transcribeOptions(model, chunkSeconds, parallelism));
+            } catch (IOException | RuntimeException e) {
+                reservation.release();
+                throw e;
+            }
+            upload.setReservation(reservation);
+            return R.success(chunkedUploadVO(upload));
+        } catch (JobRejectedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return R.failure(e.getMessage());
+        } catch (Exception e) {
+            return R.failure("创建上传失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 上传第 index 个分片，请求体为分片的原始字节；分片可乱序、并行上传，重复上传会覆盖
+     */
+    @PutMapping("/upload/chunked/{uploadId}/{index}")
+    public R uploadChunk(@PathVariable String uploadId, @PathVariable int index, HttpServletRequest request) {
+        try {
+            ChunkedUpload upload = chunkedUploadService.get(uploadId);
+            long contentLength = request.getContentLengthLong();
+            if (index >= 0 && index < upload.getChunkCount() && contentLength >= 0
+                    && contentLength != upload.chunkLength(index)) {
+                return R.failure("分片 " + index + " 大小应为 " + upload.chunkLength(index) + " 字节");
+            }
+            long uploadStart = System.nanoTime();
+            chunkedUploadService.writeChunk(uploadId, index, request.getInputStream());
+            PipelineMetrics.record(PipelineMetrics.UPLOAD_CHUNK, upload.getEngine(), upload.getOptions().getModel(),
+                    uploadStart);
+            return R.success(chunkedUploadVO(upload));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return R.failure(e.getMessage());
+        } catch (Exception e) {
+            return R.failure("分片上传失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询已收到的分片，断线重连后据此续传
+     */
+    @GetMapping("/upload/chunked/{uploadId}")
+    public R chunkedUploadStatus(@PathVariable String uploadId) {
+        try {
+            return R.success(chunkedUploadVO(chunkedUploadService.get(uploadId)));
+        } catch (IllegalArgumentException e) {
+            return R.failure(e.getMessage());
+        }
+    }
+
+    /**
+     * 全部分片到齐后调用，开始生成字幕；上传 ID 即任务 ID
+     */
+    @PostMapping("/upload/chunked/{uploadId}/complete")
+    public R completeChunkedUpload(@PathVariable String uploadId, HttpServletRequest request) {
+        try {
+            ChunkedUpload chunked = chunkedUploadService.get(uploadId);
+            UploadedVideo upload = chunkedUploadService.complete(uploadId);
+            JobScheduler.Reservation reservation = chunked.getReservation();
+            try {
+                return startSubtitleTask(uploadId, userId(request), upload, chunked.getEngine(), chunked.getOptions(),
+                        reservation);
+            } finally {
+                if (reservation != null) {
+                    reservation.release();
                 }
-            });
+            }
+        } catch (JobRejectedException e) {
+            throw e;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return R.failure(e.getMessage());
+        } catch (Exception e) {
+            return R.failure("上传失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 从 URL 拉取视频生成字幕：支持 Range 的服务器分段并行下载，下载过程中即开始提取音频；
+     * 下载在后台线程进行，立即返回任务 ID；下载完成后与分片上传一样进入去重缓存检查和调度队列，失败时任务进度以 FAILED 结束
+     */
+    @PostMapping("/url")
+    public R videoUrl(@RequestParam("url") String url,
+                      @RequestParam(value = "model", required = false, defaultValue = "whisper-large") String model,
+                      @RequestParam(value = "chunkSeconds", required = false) Integer chunkSeconds,
+                      @RequestParam(value = "parallelism", required = false) Integer parallelism,
+                      HttpServletRequest request) {
+        try {
+            TranscriptionEngine engine = engineRegistry.resolve(model);
+            TranscribeOptions options = transcribeOptions(model, chunkSeconds, parallelism);
+
+            // 队列已满或临时空间不足时在下载前拒绝（视频大小此时未知），通过时占用排队名额
+            String userId = userId(request);
+            JobScheduler.Reservation reservation = jobScheduler.reserve(userId, 0);
+            String taskId = UUID.randomUUID().toString();
+            try {
+                urlDownloadService.downloadAsync(taskId, url, engine, options, reservation,
+                        upload -> startSubtitleTask(taskId, userId, upload, engine, options, reservation));
+            } catch (RuntimeException e) {
+                reservation.release();
+                throw e;
+            }
 
+            // 下载在后台进行，立即返回任务 ID，下载和提取进度用 ws://.../ws/progress?taskId= 订阅
+            R response = R.success(new UploadResultVO(taskId, false, null));
+            response.setMsg("已开始下载视频，下载完成后加入处理队列...");
             return response;
+        } catch (JobRejectedException e) {
+            throw e;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return R.failure(e.getMessage());
+        } catch (Exception e) {
+            return R.failure("下载失败：" + e.getMessage());
+        }
+    }
 
+    /**
+     * 批量生成字幕：一次上传多个视频，返回批量任务 ID 和每个视频的任务 ID；
+     * 所有视频使用同一模型，陆续进入调度队列，整体进度用 ws://.../ws/progress?taskId={batchId} 订阅
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public R batchUpload(@RequestParam("videoFiles") List<MultipartFile> videoFiles,
+                         @RequestParam(value = "model", required = false, defaultValue = "whisper-large") String model,
+                         @RequestParam(value = "chunkSeconds", required = false) Integer chunkSeconds,
+                         @RequestParam(value = "parallelism", required = false) Integer parallelism,
+                         HttpServletRequest request) {
+        try {
+            TranscriptionEngine engine = engineRegistry.resolve(model);
+            TranscriptionBatch batch = batchService.submitUploads(videoFiles, userId(request), engine,
+                    transcribeOptions(model, chunkSeconds, parallelism));
+            return R.success(batchStatus(batch));
+        } catch (JobRejectedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return R.failure(e.getMessage());
         } catch (Exception e) {
-            return R.failure("上传失败：" + e.getMessage());
+            return R.failure("批量上传失败：" + e.getMessage());
         }
     }
 
-    @GetMapping("/download")
-    public ResponseEntity<Resource> downloadSubtitle(@RequestParam String filePath) throws IOException {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            return ResponseEntity.notFound().build();
+    /**
+     * 批量生成字幕：请求体为服务器本地视频路径清单（{"paths":[..],"model":".."}），文件不经过上传
+     */
+    @PostMapping("/batch/manifest")
+    public R batchManifest(@RequestBody BatchManifestDTO manifest, HttpServletRequest request) {
+        try {
+            String model = manifest.getModel() != null ? manifest.getModel() : "whisper-large";
+            List<String> paths = manifest.getPaths() != null ? manifest.getPaths() : new ArrayList<>();
+            TranscriptionEngine engine = engineRegistry.resolve(model);
+            TranscriptionBatch batch = batchService.submitManifest(paths, userId(request), engine,
+                    transcribeOptions(model, manifest.getChunkSeconds(), manifest.getParallelism()));
+            return R.success(batchStatus(batch));
+        } catch (JobRejectedException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return R.failure(e.getMessage());
+        } catch (Exception e) {
+            return R.failure("创建批量任务失败：" + e.getMessage());
+        }
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public R batchStatus(@PathVariable String batchId) {
+        TranscriptionBatch batch = batchService.getBatch(batchId);
+        if (batch == null) {
+            return R.failure("批量任务不存在: " + batchId);
+        }
+        return R.success(batchStatus(batch));
+    }
+
+    private BatchStatusVO batchStatus(TranscriptionBatch batch) {
+        List<BatchItemVO> items = new ArrayList<>(batch.getItems().size());
+        int pending = 0;
+        for (BatchItem item : batch.getItems()) {
+            String state = item.getState();
+            if (BatchItem.PENDING.equals(state)) {
+                pending++;
+            }
+            String resultUrl = BatchItem.DONE.equals(state) ? "/video/tasks/" + item.getTaskId() + "/subtitle" : null;
+            items.add(new BatchItemVO(item.getName(), item.getTaskId(), state, resultUrl, item.getError()));
         }
+        int total = items.size();
+        int succeeded = batch.getSucceeded();
+        int failed = batch.getFailed();
+        return new BatchStatusVO(batch.getBatchId(), batch.isFinished() ? "done" : "running", total, pending,
+                total - pending - succeeded - failed, succeeded, failed, items);
+    }
+
+    @DeleteMapping("/upload/chunked/{uploadId}")
+    public R abortChunkedUpload(@PathVariable String uploadId) {
+        chunkedUploadService.discard(uploadId, true);
+        return R.success();
+    }
+
+    private ChunkedUploadVO chunkedUploadVO(ChunkedUpload upload) {
+        return new ChunkedUploadVO(upload.getUploadId(), upload.getChunkSize(), upload.getChunkCount(),
+                upload.receivedBytes(), upload.missingChunks());
+    }
 
-        Path path = Paths.get(file.getAbsolutePath());
-        Resource resource = new InputStreamResource(Files.newInputStream(path));
+    /**
+     * 组装识别参数，未指定的分段参数取配置默认值
+     */
+    private TranscribeOptions transcribeOptions(String model, Integer chunkSeconds, Integer parallelism) {
+        return new TranscribeOptions()
+                .setModel(model)
+                .setChunkSeconds(chunkSeconds != null && chunkSeconds > 0 ? chunkSeconds : defaultChunkSeconds)
+                .setParallelism(parallelism != null && parallelism >= 0 ? parallelism : defaultParallelism);
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"")
-                .contentLength(file.length())
-                .contentType(MediaType.parseMediaType("text/vtt"))
-                .body(resource);
+    /**
+     * 已废弃，改用 /tasks/{taskId}/subtitle：只接受已完成任务登记的结果文件路径，按所属任务下载
+     */
+    @Deprecated
+    @GetMapping("/download")
+    public void downloadSubtitle(@RequestParam String filePath, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        downloadResult(filePath, request, response);
     }
 
     @PostMapping(value = "/upload/english", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public R englishVideoToText(@RequestParam("videoFile") MultipartFile videoFile) {
+    public R englishVideoToText(@RequestParam("videoFile") MultipartFile videoFile,
+                                @RequestParam(value = "model", required = false, defaultValue = "sphinx-en") String model,
+                                @RequestParam(value = "chunkSeconds", required = false) Integer chunkSeconds,
+                                @RequestParam(value = "parallelism", required = false) Integer parallelism,
+                                HttpServletRequest request) {
         try {
             // 验证文件
             if (videoFile == null || videoFile.isEmpty()) {
@@ -146,67 +599,93 @@ public class ziMuController {
                 return R.failure("视频文件大小不能超过500MB");
             }
 
-            // 生成唯一的任务ID
-            String taskId = UUID.randomUUID().toString();
-
-            // 立即返回响应，告知前端任务已开始
-            R response = R.success().setData(taskId);
-            response.setMsg("英语视频上传成功，开始处理...");
-
-            // 异步处理视频
-            taskExecutor.execute(() -> {
-                try {
-                    // 发送开始处理的消息
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("开始处理上传的英语视频文件...");
-
-                    // 创建临时目录
-                    File customTempDir = new File("F:/temp_dir");
-                    if (!customTempDir.exists()) {
-                        customTempDir.mkdirs();
-                    }
-
-                    // 将MultipartFile保存到临时文件
-                    File tempFile = File.createTempFile("uploaded_english_video_", ".mp4", customTempDir);
-                    tempFile.deleteOnExit();
-
-                    try (InputStream inputStream = videoFile.getInputStream()) {
-                        Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    }
-
-                    // 处理视频生成英语文本
-                    String result = SpeechToWavUtil.videoToEnglishText(tempFile.getAbsolutePath());
-
-                    // 发送完成消息
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("英语视频处理完成！生成的文本文件：" + result);
-
-                } catch (Exception e) {
-                    // 发送错误消息
-                    com.hsx.videototext.websocket.ProgressWebSocketHandler.sendProgress("处理失败：" + e.getMessage());
-                    e.printStackTrace();
+            // 根据model参数选择识别引擎
+            TranscriptionEngine engine;
+            try {
+                engine = engineRegistry.resolve(model, TranscriptionEngineRegistry.ENGLISH);
+            } catch (IllegalArgumentException e) {
+                return R.failure(e.getMessage());
+            }
+            TranscribeOptions options = transcribeOptions(model, chunkSeconds, parallelism);
+
+            // 队列已满或临时空间不足时在保存上传文件前拒绝，通过时占用排队名额
+            String userId = userId(request);
+            JobScheduler.Reservation reservation = jobScheduler.reserve(userId, videoFile.getSize());
+            try {
+                // 生成唯一的任务ID
+                String taskId = UUID.randomUUID().toString();
+
+                // 保存上传文件（同时计算内容哈希），命中去重缓存时直接返回已生成的文本
+                long uploadStart = System.nanoTime();
+                UploadedVideo upload = saveUpload(taskId, videoFile, "uploaded_english_video");
+                PipelineMetrics.record(PipelineMetrics.UPLOAD, engine, model, uploadStart);
+                String cachedText = subtitleCache.getResult(upload.getMd5(), engine, model, "txt");
+                if (cachedText != null) {
+                    jobScheduler.recordCached(new TranscriptionJob(taskId, userId, upload, engine, options, "txt"), cachedText);
+                    ProgressWebSocketHandler.finishTask(taskId, ProgressStage.DONE, "英语视频处理完成！生成的文本文件：" + cachedText);
+                    R hit = R.success(new UploadResultVO(taskId, true, cachedText));
+                    hit.setMsg("该视频已处理过，直接返回缓存的文本");
+                    return hit;
                 }
-            });
+                useCachedAudio(taskId, upload, options);
 
-            return response;
+                submitJob(new TranscriptionJob(taskId, userId, upload, engine, options, "txt"), reservation);
 
+                // 立即返回响应，告知前端任务已开始
+                R response = R.success(new UploadResultVO(taskId, false, null));
+                response.setMsg("英语视频上传成功，已加入处理队列...");
+                return response;
+            } finally {
+                reservation.release();
+            }
+
+        } catch (JobRejectedException e) {
+            throw e;
         } catch (Exception e) {
             return R.failure("上传失败：" + e.getMessage());
         }
     }
 
+    /**
+     * 已废弃，改用 /tasks/{taskId}/subtitle，同 /download
+     */
+    @Deprecated
     @GetMapping("/download/text")
-    public ResponseEntity<Resource> downloadTextFile(@RequestParam String filePath) throws IOException {
-        File file = new File(filePath);
-        if (!file.exists()) {
-            return ResponseEntity.notFound().build();
+    public void downloadTextFile(@RequestParam String filePath, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        downloadResult(filePath, request, response);
+    }
+
+    /**
+     * 路径不是任何已完成任务的结果文件时返回 404（上传的视频、WAV 等中间文件都不是）
+     */
+    private void downloadResult(String filePath, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        TranscriptionJob job = jobScheduler.findByResult(filePath);
+        if (job == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        taskResult(job.getTaskId(), null, request, response);
+    }
 
-        Path path = Paths.get(file.getAbsolutePath());
-        Resource resource = new InputStreamResource(Files.newInputStream(path));
+    /**
+     * 只为去重缓存和任务工作目录中的结果文件生成预压缩版本
+     */
+    private boolean isOutputFile(File file) throws IOException {
+        return FileDownloadUtil.isWithin(file, subtitleCache.getDir(), workspaces.jobsDir());
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"")
-                .contentLength(file.length())
-                .contentType(MediaType.parseMediaType("text/plain"))
-                .body(resource);
+    /**
+     * 各识别引擎的可用状态和实时率，用于按延迟预算选择 model
+     */
+    @GetMapping("/engines")
+    public R engines() {
+        List<EngineInfoVO> engines = new ArrayList<>();
+        for (TranscriptionEngine engine : engineRegistry.getEngines()) {
+            engines.add(new EngineInfoVO(engine.getName(), engine.isAvailable(),
+                    engine.isStreaming(), engine.getRealTimeFactor()));
+        }
+        return R.success(engines);
     }
 }
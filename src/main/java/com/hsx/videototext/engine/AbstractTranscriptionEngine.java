@@ -0,0 +1,98 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmDecoder;
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.entity.Segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 引擎公共逻辑：统计实时率（同时记入 video.transcription.rtf 分布），并在流式/文件两种输入之间互相转换
+ */
+public abstract class AbstractTranscriptionEngine implements TranscriptionEngine {
+
+    private final LongAdder audioNanos = new LongAdder();
+    private final LongAdder computeNanos = new LongAdder();
+
+    @Override
+    public final List<Segment> transcribe(PcmPipe pipe, String model) throws Exception {
+        long start = System.nanoTime();
+        long samplesBefore = pipe.getSamplesRead();
+        long waitBefore = pipe.getReadWaitNanos();
+        List<Segment> segments = doTranscribe(pipe, model);
+        // 扣除等待解码的时间，只统计引擎自身的耗时
+        long elapsed = System.nanoTime() - start - (pipe.getReadWaitNanos() - waitBefore);
+        record(model, pipe.getSamplesRead() - samplesBefore, elapsed);
+        return segments;
+    }
+
+    @Override
+    public final List<Segment> transcribe(File wavFile, String model) throws Exception {
+        long start = System.nanoTime();
+        List<Segment> segments = doTranscribe(wavFile, model);
+        record(model, WavFiles.sampleCount(wavFile), System.nanoTime() - start);
+        return segments;
+    }
+
+    @Override
+    public final List<Segment> transcribe(ShortBuffer samples, String model) throws Exception {
+        long start = System.nanoTime();
+        int count = samples.remaining();
+        List<Segment> segments = doTranscribe(samples.duplicate(), model);
+        record(model, count, System.nanoTime() - start);
+        return segments;
+    }
+
+    @Override
+    public double getRealTimeFactor() {
+        long audio = audioNanos.sum();
+        return audio == 0 ? -1 : computeNanos.sum() / (double) audio;
+    }
+
+    protected abstract List<Segment> doTranscribe(PcmPipe pipe, String model) throws Exception;
+
+    /**
+     * 默认把 WAV 文件解码为 PCM 流再识别
+     */
+    protected List<Segment> doTranscribe(File wavFile, String model) throws Exception {
+        try (PcmPipe pipe = new PcmPipe()) {
+            Future<?> decoding = PcmDecoder.start(wavFile.getAbsolutePath(), pipe);
+            List<Segment> segments = doTranscribe(pipe, model);
+            try {
+                decoding.get();
+            } catch (ExecutionException e) {
+                throw new IOException("音频读取失败: " + e.getCause().getMessage(), e.getCause());
+            }
+            return segments;
+        }
+    }
+
+    /**
+     * 默认把窗口包装成已写完的 PCM 管道再识别
+     */
+    protected List<Segment> doTranscribe(ShortBuffer samples, String model) throws Exception {
+        try (PcmPipe pipe = PcmPipe.of(samples)) {
+            return doTranscribe(pipe, model);
+        }
+    }
+
+    private void record(String model, long samples, long elapsedNanos) {
+        if (samples <= 0) {
+            return;
+        }
+        long audio = TimeUnit.SECONDS.toNanos(samples) / PcmPipe.SAMPLE_RATE;
+        long compute = Math.max(0, elapsedNanos);
+        audioNanos.add(audio);
+        computeNanos.add(compute);
+        PipelineMetrics.realTimeFactor(this, model, compute / (double) audio);
+    }
+}
@@ -0,0 +1,178 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.entity.Segment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 跨任务的推理调度：所有任务的分段窗口进入同一个先进先出队列，由少量共享的推理线程逐个识别，
+ * 结果换算为绝对时间后交回各自的任务；多个任务因此轮流占用推理上下文，而不是各自开线程争抢
+ * 推理线程数默认等于各引擎的推理上下文数之和（{@link TranscriptionEngine#inferenceContexts()}，如 whisper-jni 的推理状态池大小），
+ * 每个线程识别时正好占用一个上下文，不会阻塞在借用上；没有推理上下文的引擎（每个窗口单独创建识别器）不经过这里
+ * 关闭或没有可用的引擎时不启动，ParallelTranscriber 改用共享识别线程池
+ */
+@Component
+public class InferenceDispatcher {
+
+    @Value("${transcription.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 推理线程数，0 表示等于各引擎的推理上下文数之和，大于该值时按该值
+     */
+    @Value("${transcription.dispatcher.contexts:0}")
+    private int contexts;
+
+    @Autowired
+    private List<TranscriptionEngine> engines;
+
+    private final Deque<Window> queue = new ArrayDeque<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            System.out.println("共享推理调度已关闭，分段识别使用共享识别线程池");
+            return;
+        }
+        int available = 0;
+        for (TranscriptionEngine engine : engines) {
+            available += Math.max(0, engine.inferenceContexts());
+        }
+        if (available == 0) {
+            System.out.println("没有可共享推理上下文的引擎，共享推理调度不启动");
+            return;
+        }
+        int count = contexts > 0 ? Math.min(contexts, available) : available;
+        synchronized (workers) {
+            for (int i = 1; i <= count; i++) {
+                Thread worker = new Thread(this::work, "Inference-" + i);
+                worker.setDaemon(true);
+                worker.start();
+                workers.add(worker);
+            }
+        }
+        running = true;
+        System.out.println("共享推理调度已启动，推理线程数: " + count);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        synchronized (workers) {
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+            workers.clear();
+        }
+        synchronized (queue) {
+            Window window;
+            while ((window = queue.poll()) != null) {
+                window.result.completeExceptionally(new IllegalStateException("服务正在关闭"));
+            }
+        }
+    }
+
+    /**
+     * 是否由共享推理线程识别该引擎的窗口
+     */
+    public boolean accepts(TranscriptionEngine engine) {
+        return running && engine.inferenceContexts() > 0;
+    }
+
+    public int queueSize() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * 提交一个窗口；结果中的时间轴已加上 offsetMs
+     */
+    public Window submit(TranscriptionEngine engine, String model, ShortBuffer samples, long offsetMs) {
+        Window window = new Window(engine, model, samples, offsetMs);
+        synchronized (queue) {
+            if (!running) {
+                throw new IllegalStateException("共享推理调度未启动");
+            }
+            queue.add(window);
+            queue.notify();
+        }
+        return window;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Window window;
+            synchronized (queue) {
+                while (queue.isEmpty()) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                window = queue.poll();
+            }
+            PipelineMetrics.inferenceDequeue(1);
+            run(window);
+        }
+    }
+
+    private static void run(Window window) {
+        PipelineMetrics.inferenceQueueWait(window.engine, window.model, System.nanoTime() - window.enqueuedNanos);
+        try {
+            List<Segment> segments = window.engine.transcribe(window.samples, window.model);
+            ParallelTranscriber.shift(segments, window.offsetMs);
+            window.result.complete(segments);
+        } catch (Throwable e) {
+            window.result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 一个待识别的窗口
+     */
+    public class Window {
+        private final TranscriptionEngine engine;
+        private final String model;
+        private final ShortBuffer samples;
+        private final long offsetMs;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<List<Segment>> result = new CompletableFuture<>();
+
+        Window(TranscriptionEngine engine, String model, ShortBuffer samples, long offsetMs) {
+            this.engine = engine;
+            this.model = model;
+            this.samples = samples;
+            this.offsetMs = offsetMs;
+        }
+
+        public CompletableFuture<List<Segment>> result() {
+            return result;
+        }
+
+        /**
+         * 尚未开始识别的窗口不再识别，结果以 CancellationException 结束；已在识别的窗口照常完成
+         */
+        public void cancel() {
+            synchronized (queue) {
+                if (queue.remove(this)) {
+                    result.cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.util.function.Consumer;
+
+/**
+ * 识别出的片段实时输出：引擎每得到一个片段就调用 emit，由当前线程绑定的接收方写入字幕文件、推送给客户端
+ * 只有时间轴为绝对时间的整段识别才绑定接收方；分段识别的窗口内时间是相对的，由 ParallelTranscriber 按顺序输出
+ */
+public class LiveSegments {
+
+    private static final ThreadLocal<Consumer<Segment>> SINK = new ThreadLocal<>();
+
+    private LiveSegments() {
+    }
+
+    /**
+     * 绑定当前线程的接收方，返回之前绑定的接收方，结束时用 {@link #restore(Consumer)} 恢复
+     */
+    public static Consumer<Segment> bind(Consumer<Segment> sink) {
+        Consumer<Segment> previous = SINK.get();
+        SINK.set(sink);
+        return previous;
+    }
+
+    public static void restore(Consumer<Segment> previous) {
+        if (previous == null) {
+            SINK.remove();
+        } else {
+            SINK.set(previous);
+        }
+    }
+
+    public static Consumer<Segment> current() {
+        return SINK.get();
+    }
+
+    public static void emit(Segment segment) {
+        Consumer<Segment> sink = SINK.get();
+        if (sink != null) {
+            sink.accept(segment);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.AudioChunk;
+import com.hsx.videototext.audio.SilenceChunker;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.Word;
+import com.hsx.videototext.websocket.ProgressEmitter;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+
+import java.io.File;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 分段并行识别：在静音处把 WAV 切成若干窗口并行识别，再按窗口偏移拼回时间轴
+ * 每个任务同时最多 parallelism 个窗口在识别，一个完成再提交下一个；options 中的 InferenceDispatcher 接收该引擎时窗口交给所有任务共享的推理线程，
+ * 否则交给所有任务共享的识别线程池（线程数为 CPU 核数），不再每个任务新建线程池
+ * 只有支持窗口识别的引擎（{@link TranscriptionEngine#supportsWindows()}）分段，其余引擎按 parallelism=1 处理
+ * 切分结果只取决于 WAV 和分段时长，中断后重新切分得到相同的分段序号，已完成的分段可直接复用
+ */
+public class ParallelTranscriber {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService SHARED = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "Chunk-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private ParallelTranscriber() {
+    }
+
+    /**
+     * 引擎不支持窗口识别时（如每段都要启动外部进程、重新加载模型的 whisper-python）改为不分段
+     */
+    public static void normalize(TranscriptionEngine engine, TranscribeOptions options) {
+        if (options.getParallelism() != 1 && !engine.supportsWindows()) {
+            options.setParallelism(1);
+        }
+    }
+
+    public static List<Segment> transcribe(File wavFile, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
+        return transcribe(WavFiles.map(wavFile), engine, options);
+    }
+
+    /**
+     * 识别内存中的整段音频（内存映射的 WAV 或解码到缓冲池的短视频音频）
+     * 完成回调在识别线程上执行；某个窗口失败时撤回尚未开始的窗口，等已开始的窗口结束后再抛出（它们还在读 pcm）
+     */
+    public static List<Segment> transcribe(ShortBuffer pcm, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
+        List<AudioChunk> chunks = SilenceChunker.split(pcm, options.getChunkSeconds());
+
+        int parallelism = options.getParallelism() > 0
+                ? options.getParallelism() : Runtime.getRuntime().availableProcessors();
+        parallelism = Math.max(1, Math.min(parallelism, chunks.size()));
+        ProgressWebSocketHandler.sendProgress("音频已切分为 " + chunks.size() + " 段，并行度 " + parallelism);
+
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+        Map<Integer, List<Segment>> completed = options.getCompletedChunks();
+        BiConsumer<Integer, List<Segment>> listener = options.getChunkListener();
+        OrderedRelease release = new OrderedRelease(chunks.size(), LiveSegments.current());
+        if (!completed.isEmpty()) {
+            ProgressWebSocketHandler.sendProgress("已有 " + completed.size() + " 段识别结果，跳过这些分段");
+        }
+        InferenceDispatcher dispatcher = options.getDispatcher();
+        boolean shared = dispatcher != null && dispatcher.accepts(engine);
+
+        AtomicReferenceArray<List<Segment>> results = new AtomicReferenceArray<>(chunks.size());
+        AtomicInteger done = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Semaphore slots = new Semaphore(parallelism);
+        List<Runnable> cancels = new ArrayList<>();
+        List<CompletableFuture<?>> callbacks = new ArrayList<>();
+        boolean submitted = false;
+        try {
+            for (int i = 0; i < chunks.size() && failure.get() == null; i++) {
+                int index = i;
+                AudioChunk chunk = chunks.get(i);
+                List<Segment> segments = completed.get(index);
+                if (segments == null && !chunk.isSilent()) {
+                    slots.acquire();
+                    CompletableFuture<List<Segment>> result;
+                    if (shared) {
+                        InferenceDispatcher.Window window = dispatcher.submit(engine, options.getModel(),
+                                window(pcm, chunk), chunk.getStartMs());
+                        result = window.result();
+                        cancels.add(window::cancel);
+                    } else {
+                        result = submit(ProgressWebSocketHandler.bound(
+                                () -> transcribeChunk(pcm, chunk, engine, options.getModel())));
+                        cancels.add(() -> result.cancel(false));
+                    }
+                    callbacks.add(result.whenComplete((value, error) -> {
+                        try {
+                            if (error != null) {
+                                failure.compareAndSet(null, error);
+                                return;
+                            }
+                            if (listener != null) {
+                                listener.accept(index, value);
+                            }
+                            results.set(index, value);
+                            release.complete(index, value);
+                            emitter.progress(done.incrementAndGet(), chunks.size());
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            slots.release();
+                        }
+                    }));
+                    continue;
+                }
+                if (segments == null) {
+                    segments = new ArrayList<>();
+                    if (listener != null) {
+                        listener.accept(index, segments);
+                    }
+                }
+                results.set(index, segments);
+                release.complete(index, segments);
+                emitter.progress(done.incrementAndGet(), chunks.size());
+            }
+            submitted = true;
+        } finally {
+            if (!submitted || failure.get() != null) {
+                cancels.forEach(Runnable::run);
+            }
+            // 等回调执行完，而不只是窗口完成
+            for (CompletableFuture<?> callback : callbacks) {
+                try {
+                    callback.join();
+                } catch (CompletionException | CancellationException e) {
+                    // 失败原因已记录在 failure 中
+                }
+            }
+        }
+        Throwable error = failure.get();
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error != null) {
+            throw error instanceof Exception ? (Exception) error : new ExecutionException(error);
+        }
+        List<Segment> merged = new ArrayList<>();
+        // 窗口按时间顺序排列，依次拼接即为有序结果
+        for (int i = 0; i < chunks.size(); i++) {
+            merged.addAll(results.get(i));
+        }
+        return merged;
+    }
+
+    /**
+     * 在共享识别线程池上执行；结果被取消时尚未开始的任务不再执行
+     */
+    private static CompletableFuture<List<Segment>> submit(Callable<List<Segment>> task) {
+        CompletableFuture<List<Segment>> result = new CompletableFuture<>();
+        SHARED.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private static ShortBuffer window(ShortBuffer pcm, AudioChunk chunk) {
+        ShortBuffer window = pcm.duplicate();
+        window.position(chunk.getStartSample());
+        window.limit(chunk.getStartSample() + chunk.getLength());
+        return window.slice();
+    }
+
+    private static List<Segment> transcribeChunk(ShortBuffer pcm, AudioChunk chunk,
+                                                 TranscriptionEngine engine, String model) throws Exception {
+        // 窗口内的时间轴是相对的，不直接实时输出（任务可能在调用线程上执行，线程上绑定着实时输出）
+        Consumer<Segment> previous = LiveSegments.bind(null);
+        List<Segment> segments;
+        try {
+            segments = engine.transcribe(window(pcm, chunk), model);
+        } finally {
+            LiveSegments.restore(previous);
+        }
+        shift(segments, chunk.getStartMs());
+        return segments;
+    }
+
+    /**
+     * 把窗口内的相对时间换算为整段音频中的绝对时间
+     */
+    static void shift(List<Segment> segments, long offsetMs) {
+        for (Segment segment : segments) {
+            segment.setStartMs(segment.getStartMs() + offsetMs);
+            segment.setEndMs(segment.getEndMs() + offsetMs);
+            if (segment.getWords() != null) {
+                for (Word word : segment.getWords()) {
+                    word.setStartMs(word.getStartMs() + offsetMs);
+                    word.setEndMs(word.getEndMs() + offsetMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * 分段乱序完成，按时间顺序实时输出：某段完成后，把从最早未输出的分段开始连续已完成的分段依次输出
+     */
+    private static class OrderedRelease {
+        private final List<List<Segment>> results;
+        private final Consumer<Segment> sink;
+        private int next;
+
+        OrderedRelease(int count, Consumer<Segment> sink) {
+            this.results = new ArrayList<>(Collections.nCopies(count, null));
+            this.sink = sink;
+        }
+
+        synchronized void complete(int index, List<Segment> segments) {
+            if (sink == null) {
+                return;
+            }
+            results.set(index, segments);
+            while (next < results.size() && results.get(next) != null) {
+                for (Segment segment : results.get(next)) {
+                    sink.accept(segment);
+                }
+                results.set(next, Collections.emptyList());
+                next++;
+            }
+        }
+    }
+}
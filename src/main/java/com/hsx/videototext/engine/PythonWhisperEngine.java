@@ -0,0 +1,204 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.websocket.ProgressEmitter;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 外部 python（faster-whisper）脚本识别，每个任务启动一个进程
+ * 作为兜底引擎，处理所有 whisper-* 模型请求
+ */
+@Component
+@Order(10)
+public class PythonWhisperEngine extends AbstractTranscriptionEngine {
+
+    @Value("${whisper.python.executable:python}")
+    private String pythonExecutable;
+
+    @Value("${whisper.python.script:F:\\test\\fasterWhisper.py}")
+    private String pythonScriptPath;
+
+    @Override
+    public String getName() {
+        return "whisper-python";
+    }
+
+    @Override
+    public boolean supports(String model) {
+        return model != null && model.toLowerCase().startsWith("whisper");
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * 脚本只接受文件路径，先把 PCM 流落地为 WAV
+     */
+    @Override
+    protected List<Segment> doTranscribe(PcmPipe pipe, String model) throws Exception {
+        File wavFile = File.createTempFile("pcm_", ".wav");
+        try {
+            WavFiles.write(pipe, wavFile);
+            return doTranscribe(wavFile, model);
+        } finally {
+            wavFile.delete();
+        }
+    }
+
+    /**
+     * 语音转文字（调用外部 python 脚本）
+     */
+    @Override
+    protected List<Segment> doTranscribe(File wavFile, String model) throws Exception {
+        String audioPath = wavFile.getAbsolutePath();
+        ProgressWebSocketHandler.sendProgress("开始语音转文字...");
+
+        ProcessBuilder pb = new ProcessBuilder(pythonExecutable, pythonScriptPath, audioPath);
+        pb.redirectErrorStream(true);
+
+        ProgressWebSocketHandler.sendProgress("正在启动Whisper语音识别引擎...");
+        Process process = pb.start();
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+        SrtParser parser = new SrtParser();
+        int lineCount = 0;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                // 脚本逐块输出 SRT，每解析完一块立即交给实时字幕
+                Segment segment = parser.accept(line);
+                if (segment != null) {
+                    LiveSegments.emit(segment);
+                }
+                System.out.println("[Whisper] " + line); // 实时输出转写进度
+
+                // 智能解析Whisper输出
+                if (line.contains("Loading model")) {
+                    ProgressWebSocketHandler.sendProgress("正在加载Whisper模型...");
+                } else if (line.contains("Transcribing")) {
+                    ProgressWebSocketHandler.sendProgress("正在转写音频内容...");
+                } else if (line.contains("Detected language")) {
+                    ProgressWebSocketHandler.sendProgress("检测到语言: " + line);
+                } else if (line.contains("Transcription completed")) {
+                    ProgressWebSocketHandler.sendProgress("转写完成！");
+                } else {
+                    emitter.progress(lineCount, 0);
+                }
+            }
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new RuntimeException("语音转文字失败，退出码: " + exitCode);
+        }
+
+        Segment last = parser.finish();
+        if (last != null) {
+            LiveSegments.emit(last);
+        }
+
+        ProgressWebSocketHandler.sendProgress("语音转文字完成，共处理 " + lineCount + " 行输出");
+        return parser.getSegments();
+    }
+
+    /**
+     * 解析脚本输出中的 SRT 字幕块（序号、时间轴、文本三行一组，块之间空行分隔）
+     */
+    static List<Segment> parseSrtSegments(String subtitleText) {
+        SrtParser parser = new SrtParser();
+        for (String line : subtitleText.split("\n")) {
+            parser.accept(line);
+        }
+        parser.finish();
+        return parser.getSegments();
+    }
+
+    /**
+     * 逐行解析 SRT：遇到空行时结束当前块，块内第二行为时间轴、第三行为文本，其他行（如日志）忽略
+     */
+    static class SrtParser {
+        private final List<Segment> segments = new ArrayList<>();
+        private final List<String> block = new ArrayList<>(3);
+
+        /**
+         * 返回该行结束的字幕块，块未结束或无法解析时返回 null
+         */
+        Segment accept(String line) {
+            if (!line.trim().isEmpty()) {
+                block.add(line.trim());
+                return null;
+            }
+            return finish();
+        }
+
+        /**
+         * 结束最后一个没有以空行结尾的块
+         */
+        Segment finish() {
+            if (block.isEmpty()) {
+                return null;
+            }
+            Segment segment = parseBlock(block);
+            block.clear();
+            if (segment != null) {
+                segments.add(segment);
+            }
+            return segment;
+        }
+
+        List<Segment> getSegments() {
+            return segments;
+        }
+
+        private static Segment parseBlock(List<String> lines) {
+            if (lines.size() < 3) {
+                return null;
+            }
+            String[] times = lines.get(1).split("-->");
+            if (times.length != 2) {
+                return null;
+            }
+            try {
+                return new Segment(parseSrtTime(times[0]), parseSrtTime(times[1]), lines.get(2));
+            } catch (NumberFormatException e) {
+                System.out.println("跳过无法解析的字幕块: " + lines.get(1));
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 解析 00:01:02,345 或 00:01:02.345 形式的时间为毫秒
+     */
+    private static long parseSrtTime(String time) {
+        String[] parts = time.trim().replace(',', '.').split("[:.]");
+        if (parts.length != 4) {
+            throw new NumberFormatException("时间格式错误: " + time);
+        }
+        return Long.parseLong(parts[0]) * 3_600_000L
+                + Long.parseLong(parts[1]) * 60_000L
+                + Long.parseLong(parts[2]) * 1000L
+                + Long.parseLong(parts[3]);
+    }
+}
@@ -0,0 +1,113 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmBuffer;
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.Word;
+import com.hsx.videototext.utils.SpeechToWavUtil;
+import edu.cmu.sphinx.api.SpeechResult;
+import edu.cmu.sphinx.result.WordResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CMU Sphinx4 英语识别引擎，模型随 sphinx4-data 打包，始终可用
+ */
+@Component
+@Order(3)
+public class SphinxEngine extends AbstractTranscriptionEngine {
+
+    @Autowired
+    private SphinxRecognizerPool recognizerPool;
+
+    @Override
+    public String getName() {
+        return "sphinx";
+    }
+
+    @Override
+    public boolean supports(String model) {
+        return "sphinx".equalsIgnoreCase(model) || "sphinx-en".equalsIgnoreCase(model);
+    }
+
+    /**
+     * 只加载了英语声学模型
+     */
+    @Override
+    public boolean supportsLanguage(String language) {
+        return "en".equalsIgnoreCase(language);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsWindows() {
+        return true;
+    }
+
+    @Override
+    protected List<Segment> doTranscribe(PcmPipe pipe, String model) throws Exception {
+        return recognize(pipe.asInputStream());
+    }
+
+    /**
+     * 内存中的窗口直接按字节流读取，不先拷贝成 PCM 管道
+     */
+    @Override
+    protected List<Segment> doTranscribe(ShortBuffer samples, String model) throws Exception {
+        return recognize(PcmBuffer.asInputStream(samples));
+    }
+
+    /**
+     * 识别器从 SphinxRecognizerPool 借用，不再每次新建
+     */
+    private List<Segment> recognize(InputStream stream) throws Exception {
+        List<Segment> segments = new ArrayList<>();
+        recognizerPool.recognize(stream, result -> {
+            Segment segment = toSegment(result);
+            if (segment != null) {
+                segments.add(segment);
+                LiveSegments.emit(segment);
+            }
+        });
+        return segments;
+    }
+
+    /**
+     * 一个 SpeechResult 对应一句话，时间轴取首尾非填充词，并保留各词的时间轴
+     */
+    private static Segment toSegment(SpeechResult result) {
+        String text = result.getHypothesis();
+        if (text == null || text.trim().isEmpty()) {
+            return null;
+        }
+        List<Word> words = new ArrayList<>();
+        for (WordResult word : result.getWords()) {
+            if (word.isFiller()) {
+                continue;
+            }
+            words.add(new Word(word.getTimeFrame().getStart(), word.getTimeFrame().getEnd(),
+                    word.getWord().getSpelling(), -1));
+        }
+        if (words.isEmpty()) {
+            return null;
+        }
+        Segment segment = new Segment(words.get(0).getStartMs(), words.get(words.size() - 1).getEndMs(), text.trim());
+        segment.setWords(words);
+        return segment;
+    }
+}
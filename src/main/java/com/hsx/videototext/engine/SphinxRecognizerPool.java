@@ -0,0 +1,167 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.utils.SpeechToWavUtil;
+import edu.cmu.sphinx.api.SpeechResult;
+import edu.cmu.sphinx.api.StreamSpeechRecognizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Sphinx4 识别器池
+ * 创建 StreamSpeechRecognizer 要解析配置、加载声学模型，比识别一段短音频还慢；池中的识别器在请求之间复用，
+ * 每次识别结束时 stopRecognition 释放解码状态，下次 startRecognition 换上新的音频流。识别器按需创建，
+ * 最多 sphinx.pool.size 个，全部借出时后来的请求等待；preload 为 true 时启动时就全部创建。
+ * 识别出错的识别器不归还，下次按需重建；SphinxEngine 和 SpeechToWavUtil 使用同一个池，基准测试自行创建
+ */
+@Component
+public class SphinxRecognizerPool {
+
+    private int size = 2;
+    private boolean preload;
+
+    private final Deque<StreamSpeechRecognizer> idle = new ArrayDeque<>();
+
+    /**
+     * 已创建的识别器数（空闲 + 借出 + 正在创建）
+     */
+    private int created;
+
+    @Value("${sphinx.pool.size:2}")
+    public synchronized void setSize(int value) {
+        size = Math.max(0, value);
+        while (created > size && idle.poll() != null) {
+            created--;
+        }
+        notifyAll();
+    }
+
+    @Value("${sphinx.pool.preload:false}")
+    public synchronized void setPreload(boolean value) {
+        preload = value;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        int count;
+        synchronized (this) {
+            if (size == 0) {
+                System.out.println("Sphinx 识别器池已关闭，每次识别新建识别器");
+                return;
+            }
+            if (!preload) {
+                return;
+            }
+            count = size;
+        }
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            synchronized (this) {
+                created++;
+            }
+            release(createReserved());
+        }
+        System.out.println("Sphinx 识别器池预加载完成，识别器数: " + count + "，耗时 " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * 借一个识别器识别整个音频流，每句话的结果交给 consumer；识别结束后识别器归还到池中
+     */
+    public void recognize(InputStream stream, Consumer<SpeechResult> consumer) throws IOException {
+        StreamSpeechRecognizer recognizer = acquire();
+        boolean healthy = false;
+        try {
+            recognizer.startRecognition(stream);
+            try {
+                SpeechResult result;
+                while ((result = recognizer.getResult()) != null) {
+                    consumer.accept(result);
+                }
+            } finally {
+                recognizer.stopRecognition();
+            }
+            healthy = true;
+        } finally {
+            if (healthy) {
+                release(recognizer);
+            } else {
+                discard();
+            }
+        }
+    }
+
+    /**
+     * 有空闲的识别器时直接借出；未达上限时占一个名额新建（在锁外创建）；否则等待归还
+     * 池关闭（size 为 0）时每次新建，用完丢弃
+     */
+    StreamSpeechRecognizer acquire() throws IOException {
+        synchronized (this) {
+            while (true) {
+                StreamSpeechRecognizer recognizer = idle.poll();
+                if (recognizer != null) {
+                    return recognizer;
+                }
+                if (size == 0 || created < size) {
+                    created++;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待 Sphinx 识别器时被中断");
+                }
+            }
+        }
+        return createReserved();
+    }
+
+    synchronized void release(StreamSpeechRecognizer recognizer) {
+        if (created > size) {
+            // 池已关闭或缩小，多出的识别器交给 GC
+            created--;
+        } else {
+            idle.push(recognizer);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 放弃一个名额（创建失败或识别出错），让等待的请求重新创建
+     */
+    synchronized void discard() {
+        created--;
+        notifyAll();
+    }
+
+    /**
+     * 为已占好的名额创建识别器，失败时归还名额
+     */
+    private StreamSpeechRecognizer createReserved() throws IOException {
+        try {
+            return newRecognizer();
+        } catch (IOException | RuntimeException e) {
+            discard();
+            throw e;
+        }
+    }
+
+    protected StreamSpeechRecognizer newRecognizer() throws IOException {
+        return new StreamSpeechRecognizer(SpeechToWavUtil.englishConfiguration());
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public synchronized int getCreatedCount() {
+        return created;
+    }
+}
@@ -0,0 +1,87 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.model.entity.Segment;
+
+import java.io.File;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+/**
+ * 语音识别引擎
+ * 输入均为 16kHz 单声道 s16 音频，输出带时间轴的片段
+ */
+public interface TranscriptionEngine {
+
+    /**
+     * 引擎名称，如 whisper-jni、whisper-python、vosk、sphinx
+     */
+    String getName();
+
+    /**
+     * 是否能处理请求中的 model 参数
+     */
+    boolean supports(String model);
+
+    /**
+     * 实际使用的模型名，用作指标标签；请求中的 model 参数由客户端填写，不能直接作为标签
+     * 默认为引擎名称，适用于只有一个固定模型的引擎
+     */
+    default String modelName(String model) {
+        return getName();
+    }
+
+    /**
+     * 能否识别该语言（ISO 639-1，如 zh、en），model=auto 时据此排除不适用的引擎
+     * 默认可以识别任何语言（多语言模型）
+     */
+    default boolean supportsLanguage(String language) {
+        return true;
+    }
+
+    /**
+     * 模型是否已加载、可以接收任务
+     */
+    boolean isAvailable();
+
+    /**
+     * 是否直接消费 PCM 流；为 false 时调用方应先提取 WAV 文件再调用 {@link #transcribe(File, String)}
+     */
+    boolean isStreaming();
+
+    /**
+     * 是否适合分段并行识别：窗口在进程内识别、可多线程同时调用，每个窗口没有额外的启动开销
+     * 默认不支持，此时请求中的 parallelism 按 1 处理
+     */
+    default boolean supportsWindows() {
+        return false;
+    }
+
+    /**
+     * 识别 PCM 流，解码与识别可以同时进行
+     */
+    List<Segment> transcribe(PcmPipe pipe, String model) throws Exception;
+
+    /**
+     * 识别 16kHz 单声道 WAV 文件
+     */
+    List<Segment> transcribe(File wavFile, String model) throws Exception;
+
+    /**
+     * 识别内存中的一段 PCM 窗口，返回的时间轴相对于窗口起点；可被多个线程同时调用
+     */
+    List<Segment> transcribe(ShortBuffer samples, String model) throws Exception;
+
+    /**
+     * 可同时识别的推理上下文数（如 whisper-jni 的推理状态池大小），共享推理调度按它启动推理线程
+     * 默认 0：引擎没有常驻的推理上下文，分段窗口不经过共享推理调度
+     */
+    default int inferenceContexts() {
+        return 0;
+    }
+
+    /**
+     * 实时率 = 识别耗时 / 音频时长，越小越快；尚无统计数据时返回 -1
+     */
+    double getRealTimeFactor();
+}
@@ -0,0 +1,99 @@
+package com.hsx.videototext.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 按请求中的 model 参数选择识别引擎
+ * 引擎按 @Order 排序，靠前的优先；model=auto 时在能识别该语言的可用引擎中，选第一个已测得实时率且不超过预算的
+ */
+@Component
+public class TranscriptionEngineRegistry {
+
+    public static final String AUTO = "auto";
+
+    public static final String ENGLISH = "en";
+
+    private final List<TranscriptionEngine> engines;
+
+    @Value("${transcription.default-model:whisper-large}")
+    private String defaultModel;
+
+    /**
+     * model=auto 时可接受的最大实时率
+     */
+    @Value("${transcription.rtf-budget:1.0}")
+    private double rtfBudget;
+
+    /**
+     * 字幕任务的音频语言，model=auto 时只在能识别该语言的引擎中选择
+     */
+    @Value("${transcription.language:zh}")
+    private String defaultLanguage;
+
+    public TranscriptionEngineRegistry(List<TranscriptionEngine> engines) {
+        this.engines = engines;
+    }
+
+    /**
+     * 查找能处理该 model 的可用引擎，找不到时抛出 IllegalArgumentException；音频为默认语言
+     */
+    public TranscriptionEngine resolve(String model) {
+        return resolve(model, null);
+    }
+
+    /**
+     * 同上，language 为音频语言（null 为 transcription.language），只影响 model=auto 的选择
+     */
+    public TranscriptionEngine resolve(String model, String language) {
+        if (model == null || model.trim().isEmpty()) {
+            model = defaultModel;
+        }
+        if (AUTO.equalsIgnoreCase(model)) {
+            return preferredWithinBudget(language != null ? language : defaultLanguage);
+        }
+        for (TranscriptionEngine engine : engines) {
+            if (engine.isAvailable() && engine.supports(model)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("不支持的模型或模型未加载: " + model);
+    }
+
+    /**
+     * 只考虑能识别该语言的可用引擎：优先选择已测得实时率且满足预算的；都不满足时选第一个尚无统计的
+     * （可能满足预算，识别后即有统计），再没有时选实时率最低的
+     */
+    private TranscriptionEngine preferredWithinBudget(String language) {
+        TranscriptionEngine unmeasured = null;
+        TranscriptionEngine fastest = null;
+        for (TranscriptionEngine engine : engines) {
+            if (!engine.isAvailable() || !engine.supportsLanguage(language)) {
+                continue;
+            }
+            double rtf = engine.getRealTimeFactor();
+            if (rtf < 0) {
+                if (unmeasured == null) {
+                    unmeasured = engine;
+                }
+            } else if (rtf <= rtfBudget) {
+                return engine;
+            } else if (fastest == null || rtf < fastest.getRealTimeFactor()) {
+                fastest = engine;
+            }
+        }
+        if (unmeasured != null) {
+            return unmeasured;
+        }
+        if (fastest == null) {
+            throw new IllegalArgumentException("没有可识别该语言的可用引擎: " + language);
+        }
+        return fastest;
+    }
+
+    public List<TranscriptionEngine> getEngines() {
+        return engines;
+    }
+}
@@ -0,0 +1,143 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.Word;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.vosk.Model;
+import org.vosk.Recognizer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vosk 流式识别引擎，模型启动时加载一次，各任务共享（Model 线程安全，Recognizer 每个任务一个）
+ * 速度快、精度一般，适合实时任务
+ */
+@Component
+@Order(2)
+public class VoskEngine extends AbstractTranscriptionEngine {
+
+    @Value("${vosk.model-path:}")
+    private String modelPath;
+
+    @Value("${vosk.model-name:vosk-small}")
+    private String modelName;
+
+    /**
+     * Vosk 模型只识别一种语言，与 model-path 指向的模型一致
+     */
+    @Value("${vosk.language:en}")
+    private String language;
+
+    private Model model;
+
+    @PostConstruct
+    public void init() {
+        if (modelPath == null || modelPath.isEmpty()) {
+            return;
+        }
+        try {
+            if (!new File(modelPath).isDirectory()) {
+                throw new IllegalStateException("未找到Vosk模型目录: " + modelPath);
+            }
+            model = new Model(modelPath);
+            System.out.println("Vosk模型加载完成: " + modelPath);
+        } catch (Exception | UnsatisfiedLinkError e) {
+            System.out.println("Vosk不可用: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vosk";
+    }
+
+    @Override
+    public boolean supports(String model) {
+        return modelName.equalsIgnoreCase(model) || getName().equalsIgnoreCase(model);
+    }
+
+    @Override
+    public String modelName(String model) {
+        return modelName;
+    }
+
+    @Override
+    public boolean supportsLanguage(String language) {
+        return this.language.equalsIgnoreCase(language);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return model != null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsWindows() {
+        return true;
+    }
+
+    @Override
+    protected List<Segment> doTranscribe(PcmPipe pipe, String modelParam) throws Exception {
+        List<Segment> segments = new ArrayList<>();
+        try (Recognizer recognizer = new Recognizer(model, PcmPipe.SAMPLE_RATE)) {
+            recognizer.setWords(true);
+            short[] chunk;
+            while ((chunk = pipe.read()) != null) {
+                if (recognizer.acceptWaveForm(chunk, chunk.length)) {
+                    addSegment(recognizer.getResult(), segments);
+                }
+            }
+            addSegment(recognizer.getFinalResult(), segments);
+        }
+        return segments;
+    }
+
+    /**
+     * 解析 Vosk 结果 JSON：{"result":[{"conf":0.98,"start":0.6,"end":1.02,"word":"..."}],"text":"..."}
+     */
+    private static void addSegment(String json, List<Segment> segments) {
+        JSONObject result = new JSONObject(json);
+        String text = result.optString("text", "").trim();
+        JSONArray words = result.optJSONArray("result");
+        if (text.isEmpty() || words == null || words.length() == 0) {
+            return;
+        }
+        List<Word> wordList = new ArrayList<>(words.length());
+        double confidence = 0;
+        for (int i = 0; i < words.length(); i++) {
+            JSONObject word = words.getJSONObject(i);
+            double conf = word.optDouble("conf", -1);
+            wordList.add(new Word(Math.round(word.getDouble("start") * 1000), Math.round(word.getDouble("end") * 1000),
+                    word.optString("word"), conf));
+            confidence += conf;
+        }
+        Segment segment = new Segment(wordList.get(0).getStartMs(), wordList.get(wordList.size() - 1).getEndMs(), text);
+        segment.setWords(wordList);
+        // 句子置信度取各词平均值
+        segment.setConfidence(confidence < 0 ? -1 : confidence / wordList.size());
+        segments.add(segment);
+        LiveSegments.emit(segment);
+    }
+
+    @PreDestroy
+    public void release() {
+        if (model != null) {
+            model.close();
+            model = null;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import io.github.givimad.whisperjni.WhisperContext;
+import io.github.givimad.whisperjni.WhisperFullParams;
+import io.github.givimad.whisperjni.WhisperJNI;
+import io.github.givimad.whisperjni.WhisperSamplingStrategy;
+import io.github.givimad.whisperjni.WhisperState;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 进程内 whisper.cpp 识别引擎
+ * 启动时加载一次模型，按 CPU 核数创建若干推理状态放入池中，每个任务借用一个，避免每次上传都启动 python 并重新加载模型
+ */
+@Component
+@Order(1)
+public class WhisperJniEngine extends AbstractTranscriptionEngine {
+
+    /**
+     * 每个识别窗口的长度（whisper 的原生窗口为 30 秒）
+     */
+    private static final int WINDOW_SECONDS = 30;
+
+    /**
+     * auto: 模型可用时进程内识别，否则走 python 脚本；jni: 只用 whisper-jni；python: 只用 python 脚本
+     */
+    @Value("${transcription.mode:auto}")
+    private String mode;
+
+    @Value("${whisper.jni.model-path:}")
+    private String modelPath;
+
+    /**
+     * 该模型对应的 model 请求参数
+     */
+    @Value("${whisper.jni.model-name:whisper-large}")
+    private String modelName;
+
+    /**
+     * 池中推理状态数，0 表示按核数自动计算
+     */
+    @Value("${whisper.jni.pool-size:0}")
+    private int poolSize;
+
+    @Value("${whisper.jni.threads:4}")
+    private int threadsPerState;
+
+    @Value("${whisper.jni.language:zh}")
+    private String language;
+
+    private WhisperJNI whisper;
+    private WhisperContext context;
+    private BlockingQueue<WhisperState> states;
+    private final List<WhisperState> allStates = new ArrayList<>();
+
+    @PostConstruct
+    public void init() throws Exception {
+        if ("python".equalsIgnoreCase(mode)) {
+            System.out.println("识别模式为python，不加载whisper-jni模型");
+            return;
+        }
+        try {
+            if (modelPath == null || modelPath.isEmpty() || !new File(modelPath).isFile()) {
+                throw new IllegalStateException("未找到whisper模型文件: " + modelPath);
+            }
+            WhisperJNI.loadLibrary();
+            whisper = new WhisperJNI();
+            context = whisper.initNoState(new File(modelPath).toPath());
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            int size = poolSize > 0 ? poolSize : Math.max(1, cores / Math.max(1, threadsPerState));
+            states = new ArrayBlockingQueue<>(size);
+            for (int i = 0; i < size; i++) {
+                WhisperState state = whisper.initState(context);
+                allStates.add(state);
+                states.add(state);
+            }
+            System.out.println("whisper-jni模型加载完成: " + modelPath + "，推理状态数: " + size);
+        } catch (Exception | UnsatisfiedLinkError e) {
+            release();
+            if ("jni".equalsIgnoreCase(mode)) {
+                throw new IllegalStateException("whisper-jni初始化失败: " + e.getMessage(), e);
+            }
+            System.out.println("whisper-jni不可用，将使用python脚本识别: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "whisper-jni";
+    }
+
+    @Override
+    public boolean supports(String model) {
+        return modelName.equalsIgnoreCase(model) || getName().equalsIgnoreCase(model);
+    }
+
+    @Override
+    public String modelName(String model) {
+        return modelName;
+    }
+
+    /**
+     * 推理参数固定了 whisper.jni.language，配置为 auto 时由模型自动检测语言
+     */
+    @Override
+    public boolean supportsLanguage(String language) {
+        return "auto".equalsIgnoreCase(this.language) || this.language.equalsIgnoreCase(language);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return states != null;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public boolean supportsWindows() {
+        return true;
+    }
+
+    /**
+     * 每个推理状态一个上下文，共享推理线程数与之相同
+     */
+    @Override
+    public int inferenceContexts() {
+        return states == null ? 0 : allStates.size();
+    }
+
+    /**
+     * 从 PCM 管道读取音频，每攒满一个窗口就识别一次，识别与解码并行进行
+     */
+    @Override
+    protected List<Segment> doTranscribe(PcmPipe pipe, String model) throws Exception {
+        WhisperState state = states.take();
+        try {
+            List<Segment> segments = new ArrayList<>();
+            float[] window = new float[WINDOW_SECONDS * PcmPipe.SAMPLE_RATE];
+            int filled = 0;
+            long offsetSamples = 0;
+            short[] chunk;
+            while ((chunk = pipe.read()) != null) {
+                int pos = 0;
+                while (pos < chunk.length) {
+                    int n = Math.min(chunk.length - pos, window.length - filled);
+                    for (int i = 0; i < n; i++) {
+                        window[filled + i] = chunk[pos + i] / 32768f;
+                    }
+                    filled += n;
+                    pos += n;
+                    if (filled == window.length) {
+                        segments.addAll(transcribe(state, window, filled, offsetSamples * 1000 / PcmPipe.SAMPLE_RATE));
+                        offsetSamples += filled;
+                        filled = 0;
+                        ProgressWebSocketHandler.emitter().progress(offsetSamples * 1000 / PcmPipe.SAMPLE_RATE, 0);
+                    }
+                }
+            }
+            if (filled > 0) {
+                segments.addAll(transcribe(state, window, filled, offsetSamples * 1000 / PcmPipe.SAMPLE_RATE));
+            }
+            return segments;
+        } finally {
+            states.put(state);
+        }
+    }
+
+    /**
+     * 识别单个窗口，直接转换为浮点采样，不经过 PCM 管道
+     */
+    @Override
+    protected List<Segment> doTranscribe(ShortBuffer samples, String model) throws Exception {
+        float[] window = new float[samples.remaining()];
+        for (int i = 0; i < window.length; i++) {
+            window[i] = samples.get() / 32768f;
+        }
+        return transcribe(window, window.length, 0);
+    }
+
+    /**
+     * 识别一段 16kHz 单声道浮点采样，返回的时间轴加上 offsetMs
+     */
+    public List<Segment> transcribe(float[] samples, int length, long offsetMs) throws Exception {
+        WhisperState state = states.take();
+        try {
+            return transcribe(state, samples, length, offsetMs);
+        } finally {
+            states.put(state);
+        }
+    }
+
+    private List<Segment> transcribe(WhisperState state, float[] samples, int length, long offsetMs) {
+        WhisperFullParams params = new WhisperFullParams(WhisperSamplingStrategy.GREEDY);
+        params.nThreads = Math.max(1, threadsPerState);
+        params.language = language;
+        params.printProgress = false;
+        params.printRealtime = false;
+        params.printTimestamps = false;
+
+        int result = whisper.fullWithState(context, state, params, samples, length);
+        if (result != 0) {
+            throw new IllegalStateException("whisper识别失败，返回码: " + result);
+        }
+
+        int count = whisper.fullNSegmentsFromState(state);
+        List<Segment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // whisper 的时间戳单位为 10 毫秒
+            long start = whisper.fullGetSegmentTimestamp0FromState(state, i) * 10 + offsetMs;
+            long end = whisper.fullGetSegmentTimestamp1FromState(state, i) * 10 + offsetMs;
+            String text = whisper.fullGetSegmentTextFromState(state, i).trim();
+            if (!text.isEmpty()) {
+                Segment segment = new Segment(start, end, text);
+                segments.add(segment);
+                LiveSegments.emit(segment);
+            }
+        }
+        return segments;
+    }
+
+    @PreDestroy
+    public void release() {
+        for (WhisperState state : allStates) {
+            state.close();
+        }
+        allStates.clear();
+        states = null;
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+}
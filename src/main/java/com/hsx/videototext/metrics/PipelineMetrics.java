@@ -0,0 +1,253 @@
+package com.hsx.videototext.metrics;
+
+import com.hsx.videototext.audio.PcmBufferPool;
+import com.hsx.videototext.engine.InferenceDispatcher;
+import com.hsx.videototext.engine.SphinxRecognizerPool;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.service.SubtitleCache;
+import com.hsx.videototext.service.WorkspaceManager;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 处理流程的指标，通过 /actuator/prometheus 暴露
+ * 每个阶段（upload / upload_chunk / download、queue_extract、extract、queue_transcribe、transcribe、subtitle）结束时记一次耗时，
+ * 按引擎和引擎实际使用的模型打标签；只在阶段边界计时，不进入解码和识别的逐帧循环
+ * 工具类和引擎不是 Spring Bean，通过静态方法记录；未在 Spring 中运行时（如基准测试）记到全局注册表
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String UPLOAD = "upload";
+    public static final String UPLOAD_CHUNK = "upload_chunk";
+    public static final String DOWNLOAD = "download";
+    public static final String QUEUE_EXTRACT = "queue_extract";
+    public static final String EXTRACT = "extract";
+    public static final String QUEUE_TRANSCRIBE = "queue_transcribe";
+    public static final String TRANSCRIBE = "transcribe";
+    public static final String SUBTITLE = "subtitle";
+
+    /**
+     * 临时目录占用按目录遍历统计，抓取间隔内复用上次的结果
+     */
+    private static final long DIR_SIZE_TTL_MILLIS = 30_000;
+
+    private static volatile MeterRegistry registry = Metrics.globalRegistry;
+
+    private static final Map<String, Meter> METERS = new ConcurrentHashMap<>();
+
+    private final SubtitleCache subtitleCache;
+    private final WorkspaceManager workspaces;
+    private final InferenceDispatcher dispatcher;
+    private final SphinxRecognizerPool sphinxPool;
+
+    private long tempDirBytes;
+    private long tempDirMeasuredAt;
+
+    public PipelineMetrics(MeterRegistry meterRegistry, SubtitleCache subtitleCache, WorkspaceManager workspaces,
+                           InferenceDispatcher dispatcher, SphinxRecognizerPool sphinxPool) {
+        registry = meterRegistry;
+        METERS.clear();
+        this.subtitleCache = subtitleCache;
+        this.workspaces = workspaces;
+        this.dispatcher = dispatcher;
+        this.sphinxPool = sphinxPool;
+    }
+
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("video.websocket.sessions", ProgressWebSocketHandler::sessionCount)
+                .description("订阅任务进度的 WebSocket 连接数")
+                .register(registry);
+        Gauge.builder("video.temp_dir.used", this, PipelineMetrics::tempDirBytes)
+                .baseUnit("bytes")
+                .description("临时目录（任务目录、缓存、任务日志）占用的空间")
+                .register(registry);
+        Gauge.builder("video.temp_dir.free", workspaces, w -> w.getRoot().getUsableSpace())
+                .baseUnit("bytes")
+                .description("临时目录所在磁盘的可用空间")
+                .register(registry);
+        Gauge.builder("video.workspace.used", workspaces, WorkspaceManager::getUsedBytes)
+                .baseUnit("bytes")
+                .description("各任务工作目录的总大小，超过配额时拒绝新任务")
+                .register(registry);
+        Gauge.builder("video.workspace.quota", workspaces, WorkspaceManager::getQuotaBytes)
+                .baseUnit("bytes")
+                .description("任务工作目录的配额，0 为不限")
+                .register(registry);
+        Gauge.builder("video.workspace.reserved", workspaces, WorkspaceManager::getReservedBytes)
+                .baseUnit("bytes")
+                .description("已准入、尚未提交的上传预留的空间")
+                .register(registry);
+        Gauge.builder("video.workspace.active", workspaces, WorkspaceManager::getActiveCount)
+                .description("进行中任务的工作目录数")
+                .register(registry);
+        Gauge.builder("video.pcm_pool.used", PcmBufferPool::getUsedBytes)
+                .baseUnit("bytes")
+                .description("短视频 PCM 缓冲池中正被任务使用的堆外内存")
+                .register(registry);
+        Gauge.builder("video.pcm_pool.allocated", PcmBufferPool::getAllocatedBytes)
+                .baseUnit("bytes")
+                .description("短视频 PCM 缓冲池已分配的堆外内存（使用中 + 空闲）")
+                .register(registry);
+        Gauge.builder("video.pcm_pool.capacity", PcmBufferPool::getCapacityBytes)
+                .baseUnit("bytes")
+                .description("短视频 PCM 缓冲池的容量上限")
+                .register(registry);
+        Gauge.builder("video.inference.queue.size", dispatcher, InferenceDispatcher::queueSize)
+                .description("等待共享推理线程识别的分段窗口数")
+                .register(registry);
+        Gauge.builder("video.sphinx_pool.created", sphinxPool, SphinxRecognizerPool::getCreatedCount)
+                .description("已创建的 Sphinx 识别器数（空闲 + 使用中）")
+                .register(registry);
+        Gauge.builder("video.sphinx_pool.idle", sphinxPool, SphinxRecognizerPool::getIdleCount)
+                .description("池中空闲的 Sphinx 识别器数")
+                .register(registry);
+        Gauge.builder("video.cache.size", subtitleCache, SubtitleCache::getTotalBytes)
+                .baseUnit("bytes")
+                .description("去重缓存的总大小")
+                .register(registry);
+    }
+
+    /**
+     * 记录一个阶段的耗时，startNanos 为阶段开始时的 System.nanoTime()
+     */
+    public static void record(String stage, TranscriptionEngine engine, String model, long startNanos) {
+        recordMillis(stage, engine, model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    public static void recordMillis(String stage, TranscriptionEngine engine, String model, long millis) {
+        String engineTag = engineTag(engine);
+        String modelTag = modelTag(engine, model);
+        Timer timer = meter("stage|" + stage + "|" + engineTag + "|" + modelTag,
+                () -> Timer.builder("video.pipeline.stage")
+                        .description("处理流程各阶段的耗时")
+                        .tag("stage", stage)
+                        .tag("engine", engineTag)
+                        .tag("model", modelTag)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(10))
+                        .maximumExpectedValue(Duration.ofHours(2))
+                        .register(registry));
+        timer.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 一次识别调用的实时率（识别耗时 / 音频时长），分段并行时每段记一次
+     */
+    public static void realTimeFactor(TranscriptionEngine engine, String model, double rtf) {
+        String engineTag = engineTag(engine);
+        String modelTag = modelTag(engine, model);
+        DistributionSummary summary = meter("rtf|" + engineTag + "|" + modelTag,
+                () -> DistributionSummary.builder("video.transcription.rtf")
+                        .description("识别实时率，小于 1 表示快于实时")
+                        .tag("engine", engineTag)
+                        .tag("model", modelTag)
+                        .serviceLevelObjectives(0.05, 0.1, 0.25, 0.5, 1, 2, 4)
+                        .register(registry));
+        summary.record(rtf);
+    }
+
+    /**
+     * 推理线程每次从共享队列取出的窗口数；调度不做批处理，按先进先出每次取一个
+     */
+    public static void inferenceDequeue(int windows) {
+        DistributionSummary summary = meter("dequeue",
+                () -> DistributionSummary.builder("video.inference.dequeue.windows")
+                        .description("推理线程每次从共享队列取出的窗口数")
+                        .register(registry));
+        summary.record(windows);
+    }
+
+    /**
+     * 结束的任务数，outcome 为 done 或 failed
+     */
+    public static void jobFinished(TranscriptionEngine engine, String model, String outcome) {
+        String engineTag = engineTag(engine);
+        String modelTag = modelTag(engine, model);
+        Counter counter = meter("finished|" + outcome + "|" + engineTag + "|" + modelTag,
+                () -> Counter.builder("video.jobs.finished")
+                        .description("结束的任务数")
+                        .tag("outcome", outcome)
+                        .tag("engine", engineTag)
+                        .tag("model", modelTag)
+                        .register(registry));
+        counter.increment();
+    }
+
+    /**
+     * 窗口从提交到开始识别的等待时间
+     */
+    public static void inferenceQueueWait(TranscriptionEngine engine, String model, long nanos) {
+        String engineTag = engineTag(engine);
+        String modelTag = modelTag(engine, model);
+        Timer timer = meter("wait|" + engineTag + "|" + modelTag,
+                () -> Timer.builder("video.inference.queue.wait")
+                        .description("分段窗口在共享推理队列中的等待时间")
+                        .tag("engine", engineTag)
+                        .tag("model", modelTag)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofMinutes(10))
+                        .register(registry));
+        timer.record(Math.max(0, nanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 短视频未能解码到内存缓冲、改为提取 WAV 的次数，reason 为 too_long / unknown_duration / pool_exhausted / overflow
+     */
+    public static void pcmBufferFallback(String reason) {
+        Counter counter = meter("fallback|" + reason,
+                () -> Counter.builder("video.pcm_pool.fallback")
+                        .description("未使用内存缓冲、改为提取 WAV 的次数")
+                        .tag("reason", reason)
+                        .register(registry));
+        counter.increment();
+    }
+
+    /**
+     * 已注册的指标按标签组合缓存，记录时不再经过 builder 和注册表查找
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends Meter> T meter(String key, Supplier<T> factory) {
+        return (T) METERS.computeIfAbsent(key, k -> factory.get());
+    }
+
+    private static String engineTag(TranscriptionEngine engine) {
+        return engine == null ? "unknown" : engine.getName();
+    }
+
+    /**
+     * 模型标签取引擎实际使用的模型名，而不是客户端填写的 model 参数，标签取值的数量因此有限
+     */
+    private static String modelTag(TranscriptionEngine engine, String model) {
+        return engine == null ? "unknown" : tagValue(engine.modelName(model));
+    }
+
+    private static String tagValue(String value) {
+        return value == null || value.isEmpty() ? "unknown" : value;
+    }
+
+    private synchronized long tempDirBytes() {
+        long now = System.currentTimeMillis();
+        if (now - tempDirMeasuredAt >= DIR_SIZE_TTL_MILLIS) {
+            tempDirBytes = WorkspaceManager.directorySize(workspaces.getRoot().toPath());
+            tempDirMeasuredAt = now;
+        }
+        return tempDirBytes;
+    }
+}
@@ -0,0 +1,20 @@
+package com.hsx.videototext.model.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 按服务器本地路径提交批量任务的请求体，路径须在 video.batch.manifest-root 下
+ */
+@Data
+public class BatchManifestDTO {
+
+    private List<String> paths;
+
+    private String model;
+
+    private Integer chunkSeconds;
+
+    private Integer parallelism;
+}
@@ -0,0 +1,70 @@
+package com.hsx.videototext.model.dto;
+
+import lombok.Data;
+import com.hsx.videototext.audio.PcmBuffer;
+import com.hsx.videototext.engine.InferenceDispatcher;
+import com.hsx.videototext.model.entity.Segment;
+import lombok.experimental.Accessors;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 单个识别任务的参数
+ */
+@Data
+@Accessors(chain = true)
+public class TranscribeOptions {
+
+    /**
+     * 请求中的模型名
+     */
+    private String model;
+
+    /**
+     * 分段识别时每段的目标时长（秒）
+     */
+    private int chunkSeconds = 30;
+
+    /**
+     * 分段并行度，1 表示不分段，0 表示按 CPU 核数
+     */
+    private int parallelism = 1;
+
+    /**
+     * 16kHz WAV 路径：调用前已设置（如命中去重缓存）则跳过音频提取，提取后由处理流程回填
+     */
+    private String audioPath;
+
+    /**
+     * 短视频分段识别时解码到内存的音频，与 audioPath 二选一；任务结束时归还缓冲池，不写入任务日志
+     */
+    private transient PcmBuffer pcm;
+
+    /**
+     * 共享推理调度，由调度器在识别前设置；为 null 或不接收该引擎时分段窗口在共享识别线程池上识别，不写入任务日志
+     */
+    private transient InferenceDispatcher dispatcher;
+
+    /**
+     * 字幕文件路径，识别过程中逐条写入，处理未完成时可下载已生成的部分
+     */
+    private String subtitlePath;
+
+    /**
+     * 识别完成后保存的 JSON 转写稿路径，各种字幕格式由它生成
+     */
+    private String transcriptPath;
+
+    /**
+     * 分段识别时已完成的分段（分段序号 -> 已加偏移的片段），恢复中断的任务时跳过这些分段
+     */
+    private Map<Integer, List<Segment>> completedChunks = Collections.emptyMap();
+
+    /**
+     * 每完成一个分段回调一次，用于写入检查点
+     */
+    private BiConsumer<Integer, List<Segment>> chunkListener;
+}
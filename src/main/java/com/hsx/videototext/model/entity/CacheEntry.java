@@ -0,0 +1,22 @@
+package com.hsx.videototext.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 去重缓存中的一个文件（字幕结果或提取出的 WAV）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry {
+
+    private String key;
+
+    private String path;
+
+    private long sizeBytes;
+
+    private long lastAccess;
+}
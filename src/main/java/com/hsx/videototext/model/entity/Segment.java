@@ -0,0 +1,37 @@
+package com.hsx.videototext.model.entity;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 带时间轴的识别片段（一条字幕），时间单位毫秒
+ * 各种字幕格式都由片段列表生成，词级时间轴和置信度只有部分引擎提供
+ */
+@Data
+@NoArgsConstructor
+public class Segment {
+
+    private long startMs;
+
+    private long endMs;
+
+    private String text;
+
+    /**
+     * 置信度，未知时为 -1
+     */
+    private double confidence = -1;
+
+    /**
+     * 词级时间轴，引擎不提供时为 null
+     */
+    private List<Word> words;
+
+    public Segment(long startMs, long endMs, String text) {
+        this.startMs = startMs;
+        this.endMs = endMs;
+        this.text = text;
+    }
+}
@@ -0,0 +1,23 @@
+package com.hsx.videototext.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.io.File;
+
+/**
+ * 已落盘的上传视频及其内容哈希
+ */
+@Data
+@AllArgsConstructor
+public class UploadedVideo {
+
+    private File file;
+
+    /**
+     * 文件内容的 MD5（十六进制小写），落盘后顺序读取计算
+     */
+    private String md5;
+
+    private long size;
+}
@@ -0,0 +1,25 @@
+package com.hsx.videototext.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 片段中单个词的时间轴，时间单位毫秒
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Word {
+
+    private long startMs;
+
+    private long endMs;
+
+    private String text;
+
+    /**
+     * 引擎给出的置信度，未知时为 -1
+     */
+    private double confidence = -1;
+}
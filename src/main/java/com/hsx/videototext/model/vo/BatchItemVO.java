@@ -0,0 +1,33 @@
+package com.hsx.videototext.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量任务中单个视频的状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemVO {
+
+    /**
+     * 上传的文件名或清单中的路径
+     */
+    private String name;
+
+    /**
+     * 该视频的任务 ID，提交到调度器后可用 /video/tasks/{taskId} 查询
+     */
+    private String taskId;
+
+    /**
+     * pending（尚未提交到调度器）/ waiting_extract / extracting / waiting_transcribe / transcribing / done / failed
+     */
+    private String state;
+
+    private String resultUrl;
+
+    private String error;
+}
@@ -0,0 +1,41 @@
+package com.hsx.videototext.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量任务状态：汇总计数和每个视频的状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStatusVO {
+
+    private String batchId;
+
+    /**
+     * running / done
+     */
+    private String state;
+
+    private int total;
+
+    /**
+     * 尚未提交到调度器的视频数
+     */
+    private int pending;
+
+    /**
+     * 已提交、正在排队或处理的视频数
+     */
+    private int running;
+
+    private int succeeded;
+
+    private int failed;
+
+    private List<BatchItemVO> items;
+}
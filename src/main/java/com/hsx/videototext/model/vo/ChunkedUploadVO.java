@@ -0,0 +1,29 @@
+package com.hsx.videototext.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分片上传会话状态，客户端据 missingChunks 续传
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkedUploadVO {
+
+    private String uploadId;
+
+    private int chunkSize;
+
+    private int chunkCount;
+
+    private long receivedBytes;
+
+    /**
+     * 尚未收到的分片序号（从 0 开始）
+     */
+    private List<Integer> missingChunks;
+}
@@ -0,0 +1,25 @@
+package com.hsx.videototext.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 识别引擎状态
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngineInfoVO {
+
+    private String name;
+
+    private boolean available;
+
+    private boolean streaming;
+
+    /**
+     * 实时率，-1 表示尚无统计
+     */
+    private double realTimeFactor;
+}
@@ -0,0 +1,50 @@
+package com.hsx.videototext.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 任务状态查询返回数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusVO {
+
+    private String taskId;
+
+    /**
+     * waiting_extract / extracting / waiting_transcribe / transcribing / done / failed
+     */
+    private String state;
+
+    /**
+     * 在当前所在队列中的位置（从 1 开始），不在排队时为 0
+     */
+    private int queuePosition;
+
+    /**
+     * 预计开始当前阶段的时间（毫秒时间戳），不在排队时为 0
+     */
+    private long estimatedStartTime;
+
+    /**
+     * 进入各状态的时间（毫秒时间戳），键为状态名
+     */
+    private Map<String, Long> stateTimes;
+
+    /**
+     * 各状态已持续的毫秒数，当前状态计到查询时刻；任务结束后不再变化
+     */
+    private Map<String, Long> durations;
+
+    /**
+     * 结果下载地址（/video/tasks/{taskId}/subtitle），完成后才有
+     */
+    private String resultUrl;
+
+    private String error;
+}
@@ -0,0 +1,23 @@
+package com.hsx.videototext.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 上传接口返回数据
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadResultVO {
+
+    private String taskId;
+
+    /**
+     * 是否命中去重缓存，命中时 resultPath 即为已生成的字幕/文本文件
+     */
+    private boolean cached;
+
+    private String resultPath;
+}
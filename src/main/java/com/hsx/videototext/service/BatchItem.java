@@ -0,0 +1,89 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.entity.UploadedVideo;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * 批量任务中的一个视频，taskId 在创建批量任务时即分配，提交到调度器后可按任务 ID 查询和下载
+ */
+@Getter
+public class BatchItem {
+
+    public static final String PENDING = "pending";
+    public static final String DONE = "done";
+    public static final String FAILED = "failed";
+
+    /**
+     * 上传的文件名或清单中的路径
+     */
+    private final String name;
+    private final String taskId;
+
+    /**
+     * 清单中的服务器本地文件，提交时才链接到任务的工作目录；上传的文件为 null
+     */
+    private final File source;
+
+    /**
+     * 已保存到工作目录并计算了哈希的视频，清单条目在提交前为 null
+     */
+    private UploadedVideo upload;
+
+    private TranscriptionJob job;
+    private String state = PENDING;
+    private String result;
+    private String error;
+
+    public BatchItem(String name, String taskId, File source) {
+        this.name = name;
+        this.taskId = taskId;
+        this.source = source;
+    }
+
+    synchronized void prepared(UploadedVideo upload) {
+        this.upload = upload;
+    }
+
+    synchronized void submitted(TranscriptionJob job) {
+        this.job = job;
+    }
+
+    synchronized void succeed(String result) {
+        this.state = DONE;
+        this.result = result;
+    }
+
+    synchronized void fail(String error) {
+        this.state = FAILED;
+        this.error = error;
+    }
+
+    public synchronized boolean isFinished() {
+        return !PENDING.equals(state);
+    }
+
+    /**
+     * 提交前为 pending，提交后为调度器中的任务状态（waiting_extract / extracting / ... / done / failed）
+     */
+    public synchronized String getState() {
+        return job != null && !isFinished() ? job.getState().name().toLowerCase() : state;
+    }
+
+    public synchronized UploadedVideo getUpload() {
+        return upload;
+    }
+
+    public synchronized TranscriptionJob getJob() {
+        return job;
+    }
+
+    public synchronized String getResult() {
+        return result;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,318 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import com.hsx.videototext.websocket.ProgressEmitter;
+import com.hsx.videototext.websocket.ProgressStage;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 批量识别（/video/batch）：一次请求提交多个上传文件或服务器本地路径清单，返回一个批量任务 ID
+ * 条目不会一次全部进入调度队列，而是由 BatchFeeder 线程保持每个批量任务最多 max-in-flight 个条目在调度器中，
+ * 一个结束再补一个，让提取和识别线程、已加载的模型连续处理同一批视频，也不会占满排队上限挤掉其他用户；
+ * 调度器拒绝时条目留在批量任务中稍后重试。整个批量任务的进度推送到以批量任务 ID 订阅的 WebSocket
+ */
+@Component
+public class BatchService {
+
+    /**
+     * 已结束的批量任务最多保留多少个供状态查询
+     */
+    private static final int FINISHED_RETENTION = 100;
+
+    /**
+     * 调度器拒绝后的重试间隔
+     */
+    private static final long RETRY_MILLIS = 2000;
+
+    @Value("${video.batch.max-items:500}")
+    private int maxItems;
+
+    @Value("${video.batch.max-in-flight:4}")
+    private int maxInFlight;
+
+    /**
+     * 清单中的路径必须在该目录下，为空时不接受清单
+     */
+    @Value("${video.batch.manifest-root:}")
+    private String manifestRoot;
+
+    @Autowired
+    private JobScheduler jobScheduler;
+
+    @Autowired
+    private SubtitleCache subtitleCache;
+
+    @Autowired
+    private WorkspaceManager workspaces;
+
+    private final Map<String, TranscriptionBatch> batches = new ConcurrentHashMap<>();
+    private final List<TranscriptionBatch> active = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<String> finished = new ArrayDeque<>();
+
+    private final Object signal = new Object();
+    private boolean signalled;
+    private Thread feeder;
+
+    @PostConstruct
+    public void start() {
+        feeder = new Thread(this::feedLoop, "BatchFeeder");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        feeder.interrupt();
+    }
+
+    /**
+     * 保存上传的文件（每个条目一个工作目录）并创建批量任务；单个文件保存失败只影响该条目
+     */
+    public TranscriptionBatch submitUploads(List<MultipartFile> files, String userId, TranscriptionEngine engine,
+                                            TranscribeOptions options) {
+        checkSize(files.size());
+        long totalSize = 0;
+        for (MultipartFile file : files) {
+            totalSize += file.getSize();
+        }
+        jobScheduler.checkAdmission(userId, totalSize);
+
+        List<BatchItem> items = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            BatchItem item = new BatchItem(file.getOriginalFilename(), UUID.randomUUID().toString(), null);
+            items.add(item);
+            String contentType = file.getContentType();
+            if (file.isEmpty() || contentType == null || !contentType.startsWith("video/")) {
+                item.fail("不是有效的视频文件");
+                continue;
+            }
+            try {
+                item.prepared(VideoToWavUtil.saveUpload(file, workspaces.create(item.getTaskId()), "uploaded_video"));
+            } catch (IOException | RuntimeException e) {
+                workspaces.release(item.getTaskId());
+                item.fail("保存失败：" + e.getMessage());
+            }
+        }
+        return register(userId, engine, options, items);
+    }
+
+    /**
+     * 按服务器本地路径清单创建批量任务；文件在提交到调度器时才链接（跨磁盘时复制）到工作目录
+     */
+    public TranscriptionBatch submitManifest(List<String> paths, String userId, TranscriptionEngine engine,
+                                             TranscribeOptions options) throws IOException {
+        if (manifestRoot == null || manifestRoot.isEmpty()) {
+            throw new IllegalArgumentException("未配置 video.batch.manifest-root，不接受服务器文件清单");
+        }
+        checkSize(paths.size());
+        jobScheduler.checkAdmission(userId);
+
+        File root = new File(manifestRoot).getCanonicalFile();
+        List<BatchItem> items = new ArrayList<>(paths.size());
+        for (String path : paths) {
+            File file = new File(path).getCanonicalFile();
+            BatchItem item = new BatchItem(path, UUID.randomUUID().toString(), file);
+            items.add(item);
+            if (!file.toPath().startsWith(root.toPath())) {
+                item.fail("路径不在 video.batch.manifest-root 下");
+            } else if (!file.isFile()) {
+                item.fail("文件不存在");
+            }
+        }
+        return register(userId, engine, options, items);
+    }
+
+    public TranscriptionBatch getBatch(String batchId) {
+        return batches.get(batchId);
+    }
+
+    private void checkSize(int count) {
+        if (count == 0) {
+            throw new IllegalArgumentException("请至少提交一个视频");
+        }
+        if (count > maxItems) {
+            throw new IllegalArgumentException("一次最多提交 " + maxItems + " 个视频");
+        }
+    }
+
+    private TranscriptionBatch register(String userId, TranscriptionEngine engine, TranscribeOptions options,
+                                        List<BatchItem> items) {
+        TranscriptionBatch batch = new TranscriptionBatch(UUID.randomUUID().toString(), userId, engine,
+                options.getModel(), options.getChunkSeconds(), options.getParallelism(), items);
+        batches.put(batch.getBatchId(), batch);
+        for (BatchItem item : items) {
+            if (item.isFinished()) {
+                batch.finished(item, false);
+            }
+        }
+        System.out.println("批量任务 " + batch.getBatchId() + " 已创建，共 " + items.size() + " 个视频，"
+                + batch.getFailed() + " 个无效");
+        if (batch.isFinished()) {
+            complete(batch);
+        } else {
+            ProgressWebSocketHandler.openTask(batch.getBatchId()).stage(ProgressStage.QUEUED,
+                    "批量任务已创建，共 " + items.size() + " 个视频");
+            active.add(batch);
+            signal();
+        }
+        return batch;
+    }
+
+    private void signal() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * 有条目结束或新批量任务时立即补充，否则每 RETRY_MILLIS 重试一次被拒绝的条目
+     */
+    private void feedLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            for (TranscriptionBatch batch : active) {
+                feed(batch);
+            }
+            synchronized (signal) {
+                try {
+                    if (!signalled) {
+                        signal.wait(RETRY_MILLIS);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                signalled = false;
+            }
+        }
+    }
+
+    private void feed(TranscriptionBatch batch) {
+        while (batch.getInFlight() < Math.max(1, maxInFlight)) {
+            BatchItem item = batch.peekPending();
+            if (item == null) {
+                return;
+            }
+            try {
+                if (!submit(batch, item)) {
+                    return;
+                }
+            } catch (Exception e) {
+                System.err.println("批量任务 " + batch.getBatchId() + " 的条目 " + item.getName() + " 提交失败: " + e.getMessage());
+                workspaces.release(item.getTaskId());
+                item.fail(e.getMessage());
+                batch.advance(false);
+                itemFinished(batch, item, false);
+            }
+        }
+    }
+
+    /**
+     * 命中去重缓存时直接完成，否则提交到调度器；调度器拒绝时返回 false，条目保持待提交
+     */
+    private boolean submit(TranscriptionBatch batch, BatchItem item) throws IOException {
+        UploadedVideo upload = item.getUpload();
+        if (upload == null) {
+            upload = link(item);
+            item.prepared(upload);
+        }
+        TranscriptionEngine engine = batch.getEngine();
+        TranscribeOptions options = new TranscribeOptions()
+                .setModel(batch.getModel())
+                .setChunkSeconds(batch.getChunkSeconds())
+                .setParallelism(batch.getParallelism());
+        TranscriptionJob job = new TranscriptionJob(item.getTaskId(), batch.getUserId(), upload, engine, options, "vtt");
+
+        String cachedVtt = subtitleCache.getResult(upload.getMd5(), engine, batch.getModel(), "vtt");
+        if (cachedVtt != null) {
+            jobScheduler.recordCached(job, cachedVtt);
+            ProgressWebSocketHandler.finishTask(item.getTaskId(), ProgressStage.DONE, "视频处理完成！生成的字幕文件：" + cachedVtt);
+            item.succeed(cachedVtt);
+            batch.advance(false);
+            itemFinished(batch, item, false);
+            return true;
+        }
+        options.setAudioPath(subtitleCache.getAudio(upload.getMd5()));
+        try {
+            jobScheduler.submit(job);
+        } catch (JobRejectedException e) {
+            return false;
+        }
+        item.submitted(job);
+        batch.advance(true);
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter(batch.getBatchId());
+        if (emitter.getStage() == ProgressStage.QUEUED) {
+            emitter.stage(ProgressStage.TRANSCRIBE, "批量任务开始处理");
+        }
+        job.whenFinished(() -> {
+            if (job.getState() == JobState.DONE) {
+                item.succeed(job.getResult());
+            } else {
+                item.fail(job.getError());
+            }
+            itemFinished(batch, item, true);
+        });
+        return true;
+    }
+
+    /**
+     * 把清单中的文件放入条目的工作目录：同一磁盘上建硬链接，否则复制；调度器删除的只是这份链接或副本
+     */
+    private UploadedVideo link(BatchItem item) throws IOException {
+        File target = new File(workspaces.create(item.getTaskId()), "batch_item.mp4");
+        try {
+            Files.createLink(target.toPath(), item.getSource().toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(item.getSource().toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new UploadedVideo(target, VideoToWavUtil.md5Hex(target), target.length());
+    }
+
+    private void itemFinished(TranscriptionBatch batch, BatchItem item, boolean submitted) {
+        boolean done = batch.finished(item, submitted);
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter(batch.getBatchId());
+        emitter.message(BatchItem.DONE.equals(item.getState())
+                ? item.getName() + " 处理完成" : item.getName() + " 处理失败：" + item.getError());
+        if (done) {
+            complete(batch);
+        } else {
+            emitter.progress(batch.getSucceeded() + batch.getFailed(), batch.getItems().size());
+            signal();
+        }
+    }
+
+    private void complete(TranscriptionBatch batch) {
+        active.remove(batch);
+        ProgressWebSocketHandler.finishTask(batch.getBatchId(),
+                batch.getSucceeded() > 0 ? ProgressStage.DONE : ProgressStage.FAILED,
+                "批量任务完成：成功 " + batch.getSucceeded() + " 个，失败 " + batch.getFailed() + " 个");
+        System.out.println("批量任务 " + batch.getBatchId() + " 完成：成功 " + batch.getSucceeded() + " 个，失败 "
+                + batch.getFailed() + " 个，耗时 " + (System.currentTimeMillis() - batch.getCreatedAt()) / 1000 + " 秒");
+        synchronized (finished) {
+            finished.offer(batch.getBatchId());
+            while (finished.size() > FINISHED_RETENTION) {
+                batches.remove(finished.poll());
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * 一次分片上传会话：目标文件按总大小预分配，各分片用定位写入，可乱序、并行到达
+ * received 位图记录已写入的分片，断线后客户端按缺失列表续传；从头开始连续到达的分片随即计入 MD5，
+ * complete 时不必再把整个文件读一遍。边传边解码的读取方超过 idleTimeoutMillis 没有等到新分片时读取失败，不会一直占着线程
+ */
+@Getter
+public class ChunkedUpload {
+
+    private final String uploadId;
+    private final File file;
+    private final long totalSize;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final TranscriptionEngine engine;
+    private final TranscribeOptions options;
+
+    private final FileChannel channel;
+    private final BitSet received;
+
+    /**
+     * 曾经开始写入过的分片；重新上传失败时 received 会被清除，这里不会，首个分片的后续处理只触发一次
+     */
+    @Getter(AccessLevel.NONE)
+    private final BitSet started;
+    private final long idleTimeoutMillis;
+
+    /**
+     * 最近一次收到分片（或创建会话）的时间，用于空闲超时和会话过期
+     */
+    private volatile long lastChunkAt = System.currentTimeMillis();
+
+    /**
+     * 按顺序增量计算的 MD5，hashedChunks 之前的分片已计入；已计入的分片被重新上传时作废，complete 时改为整个文件重新计算
+     */
+    @Getter(AccessLevel.NONE)
+    private final MessageDigest digest;
+    @Getter(AccessLevel.NONE)
+    private int hashedChunks;
+    @Getter(AccessLevel.NONE)
+    private boolean digestValid = true;
+    @Getter(AccessLevel.NONE)
+    private String md5;
+
+    /**
+     * 边上传边提取音频的后台任务，首个分片到达后启动
+     */
+    private Future<?> demux;
+
+    /**
+     * 创建会话时占用的排队名额，complete 后提交任务时使用，会话放弃或过期时归还
+     */
+    private volatile JobScheduler.Reservation reservation;
+    private boolean completed;
+    private boolean aborted;
+
+    public ChunkedUpload(String uploadId, File file, long totalSize, int chunkSize, long idleTimeoutMillis,
+                         TranscriptionEngine engine, TranscribeOptions options) throws IOException {
+        long count = (totalSize + chunkSize - 1) / chunkSize;
+        if (chunkSize <= 0 || count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("分片大小无效: " + chunkSize);
+        }
+        this.uploadId = uploadId;
+        this.file = file;
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) count;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.engine = engine;
+        this.options = options;
+        this.received = new BitSet(chunkCount);
+        this.started = new BitSet(chunkCount);
+        try {
+            this.digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(totalSize);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public long chunkLength(int index) {
+        return Math.min(chunkSize, totalSize - (long) index * chunkSize);
+    }
+
+    /**
+     * 把请求体直接传输到分片所在位置，重复上传的分片覆盖写入；返回该分片是否首次上传
+     * 覆盖写入前先把该分片标记为未到达并作废已计入它的 MD5，重新上传中途失败时该分片按缺失处理，不会带着损坏的内容完成
+     */
+    public boolean writeChunk(int index, InputStream body) throws IOException {
+        if (index < 0 || index >= chunkCount) {
+            throw new IllegalArgumentException("分片序号超出范围: " + index);
+        }
+        boolean first;
+        boolean rewrite;
+        synchronized (this) {
+            if (completed || aborted) {
+                throw new IllegalStateException("上传会话已结束: " + uploadId);
+            }
+            first = !started.get(index);
+            started.set(index);
+            rewrite = received.get(index);
+            received.clear(index);
+        }
+        // 摘要锁内会取本对象的锁，不能在上面的锁内作废
+        if (rewrite) {
+            invalidateDigest(index);
+        }
+        long position = (long) index * chunkSize;
+        long length = chunkLength(index);
+        long written = channel.transferFrom(Channels.newChannel(body), position, length);
+        if (written != length) {
+            throw new IOException("分片 " + index + " 数据不完整: " + written + "/" + length + " 字节");
+        }
+        synchronized (this) {
+            received.set(index);
+            lastChunkAt = System.currentTimeMillis();
+            notifyAll();
+        }
+        updateDigest(index);
+        return first;
+    }
+
+    /**
+     * 已计入 MD5 的分片要被覆盖，增量结果作废；正在计入的分片读完后才会拿到锁
+     */
+    private void invalidateDigest(int index) {
+        synchronized (digest) {
+            if (index < hashedChunks) {
+                digestValid = false;
+            }
+        }
+    }
+
+    /**
+     * 把从 hashedChunks 开始连续已到达的分片计入 MD5（刚写入，读取命中页缓存）；分片可能在多个线程上到达，摘要单独加锁
+     */
+    private void updateDigest(int index) throws IOException {
+        synchronized (digest) {
+            if (index < hashedChunks) {
+                digestValid = false;
+            }
+            if (!digestValid) {
+                return;
+            }
+            ByteBuffer buffer = null;
+            while (hashedChunks < chunkCount && isReceived(hashedChunks)) {
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate((int) Math.min(chunkSize, 1024 * 1024));
+                }
+                long position = (long) hashedChunks * chunkSize;
+                long end = position + chunkLength(hashedChunks);
+                while (position < end) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new IOException("分片 " + hashedChunks + " 读取不完整");
+                    }
+                    buffer.flip();
+                    digest.update(buffer);
+                    position += read;
+                }
+                hashedChunks++;
+            }
+        }
+    }
+
+    /**
+     * 全部分片按顺序计入后的 MD5；有分片在计入后被重新上传时返回 null
+     */
+    public String md5Hex() throws IOException {
+        updateDigest(chunkCount);
+        synchronized (digest) {
+            if (!digestValid || hashedChunks < chunkCount) {
+                return null;
+            }
+            if (md5 == null) {
+                StringBuilder sb = new StringBuilder(32);
+                for (byte b : digest.digest()) {
+                    sb.append(String.format("%02x", b));
+                }
+                md5 = sb.toString();
+            }
+            return md5;
+        }
+    }
+
+    private synchronized boolean isReceived(int index) {
+        return received.get(index);
+    }
+
+    public synchronized boolean isComplete() {
+        return received.cardinality() == chunkCount;
+    }
+
+    public synchronized List<Integer> missingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        return missing;
+    }
+
+    public synchronized long receivedBytes() {
+        long bytes = (long) received.cardinality() * chunkSize;
+        if (received.get(chunkCount - 1)) {
+            bytes -= chunkSize - chunkLength(chunkCount - 1);
+        }
+        return bytes;
+    }
+
+    public synchronized void setDemux(Future<?> demux) {
+        this.demux = demux;
+    }
+
+    public void setReservation(JobScheduler.Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    /**
+     * 全部分片到齐后调用，之后不再接受分片；文件在边传边解码结束后由 close 关闭
+     * 返回是否由这次调用完成（已完成过时返回 false）；还有分片未到达（包括正在重新上传的分片）时抛出 IllegalStateException
+     */
+    public synchronized boolean markCompleted() {
+        if (completed) {
+            return false;
+        }
+        if (received.cardinality() != chunkCount) {
+            throw new IllegalStateException("还有 " + missingChunks().size() + " 个分片未上传");
+        }
+        completed = true;
+        return true;
+    }
+
+    public synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * 放弃上传：唤醒等待分片的解码线程并关闭文件
+     */
+    public synchronized void abort() {
+        aborted = true;
+        notifyAll();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 阻塞直到 position 所在分片写入完成；超过 idleTimeoutMillis 没有任何新分片到达时失败
+     */
+    private synchronized void awaitChunk(int index) throws IOException {
+        while (!received.get(index)) {
+            if (aborted) {
+                throw new IOException("上传已取消: " + uploadId);
+            }
+            long idle = System.currentTimeMillis() - lastChunkAt;
+            if (idle >= idleTimeoutMillis) {
+                throw new IOException("等待分片 " + index + " 超时，已 " + idle / 1000 + " 秒没有收到分片: " + uploadId);
+            }
+            try {
+                wait(idleTimeoutMillis - idle);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待分片时被中断", e);
+            }
+        }
+    }
+
+    /**
+     * 读取尚在上传中的文件：读到未到达的分片时阻塞等待
+     * 支持任意位置的 mark/reset，FFmpeg 可在容器内随意定位，无需缓冲已读数据
+     */
+    public InputStream openStream() {
+        return new InputStream() {
+            private long position;
+            private long mark;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (position >= totalSize) {
+                    return -1;
+                }
+                int index = (int) (position / chunkSize);
+                awaitChunk(index);
+                long chunkEnd = (long) index * chunkSize + chunkLength(index);
+                int n = (int) Math.min(len, chunkEnd - position);
+                int read = channel.read(ByteBuffer.wrap(b, off, n), position);
+                if (read > 0) {
+                    position += read;
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) {
+                long skipped = Math.max(0, Math.min(n, totalSize - position));
+                position += skipped;
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return true;
+            }
+
+            @Override
+            public synchronized void mark(int readLimit) {
+                mark = position;
+            }
+
+            @Override
+            public synchronized void reset() {
+                position = mark;
+            }
+        };
+    }
+}
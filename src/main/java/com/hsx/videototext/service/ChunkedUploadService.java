@@ -0,0 +1,255 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.audio.PcmDecoder;
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import com.hsx.videototext.websocket.ProgressStage;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片上传：init 预分配文件，PUT 分片定位写入，complete 校验分片到齐（哈希在分片到达时已增量计算）
+ * 第一个分片到达后即开始从正在上传的文件中提取音频，读到未到达的分片时阻塞等待，超过 idle-timeout-seconds 没有新分片时放弃提取；
+ * 超过 session-ttl-minutes 没有收到分片的未完成会话由后台线程删除，释放工作目录、文件句柄和占用的排队名额
+ */
+@Component
+public class ChunkedUploadService {
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    private static final ExecutorService DEMUX_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "ChunkedDemux-" + THREAD_INDEX.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${video.upload.chunk-size-mb:8}")
+    private int defaultChunkSizeMb;
+
+    @Value("${video.upload.max-size-mb:10240}")
+    private long maxSizeMb;
+
+    /**
+     * 客户端指定的分片大小的下限和上限，过小的分片会产生巨大的分片位图
+     */
+    @Value("${video.upload.min-chunk-size-kb:256}")
+    private int minChunkSizeKb;
+
+    @Value("${video.upload.max-chunk-size-mb:64}")
+    private int maxChunkSizeMb;
+
+    @Value("${video.upload.idle-timeout-seconds:300}")
+    private long idleTimeoutSeconds;
+
+    @Value("${video.upload.session-ttl-minutes:30}")
+    private long sessionTtlMinutes;
+
+    @Autowired
+    private WorkspaceManager workspaces;
+
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+    private ScheduledExecutorService expirer;
+
+    @PostConstruct
+    public void start() {
+        expirer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ChunkedUploadExpirer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expirer.scheduleWithFixedDelay(this::expire, 1, 1, TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (expirer != null) {
+            expirer.shutdownNow();
+        }
+    }
+
+    /**
+     * 创建上传会话，chunkSize 未指定时使用配置值
+     */
+    public ChunkedUpload init(long totalSize, Integer chunkSize, TranscriptionEngine engine,
+                              TranscribeOptions options) throws IOException {
+        return init(UUID.randomUUID().toString(), totalSize, chunkSize, engine, options);
+    }
+
+    /**
+     * 同上，使用调用方已分配的会话 ID（如 URL 拉取时已返回给客户端的任务 ID）
+     */
+    public ChunkedUpload init(String uploadId, long totalSize, Integer chunkSize, TranscriptionEngine engine,
+                              TranscribeOptions options) throws IOException {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("文件大小无效: " + totalSize);
+        }
+        if (totalSize > maxSizeMb * 1024 * 1024) {
+            throw new IllegalArgumentException("视频文件大小不能超过" + maxSizeMb + "MB");
+        }
+        int size = chunkSize != null ? chunkSize : defaultChunkSizeMb * 1024 * 1024;
+        if (size < minChunkSizeKb * 1024 || size > maxChunkSizeMb * 1024 * 1024) {
+            throw new IllegalArgumentException("分片大小须在 " + minChunkSizeKb + "KB 到 " + maxChunkSizeMb + "MB 之间: " + size);
+        }
+        // 上传 ID 即任务 ID，文件直接写在任务的工作目录中
+        File dir = workspaces.createSession(uploadId);
+        ChunkedUpload upload = new ChunkedUpload(uploadId, new File(dir, "chunked_upload.mp4"),
+                totalSize, size, TimeUnit.SECONDS.toMillis(idleTimeoutSeconds), engine, options);
+        uploads.put(uploadId, upload);
+        return upload;
+    }
+
+    public ChunkedUpload get(String uploadId) {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new IllegalArgumentException("上传会话不存在或已结束: " + uploadId);
+        }
+        return upload;
+    }
+
+    /**
+     * 写入一个分片；首个分片（容器头所在）到达时启动音频提取
+     */
+    public ChunkedUpload writeChunk(String uploadId, int index, InputStream body) throws IOException {
+        ChunkedUpload upload = get(uploadId);
+        workspaces.touch(uploadId);
+        if (upload.writeChunk(index, body) && index == 0) {
+            startDemux(upload);
+        }
+        return upload;
+    }
+
+    private void startDemux(ChunkedUpload upload) {
+        File wav = new File(upload.getFile().getParentFile(), "chunked_upload.wav");
+        PcmPipe pipe = new PcmPipe();
+        // 上传 ID 即任务 ID，提取进度推送给该任务的订阅者
+        ProgressWebSocketHandler.bindTask(upload.getUploadId());
+        try {
+            ProgressWebSocketHandler.openTask(upload.getUploadId()).stage(ProgressStage.EXTRACT, "边上传边提取音频...");
+            PcmDecoder.start(upload.openStream(), pipe);
+        } finally {
+            ProgressWebSocketHandler.unbindTask();
+        }
+        upload.setDemux(DEMUX_EXECUTOR.submit(() -> {
+            try {
+                WavFiles.write(pipe, wav);
+                return wav.getAbsolutePath();
+            } catch (Exception e) {
+                wav.delete();
+                throw e;
+            }
+        }));
+    }
+
+    /**
+     * 校验分片到齐，之后会话不再接受分片；内容哈希取分片到达时增量计算的结果，
+     * 只有分片在计入哈希后又被重新上传时才整个文件重新计算
+     * 只有第一次调用会成功，重复提交（重试、双击）抛出 IllegalStateException，不会再提交一次任务
+     */
+    public UploadedVideo complete(String uploadId) throws IOException {
+        ChunkedUpload upload = get(uploadId);
+        if (!upload.markCompleted()) {
+            throw new IllegalStateException("上传已完成，任务已提交: " + uploadId);
+        }
+        File file = upload.getFile();
+        String md5 = upload.md5Hex();
+        return new UploadedVideo(file, md5 != null ? md5 : VideoToWavUtil.md5Hex(file), file.length());
+    }
+
+    /**
+     * 等待边传边提取的音频完成并结束会话，返回 WAV 路径；提取失败时返回 null，由处理流程重新提取
+     */
+    public String awaitAudio(String uploadId) {
+        ChunkedUpload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            return null;
+        }
+        try {
+            Future<?> demux = upload.getDemux();
+            return demux == null ? null : (String) demux.get();
+        } catch (ExecutionException e) {
+            System.err.println("边传边提取音频失败，将在上传完成后重新提取: " + e.getCause().getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            try {
+                upload.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 删除超过 session-ttl-minutes 没有收到分片的未完成会话
+     */
+    void expire() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(sessionTtlMinutes);
+        for (ChunkedUpload upload : uploads.values()) {
+            if (!upload.isCompleted() && upload.getLastChunkAt() < cutoff) {
+                System.out.println("分片上传会话 " + upload.getUploadId() + " 超过 " + sessionTtlMinutes
+                        + " 分钟没有收到分片，已删除");
+                discard(upload.getUploadId(), true);
+            }
+        }
+    }
+
+    /**
+     * 放弃上传或不再需要结果（如命中去重缓存）：停止音频提取并删除提取出的 WAV，deleteVideo 时删除整个工作目录
+     */
+    public void discard(String uploadId, boolean deleteVideo) {
+        discard(uploadId, deleteVideo, "上传已取消");
+    }
+
+    /**
+     * 同上，deleteVideo 时以 reason 结束任务进度
+     */
+    public void discard(String uploadId, boolean deleteVideo, String reason) {
+        ChunkedUpload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            return;
+        }
+        upload.abort();
+        if (upload.getReservation() != null) {
+            upload.getReservation().release();
+        }
+        Future<?> demux = upload.getDemux();
+        if (demux != null) {
+            try {
+                Object wav = demux.get();
+                if (wav != null) {
+                    new File((String) wav).delete();
+                }
+            } catch (Exception e) {
+                // 提取线程因会话取消而失败，临时 WAV 已在失败时删除
+            }
+        }
+        if (deleteVideo) {
+            workspaces.release(uploadId);
+            ProgressWebSocketHandler.finishTask(uploadId, ProgressStage.FAILED, reason);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.hsx.videototext.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 带优先通道和按用户轮转的阻塞队列
+ * 短视频通道优先，每连续取出 shortLaneWeight 个短视频后让长视频通道取一个，避免长视频饿死；
+ * 同一通道内按用户轮流取，每个用户内部先进先出，一个用户提交再多任务也不会挡住其他用户
+ */
+class FairJobQueue {
+
+    private final int shortLaneWeight;
+
+    /**
+     * 用户 -> 该用户在此通道的任务；迭代顺序即轮转顺序，用户被取过一次后移到末尾
+     */
+    private final LinkedHashMap<String, ArrayDeque<TranscriptionJob>> shortLane = new LinkedHashMap<>();
+    private final LinkedHashMap<String, ArrayDeque<TranscriptionJob>> longLane = new LinkedHashMap<>();
+    private int shortTakenInRow;
+    private int size;
+
+    FairJobQueue(int shortLaneWeight) {
+        this.shortLaneWeight = Math.max(1, shortLaneWeight);
+    }
+
+    synchronized void add(TranscriptionJob job) {
+        LinkedHashMap<String, ArrayDeque<TranscriptionJob>> lane = job.isShortClip() ? shortLane : longLane;
+        lane.computeIfAbsent(job.getUserId(), user -> new ArrayDeque<>()).offer(job);
+        size++;
+        notifyAll();
+    }
+
+    synchronized TranscriptionJob take() throws InterruptedException {
+        while (size == 0) {
+            wait();
+        }
+        size--;
+        return poll(shortLane, longLane, new int[]{shortTakenInRow}, true);
+    }
+
+    /**
+     * 按与 take 相同的规则取出一个任务；live 为 false 时在副本上模拟，不修改队列状态
+     */
+    private TranscriptionJob poll(LinkedHashMap<String, ArrayDeque<TranscriptionJob>> shortQueue,
+                                  LinkedHashMap<String, ArrayDeque<TranscriptionJob>> longQueue,
+                                  int[] takenInRow, boolean live) {
+        boolean fromShort = !shortQueue.isEmpty() && (longQueue.isEmpty() || takenInRow[0] < shortLaneWeight);
+        takenInRow[0] = fromShort ? takenInRow[0] + 1 : 0;
+        if (live) {
+            shortTakenInRow = takenInRow[0];
+        }
+        LinkedHashMap<String, ArrayDeque<TranscriptionJob>> lane = fromShort ? shortQueue : longQueue;
+        Iterator<Map.Entry<String, ArrayDeque<TranscriptionJob>>> it = lane.entrySet().iterator();
+        Map.Entry<String, ArrayDeque<TranscriptionJob>> first = it.next();
+        it.remove();
+        TranscriptionJob job = first.getValue().poll();
+        if (!first.getValue().isEmpty()) {
+            lane.put(first.getKey(), first.getValue());
+        }
+        return job;
+    }
+
+    /**
+     * 返回排在 job 前面、会先被取出的任务；job 不在队列中时返回 null
+     */
+    synchronized List<TranscriptionJob> ahead(TranscriptionJob job) {
+        LinkedHashMap<String, ArrayDeque<TranscriptionJob>> shortCopy = copy(shortLane);
+        LinkedHashMap<String, ArrayDeque<TranscriptionJob>> longCopy = copy(longLane);
+        int[] takenInRow = {shortTakenInRow};
+        List<TranscriptionJob> ahead = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            TranscriptionJob next = poll(shortCopy, longCopy, takenInRow, false);
+            if (next == job) {
+                return ahead;
+            }
+            ahead.add(next);
+        }
+        return null;
+    }
+
+    private static LinkedHashMap<String, ArrayDeque<TranscriptionJob>> copy(
+            LinkedHashMap<String, ArrayDeque<TranscriptionJob>> lane) {
+        LinkedHashMap<String, ArrayDeque<TranscriptionJob>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, ArrayDeque<TranscriptionJob>> entry : lane.entrySet()) {
+            copy.put(entry.getKey(), new ArrayDeque<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    synchronized List<TranscriptionJob> snapshot() {
+        List<TranscriptionJob> jobs = new ArrayList<>(size);
+        for (ArrayDeque<TranscriptionJob> queue : shortLane.values()) {
+            jobs.addAll(queue);
+        }
+        for (ArrayDeque<TranscriptionJob> queue : longLane.values()) {
+            jobs.addAll(queue);
+        }
+        return jobs;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
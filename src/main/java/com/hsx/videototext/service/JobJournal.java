@@ -0,0 +1,290 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.entity.Segment;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 任务日志：只追加的 JSON Lines 文件，记录任务的检查点，服务重启后据此恢复未完成的任务
+ * 记录类型：submit（上传完成，含恢复任务所需的全部参数）、audio（WAV 已提取）、chunk（某个分段的识别结果）、
+ * done / failed（任务结束）。启动时读取日志，只把未结束任务的记录重写到新文件（压缩），再继续追加；
+ * 运行中每结束 compact-after 个任务也压缩一次，日志大小只与未结束的任务有关
+ */
+@Component
+public class JobJournal {
+
+    private static final String JOURNAL_FILE = "jobs.log";
+
+    @Value("${video.journal.dir:${video.workspace.root:${java.io.tmpdir}/videoToText}/journal}")
+    private String journalDir;
+
+    /**
+     * 每条记录写入后是否 fsync，关闭后吞吐更高，但宕机时可能丢失最后几条检查点
+     */
+    @Value("${video.journal.fsync:true}")
+    private boolean fsync;
+
+    /**
+     * 上次压缩后写入多少条结束记录时再次压缩，0 表示只在启动时压缩
+     */
+    @Value("${video.journal.compact-after:200}")
+    private int compactAfter;
+
+    private FileChannel channel;
+    private int finishedSinceCompact;
+
+    /**
+     * 启动时读到的未结束任务，按提交顺序排列，由 JobScheduler 取走并重新排队
+     */
+    private final Map<String, PendingJob> pending = new LinkedHashMap<>();
+
+    /**
+     * 日志中一个未结束的任务
+     */
+    public static class PendingJob {
+        private final JSONObject submit;
+        private String audioPath;
+        private final Map<Integer, List<Segment>> chunks = new TreeMap<>();
+
+        PendingJob(JSONObject submit) {
+            this.submit = submit;
+        }
+
+        public JSONObject getSubmit() {
+            return submit;
+        }
+
+        public String getAudioPath() {
+            return audioPath;
+        }
+
+        public Map<Integer, List<Segment>> getChunks() {
+            return chunks;
+        }
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        File dir = new File(journalDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        Path journal = journalPath();
+        if (Files.exists(journal)) {
+            pending.putAll(replay(journal));
+            compact(journal, pending);
+        }
+        channel = openChannel(journal);
+        if (!pending.isEmpty()) {
+            System.out.println("任务日志中有 " + pending.size() + " 个未完成的任务，将在启动后恢复");
+        }
+    }
+
+    private Path journalPath() {
+        return Paths.get(journalDir, JOURNAL_FILE);
+    }
+
+    private static FileChannel openChannel(Path journal) throws IOException {
+        return FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 读取日志，返回未结束的任务及其检查点
+     */
+    private static Map<String, PendingJob> replay(Path journal) throws IOException {
+        Map<String, PendingJob> pending = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JSONObject record;
+                try {
+                    record = new JSONObject(line);
+                } catch (Exception e) {
+                    // 宕机时写了一半的最后一行
+                    System.err.println("跳过无法解析的任务日志记录: " + line);
+                    continue;
+                }
+                String taskId = record.getString("taskId");
+                String type = record.getString("type");
+                if ("submit".equals(type)) {
+                    pending.put(taskId, new PendingJob(record));
+                    continue;
+                }
+                PendingJob job = pending.get(taskId);
+                if (job == null) {
+                    continue;
+                }
+                if ("audio".equals(type)) {
+                    job.audioPath = record.getString("path");
+                } else if ("chunk".equals(type)) {
+                    job.chunks.put(record.getInt("index"), segments(record.getJSONArray("segments")));
+                } else if ("done".equals(type) || "failed".equals(type)) {
+                    pending.remove(taskId);
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 只保留未结束任务的记录，写到临时文件后原子替换
+     */
+    private void compact(Path journal, Map<String, PendingJob> pending) throws IOException {
+        Path tmp = Paths.get(journalDir, JOURNAL_FILE + ".tmp");
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, PendingJob> entry : pending.entrySet()) {
+            PendingJob job = entry.getValue();
+            content.append(job.submit).append('\n');
+            if (job.audioPath != null) {
+                content.append(audioRecord(entry.getKey(), job.audioPath)).append('\n');
+            }
+            for (Map.Entry<Integer, List<Segment>> chunk : job.chunks.entrySet()) {
+                content.append(chunkRecord(entry.getKey(), chunk.getKey(), chunk.getValue())).append('\n');
+            }
+        }
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(false);
+        }
+        Files.move(tmp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finishedSinceCompact = 0;
+    }
+
+    /**
+     * 运行中压缩：重新读取当前日志（调用方持有锁，期间没有追加），重写后换用新文件继续追加
+     */
+    private void compactRunning() {
+        Path journal = journalPath();
+        try {
+            channel.close();
+            compact(journal, replay(journal));
+        } catch (IOException e) {
+            System.err.println("压缩任务日志失败: " + e.getMessage());
+        } finally {
+            try {
+                channel = openChannel(journal);
+            } catch (IOException e) {
+                System.err.println("重新打开任务日志失败，之后的检查点不再记录: " + e.getMessage());
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * 取走启动时读到的未结束任务，只能取一次
+     */
+    public synchronized List<PendingJob> takePending() {
+        List<PendingJob> jobs = new ArrayList<>(pending.values());
+        pending.clear();
+        return jobs;
+    }
+
+    public void submitted(TranscriptionJob job) {
+        JSONObject record = record("submit", job.getTaskId())
+                .put("userId", job.getUserId())
+                .put("video", job.getUpload().getFile().getAbsolutePath())
+                .put("md5", job.getUpload().getMd5())
+                .put("size", job.getUpload().getSize())
+                .put("model", job.getOptions().getModel())
+                .put("format", job.getFormat())
+                .put("chunkSeconds", job.getOptions().getChunkSeconds())
+                .put("parallelism", job.getOptions().getParallelism());
+        if (job.getOptions().getAudioPath() != null) {
+            record.put("audio", job.getOptions().getAudioPath());
+        }
+        append(record);
+    }
+
+    public void audioExtracted(String taskId, String audioPath) {
+        append(audioRecord(taskId, audioPath));
+    }
+
+    public void chunkDone(String taskId, int index, List<Segment> segments) {
+        append(chunkRecord(taskId, index, segments));
+    }
+
+    public synchronized void finished(String taskId, boolean success, String detail) {
+        append(record(success ? "done" : "failed", taskId).put("detail", detail == null ? "" : detail));
+        if (channel != null && compactAfter > 0 && ++finishedSinceCompact >= compactAfter) {
+            compactRunning();
+        }
+    }
+
+    private static JSONObject record(String type, String taskId) {
+        return new JSONObject().put("type", type).put("taskId", taskId).put("time", System.currentTimeMillis());
+    }
+
+    private static JSONObject audioRecord(String taskId, String audioPath) {
+        return record("audio", taskId).put("path", audioPath);
+    }
+
+    /**
+     * 分段结果存为 [[startMs, endMs, text], ...]，时间已加上分段偏移
+     */
+    private static JSONObject chunkRecord(String taskId, int index, List<Segment> segments) {
+        JSONArray array = new JSONArray();
+        for (Segment segment : segments) {
+            array.put(new JSONArray().put(segment.getStartMs()).put(segment.getEndMs()).put(segment.getText()));
+        }
+        return record("chunk", taskId).put("index", index).put("segments", array);
+    }
+
+    private static List<Segment> segments(JSONArray array) {
+        List<Segment> segments = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONArray item = array.getJSONArray(i);
+            segments.add(new Segment(item.getLong(0), item.getLong(1), item.getString(2)));
+        }
+        return segments;
+    }
+
+    private synchronized void append(JSONObject record) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap((record.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("写入任务日志失败: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
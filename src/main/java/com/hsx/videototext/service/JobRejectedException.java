@@ -0,0 +1,22 @@
+package com.hsx.videototext.service;
+
+import lombok.Getter;
+
+/**
+ * 队列已满或用户排队任务过多时拒绝提交，附带预计可开始处理的时间
+ */
+@Getter
+public class JobRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 预计开始时间（毫秒时间戳）
+     */
+    private final long estimatedStartTime;
+
+    public JobRejectedException(String message, long estimatedStartTime) {
+        super(message);
+        this.estimatedStartTime = estimatedStartTime;
+    }
+}
@@ -0,0 +1,632 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.InferenceDispatcher;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.engine.TranscriptionEngineRegistry;
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import com.hsx.videototext.subtitle.SubtitleFormat;
+import com.hsx.videototext.utils.SpeechToWavUtil;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import com.hsx.videototext.websocket.ProgressStage;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 识别任务调度：音频提取和语音识别各用一组工作线程，互不占用
+ * 两个队列都是 FairJobQueue（短视频优先 + 按用户轮转）；排队任务过多时拒绝提交并给出预计开始时间，
+ * 上传类请求在接收文件前 reserve 占用名额，上传完成后提交时不再检查，不会在上传结束后才被拒绝
+ * 任务的提交、音频提取、分段识别结果和结束都写入 JobJournal，重启后未完成的任务从最近的检查点继续
+ * 每个任务的临时文件在 WorkspaceManager 分配的目录中：WAV 提取完即删除视频，任务结束时删除整个目录
+ */
+@Component
+public class JobScheduler {
+
+    /**
+     * 已结束任务最多保留多少个供状态查询
+     */
+    private static final int FINISHED_RETENTION = 1000;
+
+    @Value("${scheduler.extract-threads:2}")
+    private int extractThreads;
+
+    @Value("${scheduler.transcribe-threads:2}")
+    private int transcribeThreads;
+
+    @Value("${scheduler.max-queued:50}")
+    private int maxQueued;
+
+    @Value("${scheduler.max-queued-per-user:5}")
+    private int maxQueuedPerUser;
+
+    @Value("${scheduler.short-clip-seconds:600}")
+    private int shortClipSeconds;
+
+    @Value("${scheduler.short-lane-weight:3}")
+    private int shortLaneWeight;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private SubtitleCache subtitleCache;
+
+    @Autowired
+    private TranscriptionEngineRegistry engineRegistry;
+
+    @Autowired
+    private JobJournal journal;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WorkspaceManager workspaces;
+
+    @Autowired
+    private InferenceDispatcher dispatcher;
+
+    private FairJobQueue extractQueue;
+    private FairJobQueue transcribeQueue;
+
+    private final Map<String, TranscriptionJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * 已占用、尚未提交的排队名额，由 this 保护
+     */
+    private final List<Reservation> reservations = new ArrayList<>();
+    private final ArrayDeque<String> finished = new ArrayDeque<>();
+
+    /**
+     * 每秒媒体时长的处理耗时（秒），按已完成任务做指数滑动平均，用于估算排队等待时间
+     */
+    private volatile double extractCost = 0.05;
+    private volatile double transcribeCost = 1.0;
+
+    @PostConstruct
+    public void start() {
+        extractQueue = new FairJobQueue(shortLaneWeight);
+        transcribeQueue = new FairJobQueue(shortLaneWeight);
+        for (int i = 1; i <= extractThreads; i++) {
+            startWorker("Extract-" + i, extractQueue, this::extract);
+        }
+        for (int i = 1; i <= transcribeThreads; i++) {
+            startWorker("Transcribe-" + i, transcribeQueue, this::transcribe);
+        }
+        registerGauges();
+    }
+
+    private void registerGauges() {
+        Gauge.builder("video.scheduler.queue.size", extractQueue, FairJobQueue::size)
+                .tag("queue", "extract")
+                .description("排队等待的任务数")
+                .register(meterRegistry);
+        Gauge.builder("video.scheduler.queue.size", transcribeQueue, FairJobQueue::size)
+                .tag("queue", "transcribe")
+                .description("排队等待的任务数")
+                .register(meterRegistry);
+        for (JobState state : new JobState[]{JobState.EXTRACTING, JobState.TRANSCRIBING}) {
+            Gauge.builder("video.jobs.active", this, scheduler -> scheduler.countInState(state))
+                    .tag("state", state.name().toLowerCase())
+                    .description("正在执行的任务数")
+                    .register(meterRegistry);
+        }
+    }
+
+    private int countInState(JobState state) {
+        int count = 0;
+        for (TranscriptionJob job : jobs.values()) {
+            if (job.getState() == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private interface Stage {
+        void run(TranscriptionJob job);
+    }
+
+    private void startWorker(String name, FairJobQueue queue, Stage stage) {
+        Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                TranscriptionJob job;
+                try {
+                    job = queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ProgressWebSocketHandler.bindTask(job.getTaskId());
+                try {
+                    stage.run(job);
+                } catch (Throwable e) {
+                    // 阶段内未捕获的错误（如 OutOfMemoryError）只让这个任务失败，工作线程继续取下一个任务
+                    failUnexpectedly(job, e);
+                } finally {
+                    ProgressWebSocketHandler.unbindTask();
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 提交前检查，用于在接收上传前尽早拒绝
+     */
+    public void checkAdmission(String userId) {
+        checkAdmission(userId, 0);
+    }
+
+    /**
+     * 同上，并检查临时空间能否再容纳 incomingBytes（即将上传的视频大小，未知时为 0）
+     */
+    public synchronized void checkAdmission(String userId, long incomingBytes) {
+        if (!workspaces.hasRoom(incomingBytes)) {
+            throw new JobRejectedException("临时空间不足，请等待排队中的任务完成后重试", estimateStartTime(null));
+        }
+        int queued = extractQueue.size() + transcribeQueue.size() + reservations.size();
+        if (queued >= maxQueued) {
+            throw new JobRejectedException("排队任务已满，请稍后重试", estimateStartTime(null));
+        }
+        if (queuedByUser(userId) >= maxQueuedPerUser) {
+            throw new JobRejectedException("您排队中的任务已达上限 " + maxQueuedPerUser + " 个，请等待完成后再提交",
+                    estimateStartTime(null));
+        }
+    }
+
+    /**
+     * 通过准入检查后占用一个排队名额，并为即将上传的 incomingBytes 预留临时空间，直到用它提交任务或 release；
+     * 名额计入排队数和该用户的排队任务数
+     */
+    public synchronized Reservation reserve(String userId, long incomingBytes) {
+        checkAdmission(userId, incomingBytes);
+        Reservation reservation = new Reservation(userId);
+        if (!reservation.reserveBytes(incomingBytes)) {
+            throw new JobRejectedException("临时空间不足，请等待排队中的任务完成后重试", estimateStartTime(null));
+        }
+        reservations.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * 探测时长、分配通道并放入提取队列
+     */
+    public void submit(TranscriptionJob job) {
+        submit(job, null);
+    }
+
+    /**
+     * 同上；reservation 仍有效时直接使用该名额，不再做准入检查
+     */
+    public void submit(TranscriptionJob job, Reservation reservation) {
+        enqueue(job, true, reservation);
+        ProgressWebSocketHandler.openTask(job.getTaskId()).stage(ProgressStage.QUEUED,
+                "排队中，前面还有 " + Math.max(0, queuePosition(job) - 1) + " 个任务");
+    }
+
+    private void enqueue(TranscriptionJob job, boolean admission, Reservation reservation) {
+        File video = job.getUpload().getFile();
+        String audioPath = job.getOptions().getAudioPath();
+        long durationMs = probeDurationMs(video.isFile() || audioPath == null ? video : new File(audioPath));
+        job.setDurationMs(durationMs);
+        job.setShortClip(durationMs >= 0 && durationMs <= shortClipSeconds * 1000L);
+        String taskId = job.getTaskId();
+        job.getOptions().setChunkListener((index, segments) -> journal.chunkDone(taskId, index, segments));
+        Reservation slot = null;
+        if (admission) {
+            synchronized (this) {
+                slot = reservation != null && reservations.contains(reservation)
+                        ? reservation : reserve(job.getUserId(), 0);
+            }
+            // 日志每条记录都要 fsync，不在调度器的锁内写；写日志期间名额一直占着
+            try {
+                journal.submitted(job);
+            } catch (RuntimeException e) {
+                slot.release();
+                throw e;
+            }
+        }
+        pinAudio(job);
+        synchronized (this) {
+            if (slot != null) {
+                reservations.remove(slot);
+                slot.releaseBytes();
+            }
+            workspaces.adopt(taskId);
+            job.setState(JobState.WAITING_EXTRACT);
+            jobs.put(taskId, job);
+            extractQueue.add(job);
+        }
+    }
+
+    /**
+     * 复用的 WAV（通常在去重缓存中）在任务结束前固定，不会被淘汰；固定前已被淘汰时改为从视频重新提取
+     */
+    private void pinAudio(TranscriptionJob job) {
+        String audioPath = job.getOptions().getAudioPath();
+        if (audioPath == null) {
+            return;
+        }
+        if (!subtitleCache.pin(audioPath)) {
+            subtitleCache.unpin(audioPath);
+            job.getOptions().setAudioPath(null);
+            return;
+        }
+        job.whenFinished(() -> subtitleCache.unpin(audioPath));
+    }
+
+    /**
+     * 启动完成后恢复任务日志中未结束的任务：不做准入检查，已提取的 WAV 和已完成的分段直接复用
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        for (JobJournal.PendingJob pending : journal.takePending()) {
+            JSONObject submit = pending.getSubmit();
+            String taskId = submit.getString("taskId");
+            File video = new File(submit.getString("video"));
+            String audioPath = pending.getAudioPath() != null ? pending.getAudioPath() : submit.optString("audio", null);
+            boolean hasAudio = audioPath != null && new File(audioPath).isFile();
+            // 提取出 WAV 后视频已被删除，只要 WAV 还在即可恢复
+            if (!video.isFile() && !hasAudio) {
+                System.err.println("无法恢复任务 " + taskId + "：视频文件已不存在 " + video);
+                journal.finished(taskId, false, "视频文件已不存在");
+                workspaces.release(taskId);
+                continue;
+            }
+            TranscriptionEngine engine;
+            try {
+                // 英语文本任务的音频为英语，与提交时一样选择引擎
+                String language = "txt".equals(submit.getString("format")) ? TranscriptionEngineRegistry.ENGLISH : null;
+                engine = engineRegistry.resolve(submit.getString("model"), language);
+            } catch (IllegalArgumentException e) {
+                System.err.println("无法恢复任务 " + taskId + "：" + e.getMessage());
+                journal.finished(taskId, false, e.getMessage());
+                workspaces.release(taskId);
+                continue;
+            }
+            TranscribeOptions options = new TranscribeOptions()
+                    .setModel(submit.getString("model"))
+                    .setChunkSeconds(submit.getInt("chunkSeconds"))
+                    .setParallelism(submit.getInt("parallelism"))
+                    .setCompletedChunks(pending.getChunks());
+            if (hasAudio) {
+                options.setAudioPath(audioPath);
+            }
+            UploadedVideo upload = new UploadedVideo(video, submit.getString("md5"), submit.getLong("size"));
+            TranscriptionJob job = new TranscriptionJob(taskId, submit.getString("userId"), upload, engine, options,
+                    submit.getString("format"));
+            enqueue(job, false, null);
+            System.out.println("已恢复任务 " + taskId + "，音频" + (options.getAudioPath() != null ? "已提取" : "需重新提取")
+                    + "，已完成分段 " + pending.getChunks().size() + " 个");
+            ProgressWebSocketHandler.openTask(taskId).stage(ProgressStage.QUEUED, "服务重启，任务已恢复并重新排队");
+        }
+    }
+
+    /**
+     * 命中去重缓存的任务不经过队列，直接登记为已完成，以便按任务 ID 查询状态和下载结果
+     */
+    public void recordCached(TranscriptionJob job, String result) {
+        jobs.put(job.getTaskId(), job);
+        job.succeed(result);
+        retire(job);
+    }
+
+    private int queuedByUser(String userId) {
+        int count = 0;
+        for (TranscriptionJob job : jobs.values()) {
+            if (!job.getState().isFinished() && job.getUserId().equals(userId)) {
+                count++;
+            }
+        }
+        for (Reservation reservation : reservations) {
+            if (reservation.userId.equals(userId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public TranscriptionJob getJob(String taskId) {
+        return jobs.get(taskId);
+    }
+
+    /**
+     * 结果文件为 path 的已完成任务，没有时返回 null；只用于兼容按路径下载的旧接口
+     */
+    public TranscriptionJob findByResult(String path) {
+        Path target = Paths.get(path).toAbsolutePath().normalize();
+        for (TranscriptionJob job : jobs.values()) {
+            if (job.getState() == JobState.DONE && job.getResult() != null
+                    && Paths.get(job.getResult()).toAbsolutePath().normalize().equals(target)) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 任务在当前所在队列中的位置（从 1 开始），不在排队时返回 0
+     */
+    public int queuePosition(TranscriptionJob job) {
+        FairJobQueue queue = queueOf(job);
+        List<TranscriptionJob> ahead = queue == null ? null : queue.ahead(job);
+        return ahead == null ? 0 : ahead.size() + 1;
+    }
+
+    /**
+     * 预计开始当前阶段的时间（毫秒时间戳）；job 为 null 时估算一个新提交任务的开始时间，任务已在执行时返回 0
+     */
+    public long estimateStartTime(TranscriptionJob job) {
+        long now = System.currentTimeMillis();
+        if (job == null) {
+            return now + backlogMillis(extractQueue.snapshot(), extractCost, extractThreads);
+        }
+        FairJobQueue queue = queueOf(job);
+        List<TranscriptionJob> ahead = queue == null ? null : queue.ahead(job);
+        if (ahead == null) {
+            return 0;
+        }
+        return queue == extractQueue
+                ? now + backlogMillis(ahead, extractCost, extractThreads)
+                : now + backlogMillis(ahead, transcribeCost, transcribeThreads);
+    }
+
+    private FairJobQueue queueOf(TranscriptionJob job) {
+        switch (job.getState()) {
+            case WAITING_EXTRACT:
+                return extractQueue;
+            case WAITING_TRANSCRIBE:
+                return transcribeQueue;
+            default:
+                return null;
+        }
+    }
+
+    private long backlogMillis(List<TranscriptionJob> jobs, double costPerSecond, int threads) {
+        double mediaSeconds = 0;
+        for (TranscriptionJob job : jobs) {
+            mediaSeconds += mediaSeconds(job);
+        }
+        return (long) (mediaSeconds * costPerSecond * 1000 / Math.max(1, threads));
+    }
+
+    private double mediaSeconds(TranscriptionJob job) {
+        return job.getDurationMs() >= 0 ? job.getDurationMs() / 1000.0 : shortClipSeconds;
+    }
+
+    /**
+     * 只读容器头获取时长，不解码
+     */
+    private static long probeDurationMs(File file) {
+        FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(file);
+        try {
+            grabber.start();
+            long micros = grabber.getLengthInTime();
+            return micros > 0 ? micros / 1000 : -1;
+        } catch (Exception e) {
+            System.err.println("探测视频时长失败: " + e.getMessage());
+            return -1;
+        } finally {
+            try { grabber.release(); } catch (Exception e) { e.printStackTrace(); }
+        }
+    }
+
+    /**
+     * 提取阶段：分片上传的音频在上传时已开始提取，等待其完成；否则在需要 WAV 时提取（分段识别的短视频解码到内存缓冲）
+     * 流式引擎且不分段时不需要 WAV，直接交给识别阶段边解码边识别
+     */
+    private void extract(TranscriptionJob job) {
+        recordWait(job, JobState.WAITING_EXTRACT, PipelineMetrics.QUEUE_EXTRACT);
+        job.setState(JobState.EXTRACTING);
+        long start = System.nanoTime();
+        try {
+            if (job.getOptions().getAudioPath() == null) {
+                job.getOptions().setAudioPath(chunkedUploadService.awaitAudio(job.getTaskId()));
+            }
+            if (!job.getEngine().isStreaming() || job.getOptions().getParallelism() != 1) {
+                VideoToWavUtil.prepareAudio(job.getUpload().getFile().getAbsolutePath(), job.getOptions());
+            }
+            extractCost = updateCost(extractCost, job, System.nanoTime() - start);
+            PipelineMetrics.record(PipelineMetrics.EXTRACT, job.getEngine(), job.getOptions().getModel(), start);
+            if (job.getOptions().getAudioPath() != null) {
+                journal.audioExtracted(job.getTaskId(), job.getOptions().getAudioPath());
+                // 后续阶段只读 WAV，视频不再需要（恢复任务时也只用 WAV）
+                job.getUpload().getFile().delete();
+            }
+        } catch (Exception e) {
+            fail(job, e);
+            return;
+        }
+        job.setState(JobState.WAITING_TRANSCRIBE);
+        transcribeQueue.add(job);
+    }
+
+    private void transcribe(TranscriptionJob job) {
+        recordWait(job, JobState.WAITING_TRANSCRIBE, PipelineMetrics.QUEUE_TRANSCRIBE);
+        job.setState(JobState.TRANSCRIBING);
+        long start = System.nanoTime();
+        try {
+            String result = run(job);
+            transcribeCost = updateCost(transcribeCost, job, System.nanoTime() - start);
+            job.succeed(result);
+            PipelineMetrics.jobFinished(job.getEngine(), job.getOptions().getModel(), "done");
+            journal.finished(job.getTaskId(), true, result);
+            String done = "txt".equals(job.getFormat()) ? "英语视频处理完成！生成的文本文件：" : "视频处理完成！生成的字幕文件：";
+            ProgressWebSocketHandler.finishTask(job.getTaskId(), ProgressStage.DONE, done + result);
+            retire(job);
+        } catch (Exception e) {
+            fail(job, e);
+        }
+    }
+
+    /**
+     * 按结果格式执行处理流程：vtt 生成字幕，txt 生成英语文本；结果放入去重缓存
+     */
+    private String run(TranscriptionJob job) throws Exception {
+        UploadedVideo upload = job.getUpload();
+        TranscriptionEngine engine = job.getEngine();
+        TranscribeOptions options = job.getOptions();
+        options.setDispatcher(dispatcher);
+        String result;
+        if ("txt".equals(job.getFormat())) {
+            // 发送开始处理的消息
+            ProgressWebSocketHandler.sendProgress("开始处理上传的英语视频文件...");
+
+            // 处理视频生成英语文本
+            result = SpeechToWavUtil.videoToEnglishText(upload.getFile().getAbsolutePath(), engine, options);
+        } else {
+            // 发送开始处理的消息
+            ProgressWebSocketHandler.sendProgress("开始处理上传的视频文件...\n选择的模型: " + options.getModel() + "，识别引擎: " + engine.getName());
+            ProgressWebSocketHandler.sendProgress("文件大小: " + (upload.getSize() / 1024 / 1024) + "MB");
+
+            // 处理视频生成字幕
+            result = VideoToWavUtil.processVideoToVtt(upload.getFile(), engine, options);
+        }
+        return cacheResult(job, result);
+    }
+
+    /**
+     * 把结果文件、JSON 转写稿和提取出的 WAV 放入去重缓存，返回结果文件的最终路径
+     */
+    private String cacheResult(TranscriptionJob job, String resultPath) {
+        String md5 = job.getUpload().getMd5();
+        TranscribeOptions options = job.getOptions();
+        try {
+            if (options.getAudioPath() != null) {
+                subtitleCache.putAudio(md5, new File(options.getAudioPath()));
+            }
+            if (options.getTranscriptPath() != null) {
+                subtitleCache.putResult(md5, job.getEngine(), options.getModel(), SubtitleFormat.JSON.getExtension(),
+                        new File(options.getTranscriptPath()));
+            }
+            return subtitleCache.putResult(md5, job.getEngine(), options.getModel(), job.getFormat(),
+                    new File(resultPath));
+        } catch (IOException e) {
+            System.err.println("写入去重缓存失败: " + e.getMessage());
+            return resultPath;
+        }
+    }
+
+    private void failUnexpectedly(TranscriptionJob job, Throwable e) {
+        try {
+            if (job.getState().isFinished()) {
+                e.printStackTrace();
+            } else {
+                fail(job, e);
+            }
+        } catch (Throwable nested) {
+            System.err.println("任务 " + job.getTaskId() + " 标记失败时出错: " + nested);
+        }
+    }
+
+    private void fail(TranscriptionJob job, Throwable e) {
+        e.printStackTrace();
+        job.fail(e.getMessage());
+        PipelineMetrics.jobFinished(job.getEngine(), job.getOptions().getModel(), "failed");
+        journal.finished(job.getTaskId(), false, e.getMessage());
+        ProgressWebSocketHandler.finishTask(job.getTaskId(), ProgressStage.FAILED, "处理失败：" + e.getMessage());
+        retire(job);
+    }
+
+    /**
+     * 在队列中的等待时间，从进入等待状态算起
+     */
+    private static void recordWait(TranscriptionJob job, JobState waiting, String stage) {
+        Long since = job.getStateTimes().get(waiting);
+        if (since != null) {
+            PipelineMetrics.recordMillis(stage, job.getEngine(), job.getOptions().getModel(),
+                    System.currentTimeMillis() - since);
+        }
+    }
+
+    private double updateCost(double cost, TranscriptionJob job, long elapsedNanos) {
+        if (job.getDurationMs() <= 0) {
+            return cost;
+        }
+        double sample = elapsedNanos / 1e9 / (job.getDurationMs() / 1000.0);
+        return cost * 0.8 + sample * 0.2;
+    }
+
+    /**
+     * 任务结束后工作目录中的文件不再需要（结果和 WAV 已移入缓存），整个目录删除；
+     * 结果未能移入缓存、仍在工作目录中时保留目录供下载，由清理线程过期删除
+     * 未结束的任务保留目录以便重启后恢复
+     */
+    private void retire(TranscriptionJob job) {
+        VideoToWavUtil.releasePcm(job.getOptions());
+        String result = job.getResult();
+        if (result != null && workspaces.contains(job.getTaskId(), new File(result))) {
+            workspaces.detach(job.getTaskId());
+        } else {
+            workspaces.release(job.getTaskId());
+        }
+        synchronized (finished) {
+            finished.offer(job.getTaskId());
+            while (finished.size() > FINISHED_RETENTION) {
+                jobs.remove(finished.poll());
+            }
+        }
+    }
+
+    /**
+     * 上传开始前占用的排队名额和预留的临时空间；上传失败或放弃时 release 归还，已用于提交后 release 无影响
+     */
+    public class Reservation {
+        private final String userId;
+
+        /**
+         * 在工作目录中预留的字节数，由 JobScheduler 的锁保护
+         */
+        private long bytes;
+
+        Reservation(String userId) {
+            this.userId = userId;
+        }
+
+        /**
+         * 上传大小在占用名额之后才知道时（如 URL 下载）追加预留；空间不足时返回 false
+         */
+        public boolean reserveBytes(long incomingBytes) {
+            synchronized (JobScheduler.this) {
+                if (!workspaces.reserve(incomingBytes)) {
+                    return false;
+                }
+                bytes += Math.max(0, incomingBytes);
+                return true;
+            }
+        }
+
+        public void release() {
+            synchronized (JobScheduler.this) {
+                reservations.remove(this);
+                releaseBytes();
+            }
+        }
+
+        private void releaseBytes() {
+            workspaces.unreserve(bytes);
+            bytes = 0;
+        }
+    }
+}
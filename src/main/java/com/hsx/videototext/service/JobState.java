@@ -0,0 +1,18 @@
+package com.hsx.videototext.service;
+
+/**
+ * 识别任务状态：先在提取队列等待音频提取，再在识别队列等待语音识别
+ */
+public enum JobState {
+
+    WAITING_EXTRACT,
+    EXTRACTING,
+    WAITING_TRANSCRIBE,
+    TRANSCRIBING,
+    DONE,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
@@ -0,0 +1,314 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.model.entity.CacheEntry;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按视频内容哈希去重的持久化缓存
+ * 结果文件以 md5 + 引擎 + 引擎实际使用的模型（TranscriptionEngine.modelName，别名和请求中的任意写法都归到同一个模型）+ 格式为键，提取出的 WAV 以 md5 为键；按最近使用淘汰，总大小不超过上限
+ * 目录结构: {dir}/{md5}/audio.wav、{dir}/{md5}/{engine}_{model}_{hash}.{format}，索引保存在 {dir}/index.json；
+ * 引擎名和模型名中的特殊字符会被替换，hash 为原始名称的哈希，替换后相同的不同名称（如 a/b 与 a_b）不会写到同一个文件
+ * 每项的大小包括旁边的派生文件（下载时生成的 .gz、由转写稿生成的其他格式），派生文件写入后由 recount 重新统计，
+ * 上限限制的是实际占用的磁盘空间；进行中的任务读取的文件（如复用的 WAV）用 pin 固定，解除前不会被淘汰；文件移动在锁外进行，锁内只改索引
+ */
+@Component
+public class SubtitleCache {
+
+    private static final String INDEX_FILE = "index.json";
+
+    @Value("${video.cache.dir:${video.workspace.root:${java.io.tmpdir}/videoToText}/cache}")
+    private String cacheDir;
+
+    @Value("${video.cache.max-size-mb:10240}")
+    private long maxSizeMb;
+
+    /**
+     * 访问顺序的 LinkedHashMap，迭代顺序即从最久未使用到最近使用
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * 被进行中的任务固定的文件路径及固定次数
+     */
+    private final Map<String, Integer> pins = new HashMap<>();
+
+    public File getDir() {
+        return new File(cacheDir);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        File dir = new File(cacheDir);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        Path index = Paths.get(cacheDir, INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(new String(Files.readAllBytes(index), StandardCharsets.UTF_8));
+            List<CacheEntry> loaded = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject item = array.getJSONObject(i);
+                CacheEntry entry = new CacheEntry(item.getString("key"), item.getString("path"),
+                        item.getLong("sizeBytes"), item.getLong("lastAccess"));
+                if (new File(entry.getPath()).isFile()) {
+                    loaded.add(entry);
+                }
+            }
+            loaded.sort((a, b) -> Long.compare(a.getLastAccess(), b.getLastAccess()));
+            for (CacheEntry entry : loaded) {
+                entries.put(entry.getKey(), entry);
+                totalBytes += entry.getSizeBytes();
+            }
+            System.out.println("去重缓存已加载 " + entries.size() + " 项，共 " + totalBytes / 1024 / 1024 + "MB");
+        } catch (Exception e) {
+            System.err.println("读取去重缓存索引失败，将重建: " + e.getMessage());
+        }
+    }
+
+    private static String resultKey(String md5, TranscriptionEngine engine, String model, String format) {
+        return md5 + ":" + engine.getName() + ":" + engine.modelName(model) + ":" + format;
+    }
+
+    private static String audioKey(String md5) {
+        return md5 + ":audio";
+    }
+
+    /**
+     * 查找已生成的结果文件，未命中返回 null；model 为请求中的模型名
+     */
+    public String getResult(String md5, TranscriptionEngine engine, String model, String format) {
+        return get(resultKey(md5, engine, model, format));
+    }
+
+    /**
+     * 查找同一视频已提取的 WAV，未命中返回 null
+     */
+    public String getAudio(String md5) {
+        return get(audioKey(md5));
+    }
+
+    /**
+     * 把结果文件移入缓存目录，返回缓存中的路径
+     */
+    public String putResult(String md5, TranscriptionEngine engine, String model, String format, File result)
+            throws IOException {
+        String modelName = engine.modelName(model);
+        String name = safeName(engine.getName()) + "_" + safeName(modelName) + "_"
+                + String.format("%08x", (engine.getName() + ":" + modelName).hashCode()) + "." + format;
+        return put(resultKey(md5, engine, model, format), md5, name, result);
+    }
+
+    /**
+     * 把提取出的 WAV 移入缓存目录（已在缓存中则直接返回），返回缓存中的路径
+     */
+    public String putAudio(String md5, File audio) throws IOException {
+        return put(audioKey(md5), md5, "audio.wav", audio);
+    }
+
+    /**
+     * 固定一个文件，直到对应的 unpin 之前不会被淘汰；文件不在缓存中时同样计数，不影响其他文件
+     * 返回文件此时是否仍然存在（固定之前可能已被淘汰）
+     */
+    public synchronized boolean pin(String path) {
+        pins.merge(path, 1, Integer::sum);
+        return new File(path).isFile();
+    }
+
+    public synchronized void unpin(String path) {
+        pins.computeIfPresent(path, (p, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 在缓存文件旁写入派生文件后调用，重新统计该项（连同派生文件）的大小，超过上限时淘汰；不是缓存项时忽略
+     */
+    public void recount(File file) {
+        String path = file.getPath();
+        synchronized (this) {
+            boolean cached = false;
+            for (CacheEntry entry : entries.values()) {
+                if (entry.getPath().equals(path)) {
+                    cached = true;
+                    break;
+                }
+            }
+            if (!cached) {
+                return;
+            }
+        }
+        long size = entrySize(file);
+        synchronized (this) {
+            for (CacheEntry entry : entries.values()) {
+                if (entry.getPath().equals(path)) {
+                    if (entry.getSizeBytes() != size) {
+                        totalBytes += size - entry.getSizeBytes();
+                        entry.setSizeBytes(size);
+                        evict(entry.getKey());
+                        saveIndex();
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 文件及其派生文件（同目录下以 "文件名." 开头的文件）的总大小
+     */
+    private static long entrySize(File file) {
+        long size = file.length();
+        File[] variants = variants(file);
+        if (variants != null) {
+            for (File variant : variants) {
+                size += variant.length();
+            }
+        }
+        return size;
+    }
+
+    private static File[] variants(File file) {
+        return file.getAbsoluteFile().getParentFile().listFiles((dir, name) -> name.startsWith(file.getName() + "."));
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private synchronized String get(String key) {
+        CacheEntry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!new File(entry.getPath()).isFile()) {
+            entries.remove(key);
+            totalBytes -= entry.getSizeBytes();
+            return null;
+        }
+        entry.setLastAccess(System.currentTimeMillis());
+        return entry.getPath();
+    }
+
+    /**
+     * 文件移动（跨磁盘时是复制）在锁外进行，不阻塞其他任务查询缓存
+     */
+    private String put(String key, String md5, String name, File source) throws IOException {
+        Path target = Paths.get(cacheDir, md5, name);
+        if (!source.toPath().toAbsolutePath().equals(target.toAbsolutePath())) {
+            moveInto(source.toPath(), target);
+        }
+        long size = entrySize(target.toFile());
+
+        synchronized (this) {
+            CacheEntry old = entries.remove(key);
+            if (old != null) {
+                totalBytes -= old.getSizeBytes();
+            }
+            CacheEntry entry = new CacheEntry(key, target.toString(), size, System.currentTimeMillis());
+            entries.put(key, entry);
+            totalBytes += entry.getSizeBytes();
+
+            evict(key);
+            saveIndex();
+            return entry.getPath();
+        }
+    }
+
+    private static void moveInto(Path source, Path target) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Files.createDirectories(target.getParent());
+            try {
+                try {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return;
+            } catch (NoSuchFileException e) {
+                // 淘汰可能恰好删除了刚创建的空目录，重建后再试一次
+                if (attempt > 0 || !Files.exists(source)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 从最久未使用的开始删除，直到总大小不超过上限（刚放入的项和被固定的项保留）
+     */
+    private void evict(String keep) {
+        long limit = maxSizeMb * 1024 * 1024;
+        Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet().iterator();
+        while (totalBytes > limit && it.hasNext()) {
+            CacheEntry entry = it.next().getValue();
+            if (entry.getKey().equals(keep) || pins.containsKey(entry.getPath())) {
+                continue;
+            }
+            it.remove();
+            totalBytes -= entry.getSizeBytes();
+            File file = new File(entry.getPath());
+            file.delete();
+            // 下载时生成的预压缩版本和由转写稿生成的其他格式（xxx.gz、xxx.json.srt 等）
+            File parent = file.getParentFile();
+            File[] variants = variants(file);
+            if (variants != null) {
+                for (File variant : variants) {
+                    variant.delete();
+                }
+            }
+            String[] rest = parent.list();
+            if (rest != null && rest.length == 0) {
+                parent.delete();
+            }
+            System.out.println("去重缓存淘汰: " + entry.getKey());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void saveIndex() {
+        JSONArray array = new JSONArray();
+        for (CacheEntry entry : entries.values()) {
+            array.put(new JSONObject()
+                    .put("key", entry.getKey())
+                    .put("path", entry.getPath())
+                    .put("sizeBytes", entry.getSizeBytes())
+                    .put("lastAccess", entry.getLastAccess()));
+        }
+        Path index = Paths.get(cacheDir, INDEX_FILE);
+        Path tmp = Paths.get(cacheDir, INDEX_FILE + ".tmp");
+        try {
+            Files.write(tmp, array.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, index, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("保存去重缓存索引失败: " + e.getMessage());
+        }
+    }
+
+    private static String safeName(String name) {
+        return name == null ? "default" : name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,94 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.TranscriptionEngine;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 一次批量提交：所有条目使用同一引擎和识别参数，由 BatchService 陆续交给调度器
+ */
+@Getter
+public class TranscriptionBatch {
+
+    private final String batchId;
+    private final String userId;
+    private final TranscriptionEngine engine;
+    private final String model;
+    private final int chunkSeconds;
+    private final int parallelism;
+    private final List<BatchItem> items;
+    private final long createdAt = System.currentTimeMillis();
+
+    /**
+     * 下一个待提交条目的下标，之前的条目都已提交或已结束
+     */
+    private int cursor;
+
+    /**
+     * 已提交到调度器、尚未结束的条目数
+     */
+    private int inFlight;
+
+    private int succeeded;
+    private int failed;
+
+    public TranscriptionBatch(String batchId, String userId, TranscriptionEngine engine, String model,
+                              int chunkSeconds, int parallelism, List<BatchItem> items) {
+        this.batchId = batchId;
+        this.userId = userId;
+        this.engine = engine;
+        this.model = model;
+        this.chunkSeconds = chunkSeconds;
+        this.parallelism = parallelism;
+        this.items = items;
+    }
+
+    /**
+     * 下一个待提交的条目，创建时已失败的条目跳过；没有时返回 null
+     */
+    synchronized BatchItem peekPending() {
+        while (cursor < items.size() && items.get(cursor).isFinished()) {
+            cursor++;
+        }
+        return cursor < items.size() ? items.get(cursor) : null;
+    }
+
+    synchronized void advance(boolean submitted) {
+        cursor++;
+        if (submitted) {
+            inFlight++;
+        }
+    }
+
+    /**
+     * 记录一个条目结束，返回是否所有条目都已结束
+     */
+    synchronized boolean finished(BatchItem item, boolean submitted) {
+        if (submitted) {
+            inFlight--;
+        }
+        if (BatchItem.DONE.equals(item.getState())) {
+            succeeded++;
+        } else {
+            failed++;
+        }
+        return isFinished();
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getSucceeded() {
+        return succeeded;
+    }
+
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    public synchronized boolean isFinished() {
+        return succeeded + failed == items.size();
+    }
+}
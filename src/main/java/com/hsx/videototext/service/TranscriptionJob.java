@@ -0,0 +1,131 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.ParallelTranscriber;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个排队中的识别任务，记录每个状态的进入时间
+ */
+@Getter
+public class TranscriptionJob {
+
+    private final String taskId;
+    private final String userId;
+    private final UploadedVideo upload;
+    private final TranscriptionEngine engine;
+    private final TranscribeOptions options;
+
+    /**
+     * 结果格式：vtt（字幕）或 txt（英语文本），决定执行哪条处理流程
+     */
+    private final String format;
+
+    /**
+     * 探测到的媒体时长（毫秒），探测失败为 -1
+     */
+    @Setter
+    private long durationMs = -1;
+
+    /**
+     * 是否进入短视频优先通道
+     */
+    @Setter
+    private boolean shortClip;
+
+    private JobState state;
+    private final Map<JobState, Long> stateTimes = new EnumMap<>(JobState.class);
+    private String result;
+    private String error;
+
+    /**
+     * 任务结束时的回调，供长轮询的请求在结束时返回
+     */
+    @Getter(AccessLevel.NONE)
+    private final List<Runnable> finishListeners = new ArrayList<>();
+
+    public TranscriptionJob(String taskId, String userId, UploadedVideo upload, TranscriptionEngine engine,
+                            TranscribeOptions options, String format) {
+        this.taskId = taskId;
+        this.userId = userId;
+        this.upload = upload;
+        this.engine = engine;
+        this.options = options;
+        this.format = format;
+        ParallelTranscriber.normalize(engine, options);
+    }
+
+    public synchronized void setState(JobState state) {
+        this.state = state;
+        stateTimes.put(state, System.currentTimeMillis());
+    }
+
+    public synchronized JobState getState() {
+        return state;
+    }
+
+    public synchronized Map<JobState, Long> getStateTimes() {
+        return new EnumMap<>(stateTimes);
+    }
+
+    public void succeed(String result) {
+        synchronized (this) {
+            this.result = result;
+            setState(JobState.DONE);
+        }
+        notifyFinished();
+    }
+
+    public void fail(String error) {
+        synchronized (this) {
+            this.error = error;
+            setState(JobState.FAILED);
+        }
+        notifyFinished();
+    }
+
+    /**
+     * 任务结束时调用 listener；已结束时立即调用
+     */
+    public void whenFinished(Runnable listener) {
+        synchronized (this) {
+            if (state == null || !state.isFinished()) {
+                finishListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public synchronized void removeFinishListener(Runnable listener) {
+        finishListeners.remove(listener);
+    }
+
+    private void notifyFinished() {
+        List<Runnable> listeners;
+        synchronized (this) {
+            listeners = new ArrayList<>(finishListeners);
+            finishListeners.clear();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    public synchronized String getResult() {
+        return result;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+}
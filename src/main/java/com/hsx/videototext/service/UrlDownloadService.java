@@ -0,0 +1,451 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import com.hsx.videototext.websocket.ProgressStage;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 从 URL 拉取视频（/video/url），落盘复用分片上传会话：下载的每个 Range 就是一个分片
+ * 服务器支持 Range 时按 range-size-mb 切分，多个连接并行写入预分配的文件，每个 Range 失败后单独重试；
+ * 不支持 Range（返回 200）时按小分片顺序写入，断线后重新请求并跳过已写入的部分
+ * 两种方式都在首个分片写入后开始提取音频（读到尚未下载的位置时等待），不必等最后一个字节落盘
+ * 下载在 max-concurrent 个下载线程上进行，请求线程立即返回任务 ID，客户端随即可订阅下载和边下边提取的进度；
+ * 文件大小从首个响应得知后先检查临时空间，放不下时在预分配文件之前拒绝
+ * 地址由用户提交，每次连接前（包括每一跳重定向）都检查目标主机：配置了 allowed-hosts 时只允许其中的主机，
+ * 否则解析主机名并拒绝回环、链路本地（含 169.254.169.254 元数据服务）、内网和组播地址；重定向不交给
+ * HttpURLConnection 自动跟随，由这里逐跳检查后再请求
+ */
+@Component
+public class UrlDownloadService {
+
+    /**
+     * 不支持 Range 时的分片大小，越小音频提取越早开始
+     */
+    private static final int STREAM_CHUNK_SIZE = 1024 * 1024;
+
+    private static final int MAX_REDIRECTS = 5;
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+    private static final AtomicInteger TASK_THREAD_INDEX = new AtomicInteger();
+
+    @Value("${video.url.connections:4}")
+    private int connections;
+
+    @Value("${video.url.range-size-mb:8}")
+    private int rangeSizeMb;
+
+    @Value("${video.url.retries:3}")
+    private int retries;
+
+    @Value("${video.url.connect-timeout-seconds:30}")
+    private int connectTimeoutSeconds;
+
+    @Value("${video.url.read-timeout-seconds:60}")
+    private int readTimeoutSeconds;
+
+    /**
+     * 允许拉取的主机，逗号分隔，子域名同样允许；为空时允许任意公网地址
+     */
+    @Value("${video.url.allowed-hosts:}")
+    private String allowedHosts;
+
+    /**
+     * 同时进行的 URL 下载数，其余的排队等待（排队数受调度器的排队名额限制）
+     */
+    @Value("${video.url.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private WorkspaceManager workspaces;
+
+    private ExecutorService downloads;
+
+    @PostConstruct
+    public void start() {
+        downloads = Executors.newFixedThreadPool(Math.max(1, maxConcurrent), r -> {
+            Thread thread = new Thread(r, "UrlDownloadTask-" + TASK_THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (downloads != null) {
+            downloads.shutdownNow();
+        }
+    }
+
+    /**
+     * 在下载线程上拉取视频并 complete，之后把视频交给 onComplete（去重缓存检查、提交到调度队列）；
+     * 任何一步失败都以 FAILED 结束任务进度。reservation 为请求时占用的排队名额，结束后归还
+     */
+    public void downloadAsync(String taskId, String url, TranscriptionEngine engine, TranscribeOptions options,
+                              JobScheduler.Reservation reservation, Consumer<UploadedVideo> onComplete) {
+        checkTarget(parse(url));
+        ProgressWebSocketHandler.openTask(taskId).stage(ProgressStage.QUEUED, "等待下载视频: " + url);
+        try {
+            downloads.execute(() -> {
+                try {
+                    long downloadStart = System.nanoTime();
+                    download(taskId, url, engine, options, reservation);
+                    UploadedVideo upload = chunkedUploadService.complete(taskId);
+                    PipelineMetrics.record(PipelineMetrics.DOWNLOAD, engine, options.getModel(), downloadStart);
+                    onComplete.accept(upload);
+                } catch (Exception e) {
+                    System.err.println("视频下载失败: " + url + "，" + e.getMessage());
+                    chunkedUploadService.discard(taskId, true, "下载失败：" + e.getMessage());
+                    ProgressWebSocketHandler.finishTask(taskId, ProgressStage.FAILED, "下载失败：" + e.getMessage());
+                } finally {
+                    reservation.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reservation.release();
+            ProgressWebSocketHandler.finishTask(taskId, ProgressStage.FAILED, "服务正在关闭");
+            throw new IllegalStateException("服务正在关闭，无法下载");
+        }
+    }
+
+    /**
+     * 下载到 ID 为 taskId 的上传会话中并返回会话，调用方随后 complete；失败时删除已下载的部分
+     */
+    public ChunkedUpload download(String taskId, String url, TranscriptionEngine engine, TranscribeOptions options)
+            throws IOException {
+        return download(taskId, url, engine, options, null);
+    }
+
+    /**
+     * 同上；文件大小已知后在 reservation 上预留临时空间，直到提交或 release 归还
+     */
+    public ChunkedUpload download(String taskId, String url, TranscriptionEngine engine, TranscribeOptions options,
+                                  JobScheduler.Reservation reservation) throws IOException {
+        URL source = parse(url);
+        int rangeSize = Math.max(1, rangeSizeMb) * 1024 * 1024;
+        // 首个请求即第一个 Range，同时用来判断服务器是否支持 Range
+        HttpURLConnection first = open(source, 0, rangeSize - 1);
+        ChunkedUpload upload = null;
+        try {
+            int code = first.getResponseCode();
+            if (code == HttpURLConnection.HTTP_PARTIAL) {
+                long total = totalSize(first.getHeaderField("Content-Range"));
+                checkRoom(total, reservation);
+                upload = chunkedUploadService.init(taskId, total, rangeSize, engine, options);
+                System.out.println("开始分段下载: " + url + "，" + total + " 字节，" + upload.getChunkCount() + " 段");
+                downloadRanges(source, upload, first);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                long total = first.getContentLengthLong();
+                if (total <= 0) {
+                    throw new IOException("服务器不支持 Range 且未返回 Content-Length，无法下载");
+                }
+                checkRoom(total, reservation);
+                upload = chunkedUploadService.init(taskId, total, STREAM_CHUNK_SIZE, engine, options);
+                System.out.println("服务器不支持 Range，顺序下载: " + url + "，" + total + " 字节");
+                downloadStream(source, upload, first);
+            } else {
+                throw new IOException("视频下载失败，HTTP响应码: " + code);
+            }
+            return upload;
+        } catch (IOException | RuntimeException e) {
+            first.disconnect();
+            if (upload != null) {
+                chunkedUploadService.discard(upload.getUploadId(), true, "下载失败：" + e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 文件大小已知后、预分配文件之前检查临时空间，有 reservation 时同时预留
+     */
+    private void checkRoom(long total, JobScheduler.Reservation reservation) throws IOException {
+        if (reservation != null ? !reservation.reserveBytes(total) : !workspaces.hasRoom(total)) {
+            throw new IOException("临时空间不足，无法下载 " + total / 1024 / 1024 + "MB 的视频，请稍后重试");
+        }
+    }
+
+    private static URL parse(String url) {
+        try {
+            URL parsed = new URL(url);
+            if (!"http".equalsIgnoreCase(parsed.getProtocol()) && !"https".equalsIgnoreCase(parsed.getProtocol())) {
+                throw new IllegalArgumentException("只支持 http / https 地址: " + url);
+            }
+            if (parsed.getHost().isEmpty()) {
+                throw new IllegalArgumentException("视频地址缺少主机名: " + url);
+            }
+            return parsed;
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("视频地址无效: " + url);
+        }
+    }
+
+    /**
+     * 检查目标主机是否允许访问，不允许时抛出 IllegalArgumentException
+     */
+    void checkTarget(URL target) {
+        String host = target.getHost().toLowerCase(Locale.ROOT);
+        if (allowedHosts != null && !allowedHosts.trim().isEmpty()) {
+            for (String allowed : allowedHosts.split(",")) {
+                allowed = allowed.trim().toLowerCase(Locale.ROOT);
+                if (!allowed.isEmpty() && (host.equals(allowed) || host.endsWith("." + allowed))) {
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("不允许从该主机拉取视频: " + host);
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("无法解析视频地址的主机: " + host);
+        }
+        for (InetAddress address : addresses) {
+            if (isInternal(address)) {
+                throw new IllegalArgumentException("不允许从内网地址拉取视频: " + host + " (" + address.getHostAddress() + ")");
+            }
+        }
+    }
+
+    /**
+     * 回环、未指定、链路本地、内网（10/8、172.16/12、192.168/16、100.64/10、fc00::/7）和组播地址
+     */
+    static boolean isInternal(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            int first = bytes[0] & 0xff;
+            return first == 0 || (first == 100 && (bytes[1] & 0xc0) == 64);
+        }
+        return (bytes[0] & 0xfe) == 0xfc;
+    }
+
+    /**
+     * 发出请求并逐跳跟随重定向，每一跳连接前检查目标主机；返回的连接已拿到非重定向的响应
+     * start 小于 0 时不带 Range 请求头
+     */
+    private HttpURLConnection open(URL source, long start, long end) throws IOException {
+        URL target = source;
+        for (int redirects = 0; ; redirects++) {
+            checkTarget(target);
+            HttpURLConnection connection = (HttpURLConnection) target.openConnection();
+            connection.setInstanceFollowRedirects(false);
+            connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(connectTimeoutSeconds));
+            connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(readTimeoutSeconds));
+            // 压缩后的长度与 Range 对不上
+            connection.setRequestProperty("Accept-Encoding", "identity");
+            if (start >= 0) {
+                connection.setRequestProperty("Range", "bytes=" + start + "-" + end);
+            }
+            int code;
+            try {
+                code = connection.getResponseCode();
+            } catch (IOException e) {
+                connection.disconnect();
+                throw e;
+            }
+            if (!isRedirect(code)) {
+                return connection;
+            }
+            String location = connection.getHeaderField("Location");
+            connection.disconnect();
+            if (location == null) {
+                throw new IOException("HTTP响应码 " + code + " 但没有 Location");
+            }
+            if (redirects >= MAX_REDIRECTS) {
+                throw new IOException("重定向次数超过 " + MAX_REDIRECTS + " 次");
+            }
+            target = parse(new URL(target, location).toString());
+        }
+    }
+
+    private static boolean isRedirect(int code) {
+        return code == HttpURLConnection.HTTP_MOVED_PERM || code == HttpURLConnection.HTTP_MOVED_TEMP
+                || code == HttpURLConnection.HTTP_SEE_OTHER || code == 307 || code == 308;
+    }
+
+    /**
+     * 从 Content-Range: bytes 0-8388607/123456789 中取出文件总大小
+     */
+    private static long totalSize(String contentRange) throws IOException {
+        int slash = contentRange == null ? -1 : contentRange.lastIndexOf('/');
+        if (slash < 0 || contentRange.endsWith("*")) {
+            throw new IOException("无法从 Content-Range 获取文件大小: " + contentRange);
+        }
+        try {
+            return Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("无法从 Content-Range 获取文件大小: " + contentRange);
+        }
+    }
+
+    /**
+     * 各 Range 并行下载；第一段之后先取最后一段，moov 在文件尾的 mp4 可以尽早开始解复用
+     */
+    private void downloadRanges(URL source, ChunkedUpload upload, HttpURLConnection first) throws IOException {
+        int count = upload.getChunkCount();
+        List<Integer> order = new ArrayList<>(count);
+        order.add(0);
+        if (count > 1) {
+            order.add(count - 1);
+        }
+        for (int i = 1; i < count - 1; i++) {
+            order.add(i);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(connections, count)), r -> {
+            Thread thread = new Thread(r, "UrlDownload-" + THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> ranges = new ArrayList<>(count);
+            for (int index : order) {
+                HttpURLConnection connection = index == 0 ? first : null;
+                ranges.add(pool.submit(() -> {
+                    fetchRange(source, upload, index, connection);
+                    return null;
+                }));
+            }
+            for (Future<?> range : ranges) {
+                try {
+                    range.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IOException(cause);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("下载被中断", e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 下载一个 Range 并写入对应分片，失败时重新请求该 Range，最多重试 retries 次
+     */
+    private void fetchRange(URL source, ChunkedUpload upload, int index, HttpURLConnection initial) throws IOException {
+        long start = (long) index * upload.getChunkSize();
+        long end = start + upload.chunkLength(index) - 1;
+        for (int attempt = 0; ; attempt++) {
+            HttpURLConnection connection = null;
+            try {
+                connection = attempt == 0 && initial != null ? initial : open(source, start, end);
+                int code = connection.getResponseCode();
+                String contentRange = connection.getHeaderField("Content-Range");
+                if (code != HttpURLConnection.HTTP_PARTIAL || contentRange == null
+                        || !contentRange.startsWith("bytes " + start + "-")) {
+                    throw new IOException("HTTP响应码 " + code + "，Content-Range: " + contentRange);
+                }
+                try (InputStream body = connection.getInputStream()) {
+                    chunkedUploadService.writeChunk(upload.getUploadId(), index, body);
+                }
+                return;
+            } catch (IOException e) {
+                if (attempt >= retries) {
+                    throw new IOException("第 " + index + " 段下载失败（已重试 " + retries + " 次）: " + e.getMessage(), e);
+                }
+                System.err.println("第 " + index + " 段下载失败，准备重试: " + e.getMessage());
+                backoff(attempt);
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        }
+    }
+
+    /**
+     * 顺序写入各分片；连接中断时重新请求整个文件，跳过已写入的分片后继续
+     */
+    private void downloadStream(URL source, ChunkedUpload upload, HttpURLConnection first) throws IOException {
+        int next = 0;
+        for (int attempt = 0; ; attempt++) {
+            HttpURLConnection connection = null;
+            try {
+                connection = attempt == 0 ? first : open(source, -1, -1);
+                int code = connection.getResponseCode();
+                if (code != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("HTTP响应码 " + code);
+                }
+                try (InputStream body = connection.getInputStream()) {
+                    skipFully(body, (long) next * upload.getChunkSize());
+                    for (; next < upload.getChunkCount(); next++) {
+                        chunkedUploadService.writeChunk(upload.getUploadId(), next, body);
+                    }
+                }
+                return;
+            } catch (IOException e) {
+                if (attempt >= retries) {
+                    throw new IOException("视频下载失败（已重试 " + retries + " 次）: " + e.getMessage(), e);
+                }
+                System.err.println("下载中断，已写入 " + next + "/" + upload.getChunkCount() + " 个分片，准备重试: " + e.getMessage());
+                backoff(attempt);
+            } finally {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+            }
+        }
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        while (bytes > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, bytes));
+            if (n < 0) {
+                throw new IOException("重新请求的内容比原文件短");
+            }
+            bytes -= n;
+        }
+    }
+
+    private static void backoff(int attempt) throws IOException {
+        try {
+            Thread.sleep(500L << Math.min(attempt, 4));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("下载被中断", e);
+        }
+    }
+}
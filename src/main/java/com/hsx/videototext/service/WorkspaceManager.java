@@ -0,0 +1,346 @@
+package com.hsx.videototext.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 临时文件的工作目录管理
+ * 每个任务（上传会话 ID 即任务 ID）在 {root}/jobs/{taskId} 下有自己的目录，上传的视频、提取的 WAV、字幕都写在里面；
+ * 结果移入去重缓存、任务结束后整个目录立即删除。jobs 目录的总大小超过配额或磁盘剩余空间不足时拒绝新任务，
+ * 已准入但尚未写完的上传按声明大小预留空间，并发的上传不会各自通过检查后合计超出配额；
+ * 后台定期清理不属于任何进行中任务、且长时间未修改的目录（进程崩溃后遗留的）；
+ * 分片上传会话的目录按最近一次收到分片的时间计算，客户端放弃上传后同样会被清理，不会一直占着配额
+ */
+@Component
+public class WorkspaceManager {
+
+    private static final String JOBS_DIR = "jobs";
+    private static final String SCRATCH_DIR = "scratch";
+
+    /**
+     * 准入检查时复用最近一次统计的占用，避免每个请求都遍历目录
+     */
+    private static final long USAGE_TTL_MILLIS = 5_000;
+
+    /**
+     * 进行中任务的登记值，清理线程不会删除
+     */
+    private static final long PINNED = Long.MAX_VALUE;
+
+    private File root = new File(System.getProperty("java.io.tmpdir"), "videoToText").getAbsoluteFile();
+
+    /**
+     * multipart 请求体的缓存目录，Tomcat 不会自动创建
+     */
+    @Value("${spring.servlet.multipart.location:}")
+    private String multipartLocation;
+
+    @Value("${video.workspace.quota-mb:20480}")
+    private long quotaMb;
+
+    @Value("${video.workspace.min-free-mb:1024}")
+    private long minFreeMb;
+
+    @Value("${video.workspace.sweep-interval-seconds:300}")
+    private long sweepIntervalSeconds;
+
+    @Value("${video.workspace.orphan-minutes:60}")
+    private long orphanMinutes;
+
+    /**
+     * 登记的目录：任务为 PINNED，上传会话为最近一次收到分片的时间
+     */
+    private final Map<String, Long> active = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    private long usedBytes;
+    private long usageMeasuredAt;
+
+    /**
+     * 已准入、尚未提交为任务的上传预留的字节数
+     */
+    private long reservedBytes;
+
+    @Value("${video.workspace.root:${java.io.tmpdir}/videoToText}")
+    public void setRoot(String value) {
+        root = new File(value).getAbsoluteFile();
+    }
+
+    /**
+     * 所有临时文件的根目录，去重缓存、任务日志默认也在其下
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * 不属于任何任务的临时文件（如工具方法下载的视频），由清理线程按修改时间删除
+     */
+    public File scratchDir() {
+        File dir = new File(root, SCRATCH_DIR);
+        dir.mkdirs();
+        return dir;
+    }
+
+    @PostConstruct
+    public void start() {
+        jobsDir().mkdirs();
+        if (multipartLocation != null && !multipartLocation.isEmpty()) {
+            File location = new File(multipartLocation);
+            if (!location.mkdirs() && !location.isDirectory()) {
+                throw new IllegalStateException("无法创建 multipart 缓存目录: " + location.getAbsolutePath());
+            }
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "WorkspaceSweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 首次清理在启动一个周期后进行，此时任务日志中未完成的任务已重新登记
+        long interval = Math.max(10, sweepIntervalSeconds);
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * 创建任务目录并登记为进行中
+     */
+    public File create(String taskId) throws IOException {
+        File dir = dir(taskId);
+        Files.createDirectories(dir.toPath());
+        active.put(taskId, PINNED);
+        return dir;
+    }
+
+    /**
+     * 创建上传会话的目录：超过 orphan-minutes 没有 touch 时视为被放弃，由清理线程删除；提交为任务后由 adopt 固定
+     */
+    public File createSession(String taskId) throws IOException {
+        File dir = dir(taskId);
+        Files.createDirectories(dir.toPath());
+        active.put(taskId, System.currentTimeMillis());
+        return dir;
+    }
+
+    /**
+     * 上传会话收到数据
+     */
+    public void touch(String taskId) {
+        active.computeIfPresent(taskId, (id, last) -> last == PINNED ? PINNED : System.currentTimeMillis());
+    }
+
+    public File dir(String taskId) {
+        return new File(jobsDir(), taskId);
+    }
+
+    /**
+     * 任务进入调度器（包括重启后恢复的任务）：固定已有的目录，不再按空闲时间清理
+     */
+    public void adopt(String taskId) {
+        active.put(taskId, PINNED);
+    }
+
+    /**
+     * 任务结束：删除整个目录
+     */
+    public void release(String taskId) {
+        active.remove(taskId);
+        deleteRecursively(dir(taskId).toPath());
+    }
+
+    /**
+     * 任务结束但目录中仍有被引用的文件（如结果未能移入缓存）：只取消登记，由清理线程在过期后删除
+     */
+    public void detach(String taskId) {
+        active.remove(taskId);
+    }
+
+    /**
+     * file 是否在该任务的目录中
+     */
+    public boolean contains(String taskId, File file) {
+        return file.getAbsoluteFile().toPath().startsWith(dir(taskId).toPath());
+    }
+
+    /**
+     * 在已预留的空间之外再写入 incomingBytes 后是否仍在配额内、磁盘是否还有足够的剩余空间
+     */
+    public synchronized boolean hasRoom(long incomingBytes) {
+        long incoming = Math.max(0, incomingBytes) + reservedBytes;
+        if (root.getUsableSpace() - incoming < minFreeMb * 1024 * 1024) {
+            return false;
+        }
+        return quotaMb <= 0 || getUsedBytes() + incoming <= quotaMb * 1024 * 1024;
+    }
+
+    /**
+     * 有空间时预留 bytes 并返回 true；检查与预留是原子的。上传期间已写入的部分与预留重复计算，宁可保守
+     */
+    public synchronized boolean reserve(long bytes) {
+        if (!hasRoom(bytes)) {
+            return false;
+        }
+        reservedBytes += Math.max(0, bytes);
+        return true;
+    }
+
+    /**
+     * 归还 reserve 预留的空间（上传放弃，或已提交为任务、文件已计入目录大小）
+     */
+    public synchronized void unreserve(long bytes) {
+        reservedBytes = Math.max(0, reservedBytes - Math.max(0, bytes));
+    }
+
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    /**
+     * 各任务目录的总大小
+     */
+    public synchronized long getUsedBytes() {
+        long now = System.currentTimeMillis();
+        if (now - usageMeasuredAt >= USAGE_TTL_MILLIS) {
+            usedBytes = directorySize(jobsDir().toPath());
+            usageMeasuredAt = now;
+        }
+        return usedBytes;
+    }
+
+    public long getQuotaBytes() {
+        return quotaMb * 1024 * 1024;
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    /**
+     * 删除不属于进行中任务、且超过 orphan-minutes 未修改的任务目录和 scratch 文件
+     */
+    void sweep() {
+        try {
+            long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(orphanMinutes);
+            int removed = 0;
+            long freed = 0;
+            File[] dirs = jobsDir().listFiles(File::isDirectory);
+            if (dirs != null) {
+                for (File dir : dirs) {
+                    Long last = active.get(dir.getName());
+                    if (last != null ? last > cutoff : dir.lastModified() > cutoff) {
+                        continue;
+                    }
+                    if (last != null) {
+                        System.out.println("上传会话 " + dir.getName() + " 超过 " + orphanMinutes + " 分钟没有收到数据，删除其工作目录");
+                        active.remove(dir.getName(), last);
+                    }
+                    freed += directorySize(dir.toPath());
+                    deleteRecursively(dir.toPath());
+                    removed++;
+                }
+            }
+            File[] scratch = new File(root, SCRATCH_DIR).listFiles();
+            if (scratch != null) {
+                for (File file : scratch) {
+                    if (file.lastModified() <= cutoff) {
+                        freed += file.length();
+                        deleteRecursively(file.toPath());
+                        removed++;
+                    }
+                }
+            }
+            if (removed > 0) {
+                System.out.println("已清理 " + removed + " 个遗留的临时目录或文件，释放 " + freed / 1024 / 1024 + "MB");
+                synchronized (this) {
+                    usageMeasuredAt = 0;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("清理临时目录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 各任务工作目录的父目录
+     */
+    public File jobsDir() {
+        return new File(root, JOBS_DIR);
+    }
+
+    /**
+     * 目录下所有文件的大小之和，遍历过程中被删除的文件忽略
+     */
+    public static long directorySize(Path dir) {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        long[] total = {0};
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    total[0] += attrs.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("统计目录大小失败: " + e.getMessage());
+        }
+        return total[0];
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                    Files.deleteIfExists(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            // Windows 上仍被打开的文件删不掉，留给清理线程
+            System.err.println("删除临时目录失败: " + path + "，" + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.Word;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * JSON 转写稿，也是保存的原始结果，其他格式都由它生成：
+ * {"cues":[{"start":1200,"end":3400,"text":"..","confidence":0.912,"words":[{"start":1200,"end":1500,"text":"..","confidence":0.9}]}]}
+ * 置信度未知时不输出 confidence，没有词级时间轴时不输出 words
+ */
+class JsonSubtitleWriter extends SubtitleWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    JsonSubtitleWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void header() {
+        sb.append("{\"cues\":[");
+    }
+
+    @Override
+    protected void cue(int index, Segment segment) {
+        if (index > 1) {
+            sb.append(',');
+        }
+        sb.append("\n{\"start\":").append(segment.getStartMs())
+                .append(",\"end\":").append(segment.getEndMs())
+                .append(",\"text\":");
+        appendString(segment.getText());
+        appendConfidence(segment.getConfidence());
+        if (segment.getWords() != null) {
+            sb.append(",\"words\":[");
+            for (int i = 0; i < segment.getWords().size(); i++) {
+                Word word = segment.getWords().get(i);
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"start\":").append(word.getStartMs())
+                        .append(",\"end\":").append(word.getEndMs())
+                        .append(",\"text\":");
+                appendString(word.getText());
+                appendConfidence(word.getConfidence());
+                sb.append('}');
+            }
+            sb.append(']');
+        }
+        sb.append('}');
+    }
+
+    @Override
+    protected void footer() {
+        sb.append("\n]}\n");
+    }
+
+    private void appendConfidence(double confidence) {
+        if (confidence >= 0) {
+            sb.append(",\"confidence\":");
+            appendFixed3(confidence);
+        }
+    }
+
+    private void appendString(String text) {
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c == '\n') {
+                sb.append("\\n");
+            } else if (c < 0x20) {
+                sb.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,26 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * SubRip：毫秒分隔符为逗号，没有文件头；正文不是标记语言，只去掉空行和 "-->"
+ */
+class SrtSubtitleWriter extends SubtitleWriter {
+
+    SrtSubtitleWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void cue(int index, Segment segment) {
+        sb.append(index).append('\n');
+        appendTime(segment.getStartMs(), ',');
+        sb.append(" --> ");
+        appendTime(segment.getEndMs(), ',');
+        sb.append('\n');
+        appendCueText(segment.getText(), false);
+        sb.append("\n\n");
+    }
+}
@@ -0,0 +1,88 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.Word;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字幕文件读写：识别结果保存为 JSON 转写稿，其他格式按需从转写稿生成，不需要重新识别
+ */
+public class SubtitleFiles {
+
+    private SubtitleFiles() {
+    }
+
+    /**
+     * 以 UTF-8 写出字幕文件
+     */
+    public static void write(List<Segment> segments, SubtitleFormat format, File file) throws IOException {
+        try (SubtitleWriter writer = format.newWriter(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            writer.begin();
+            for (Segment segment : segments) {
+                writer.write(segment);
+            }
+            writer.end();
+        }
+    }
+
+    /**
+     * 读取 JSON 转写稿
+     */
+    public static List<Segment> readTranscript(File transcript) throws IOException {
+        JSONArray cues = new JSONObject(new String(Files.readAllBytes(transcript.toPath()), StandardCharsets.UTF_8))
+                .getJSONArray("cues");
+        List<Segment> segments = new ArrayList<>(cues.length());
+        for (int i = 0; i < cues.length(); i++) {
+            JSONObject cue = cues.getJSONObject(i);
+            Segment segment = new Segment(cue.getLong("start"), cue.getLong("end"), cue.getString("text"));
+            segment.setConfidence(cue.optDouble("confidence", -1));
+            JSONArray words = cue.optJSONArray("words");
+            if (words != null) {
+                List<Word> list = new ArrayList<>(words.length());
+                for (int j = 0; j < words.length(); j++) {
+                    JSONObject word = words.getJSONObject(j);
+                    list.add(new Word(word.getLong("start"), word.getLong("end"), word.getString("text"),
+                            word.optDouble("confidence", -1)));
+                }
+                segment.setWords(list);
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    /**
+     * 返回转写稿对应格式的文件：放在转写稿旁边（xxx.json.srt），不存在或比转写稿旧时生成；
+     * 先写临时文件再原子替换，并发请求不会读到半个文件
+     */
+    public static File render(File transcript, SubtitleFormat format) throws IOException {
+        if (format == SubtitleFormat.JSON) {
+            return transcript;
+        }
+        File target = new File(transcript.getPath() + "." + format.getExtension());
+        if (target.isFile() && target.lastModified() >= transcript.lastModified()) {
+            return target;
+        }
+        File tmp = File.createTempFile(target.getName(), ".tmp", transcript.getAbsoluteFile().getParentFile());
+        try {
+            write(readTranscript(transcript), format, tmp);
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tmp.delete();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,58 @@
+package com.hsx.videototext.subtitle;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 支持的字幕/文本格式，名称即文件扩展名
+ */
+public enum SubtitleFormat {
+
+    VTT("vtt", "text/vtt"),
+    SRT("srt", "application/x-subrip"),
+    TTML("ttml", "application/ttml+xml"),
+    JSON("json", "application/json"),
+    TXT("txt", "text/plain");
+
+    private final String extension;
+    private final String contentType;
+
+    SubtitleFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public SubtitleWriter newWriter(WritableByteChannel channel) {
+        switch (this) {
+            case VTT:
+                return new VttSubtitleWriter(channel);
+            case SRT:
+                return new SrtSubtitleWriter(channel);
+            case TTML:
+                return new TtmlSubtitleWriter(channel);
+            case JSON:
+                return new JsonSubtitleWriter(channel);
+            default:
+                return new TextSubtitleWriter(channel);
+        }
+    }
+
+    /**
+     * 按扩展名查找，不区分大小写
+     */
+    public static SubtitleFormat of(String extension) {
+        for (SubtitleFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的字幕格式: " + extension);
+    }
+}
@@ -0,0 +1,220 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式字幕序列化：begin 写文件头，每条片段调用 write，end 写文件尾
+ * 每条字幕先拼到复用的 StringBuilder，再用 CharsetEncoder 直接编码进复用的字节缓冲区，缓冲区满时写入通道；
+ * 时间格式化和转义都直接追加字符，整个过程除 StringBuilder 扩容外不创建对象
+ * 非线程安全，多线程写入由调用方同步
+ */
+public abstract class SubtitleWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 子类把一条字幕的全部文本追加到这里
+     */
+    protected final StringBuilder sb = new StringBuilder(256);
+
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private char[] chars = new char[256];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private int count;
+    private boolean finished;
+
+    protected SubtitleWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    public final void begin() throws IOException {
+        header();
+        encode();
+    }
+
+    public final void write(Segment segment) throws IOException {
+        cue(++count, segment);
+        encode();
+    }
+
+    public final void end() throws IOException {
+        footer();
+        encode();
+        flush();
+    }
+
+    /**
+     * 已写入的字幕条数
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 把缓冲区中已编码的字节写入通道
+     */
+    public void flush() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * 结束编码（输出编码器中尚未写出的状态）后写入剩余字节并关闭通道
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished) {
+                finished = true;
+                charBuffer.clear();
+                charBuffer.limit(0);
+                while (encoder.encode(charBuffer, bytes, true).isOverflow()) {
+                    flush();
+                }
+                while (encoder.flush(bytes).isOverflow()) {
+                    flush();
+                }
+            }
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    protected void header() {
+    }
+
+    /**
+     * 追加第 index 条（从 1 开始）字幕
+     */
+    protected abstract void cue(int index, Segment segment);
+
+    protected void footer() {
+    }
+
+    private void encode() throws IOException {
+        int length = sb.length();
+        if (length == 0) {
+            return;
+        }
+        if (length > chars.length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        sb.getChars(0, length, chars, 0);
+        sb.setLength(0);
+        charBuffer.clear();
+        charBuffer.limit(length);
+        CoderResult result;
+        while ((result = encoder.encode(charBuffer, bytes, false)).isOverflow()) {
+            flush();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+    }
+
+    /**
+     * 追加一条字幕的正文：统一换行符，去掉空行（空行在 SRT/VTT 中表示字幕结束），
+     * 并把 "-->"（时间行分隔符）改写为 "->"；markup 为 true 时（VTT）再转义 &、<、>
+     */
+    protected void appendCueText(String text, boolean markup) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        boolean first = true;
+        for (int start = 0; start < length; ) {
+            int end = start;
+            while (end < length && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+                end++;
+            }
+            if (!isBlank(text, start, end)) {
+                if (!first) {
+                    sb.append('\n');
+                }
+                first = false;
+                appendCueLine(text, start, end, markup);
+            }
+            if (end + 1 < length && text.charAt(end) == '\r' && text.charAt(end + 1) == '\n') {
+                end++;
+            }
+            start = end + 1;
+        }
+    }
+
+    private void appendCueLine(String text, int start, int end, boolean markup) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (markup && c == '&') {
+                sb.append("&amp;");
+            } else if (markup && c == '<') {
+                sb.append("&lt;");
+            } else if (markup && c == '>') {
+                sb.append("&gt;");
+            } else if (c == '-' && i + 2 < end && text.charAt(i + 1) == '-' && text.charAt(i + 2) == '>') {
+                sb.append("->");
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 追加 00:01:02.345 形式的时间，separator 为秒和毫秒之间的分隔符（VTT 为点，SRT 为逗号）
+     */
+    protected void appendTime(long ms, char separator) {
+        appendPadded(ms / 3_600_000, 2);
+        sb.append(':');
+        appendPadded(ms / 60_000 % 60, 2);
+        sb.append(':');
+        appendPadded(ms / 1000 % 60, 2);
+        sb.append(separator);
+        appendPadded(ms % 1000, 3);
+    }
+
+    private void appendPadded(long value, int width) {
+        for (long limit = 10; width > 1; width--, limit *= 10) {
+            if (value < limit) {
+                sb.append('0');
+            }
+        }
+        sb.append(value);
+    }
+
+    /**
+     * 追加保留三位小数的非负数，如置信度 0.912
+     */
+    protected void appendFixed3(double value) {
+        long thousandths = Math.round(value * 1000);
+        sb.append(thousandths / 1000).append('.');
+        appendPadded(thousandths % 1000, 3);
+    }
+}
@@ -0,0 +1,23 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 纯文本：各句以空格连接，不带时间轴
+ */
+class TextSubtitleWriter extends SubtitleWriter {
+
+    TextSubtitleWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void cue(int index, Segment segment) {
+        if (index > 1) {
+            sb.append(' ');
+        }
+        sb.append(segment.getText());
+    }
+}
@@ -0,0 +1,59 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * TTML：每条字幕一个 p 元素，begin/end 为媒体时间
+ */
+class TtmlSubtitleWriter extends SubtitleWriter {
+
+    TtmlSubtitleWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void header() {
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<tt xmlns=\"http://www.w3.org/ns/ttml\">\n<body>\n<div>\n");
+    }
+
+    @Override
+    protected void cue(int index, Segment segment) {
+        sb.append("<p begin=\"");
+        appendTime(segment.getStartMs(), '.');
+        sb.append("\" end=\"");
+        appendTime(segment.getEndMs(), '.');
+        sb.append("\">");
+        appendEscaped(segment.getText());
+        sb.append("</p>\n");
+    }
+
+    @Override
+    protected void footer() {
+        sb.append("</div>\n</body>\n</tt>\n");
+    }
+
+    private void appendEscaped(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * WebVTT：UTF-8 无 BOM，毫秒分隔符为点；正文按 cue text 转义，识别结果中的 < 和 & 不会被当成标签或实体
+ */
+class VttSubtitleWriter extends SubtitleWriter {
+
+    VttSubtitleWriter(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void header() {
+        sb.append("WEBVTT\n\n");
+    }
+
+    @Override
+    protected void cue(int index, Segment segment) {
+        sb.append(index).append('\n');
+        appendTime(segment.getStartMs(), '.');
+        sb.append(" --> ");
+        appendTime(segment.getEndMs(), '.');
+        sb.append('\n');
+        appendCueText(segment.getText(), true);
+        sb.append("\n\n");
+    }
+}
@@ -0,0 +1,234 @@
+package com.hsx.videototext.utils;
+
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 结果文件下载：强 ETag（文件长度和修改时间）、If-None-Match 返回 304、单段 Range 返回 206、
+ * 客户端接受 gzip 且调用方允许时返回放在原文件旁的 .gz 预压缩版本（首次请求时生成）
+ * 响应体优先交给 Tomcat sendfile（FileChannel.transferTo，不经过堆内存），不支持时用 transferTo 写到响应流
+ */
+public class FileDownloadUtil {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 小于该大小的文件不值得压缩
+     */
+    private static final long GZIP_MIN_SIZE = 1024;
+
+    private FileDownloadUtil() {
+    }
+
+    /**
+     * 输出文件；文件不存在时返回 404
+     *
+     * @param maxAgeSeconds Cache-Control 的 max-age，结果文件生成后不再修改，可由 CDN 和浏览器缓存
+     * @param compress      是否允许在原文件旁生成 .gz，只对输出目录中的文件开启
+     */
+    public static void serve(File file, String contentType, long maxAgeSeconds, boolean compress,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(file, contentType, maxAgeSeconds, true, compress, request, response);
+    }
+
+    /**
+     * 输出仍在写入的文件（如识别中的字幕）：禁止缓存，不压缩、不带 ETag，Range 按当前已写入的长度计算
+     */
+    public static void servePartial(File file, String contentType, HttpServletRequest request,
+                                    HttpServletResponse response) throws IOException {
+        serve(file, contentType, 0, false, false, request, response);
+    }
+
+    /**
+     * file 是否位于 roots 中某个目录之下；按规范路径比较，"../" 和符号链接都先解析
+     */
+    public static boolean isWithin(File file, File... roots) throws IOException {
+        Path path = file.getCanonicalFile().toPath();
+        for (File root : roots) {
+            if (path.startsWith(root.getCanonicalFile().toPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void serve(File file, String contentType, long maxAgeSeconds, boolean finished, boolean compress,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!file.isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String range = request.getHeader(HttpHeaders.RANGE);
+        // 分段请求的偏移按原文件计算，只在整体下载时使用压缩版本
+        boolean gzip = compress && range == null && file.length() >= GZIP_MIN_SIZE && acceptsGzip(request);
+        File body = gzip ? gzipVariant(file) : file;
+        String etag = finished ? etag(file, gzip) : null;
+
+        if (finished) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + maxAgeSeconds);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, file.lastModified());
+        } else {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"");
+        response.setContentType(contentType + ";charset=UTF-8");
+
+        if (etag != null && matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long length = body.length();
+        long start = 0;
+        long end = length;
+        // If-Range 与当前 ETag 不一致说明客户端缓存的是旧内容，整体返回
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag) || !finished)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLengthLong(end - start);
+        transfer(body, start, end, finished, request, response);
+    }
+
+    /**
+     * sendfile 在响应提交后才读文件，仍在写入的文件按调用时的长度在此直接写出
+     */
+    private static void transfer(File file, long start, long end, boolean finished, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        if (finished && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, target);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 解析 Range 头：返回 [start, end)；多段请求返回空数组（按整体返回）；无法满足时返回 null
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-N：最后 N 个字节
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, length - suffix);
+                end = length;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? length : Math.min(length, Long.parseLong(last) + 1);
+            }
+            return start < length && start < end ? new long[]{start, end} : null;
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return accept != null && accept.toLowerCase().contains("gzip");
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 结果文件写完后只会被整体替换，长度和修改时间足以区分内容，不必读文件计算哈希
+     */
+    private static String etag(File file, boolean gzip) {
+        // 压缩版本是不同的表示，使用不同的强 ETag
+        return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified())
+                + (gzip ? "-gz" : "") + "\"";
+    }
+
+    /**
+     * 原文件旁的 .gz 文件，不存在或比原文件旧时重新生成；先写临时文件再原子替换，并发请求不会读到半个文件
+     */
+    private static File gzipVariant(File file) throws IOException {
+        File gz = new File(file.getPath() + ".gz");
+        if (gz.isFile() && gz.lastModified() >= file.lastModified()) {
+            return gz;
+        }
+        File tmp = File.createTempFile(file.getName(), ".gz.tmp", file.getAbsoluteFile().getParentFile());
+        try (InputStream in = Files.newInputStream(file.toPath());
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp.toPath()))) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                out.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        Files.move(tmp.toPath(), gz.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return gz;
+    }
+}
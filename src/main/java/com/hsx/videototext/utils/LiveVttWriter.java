@@ -0,0 +1,53 @@
+package com.hsx.videototext.utils;
+
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.subtitle.SubtitleFormat;
+import com.hsx.videototext.subtitle.SubtitleWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 边识别边写 VTT：创建时写入文件头，每追加一条字幕立即写入文件，处理过程中下载到的是已识别出的部分
+ * 可从多个线程调用；写入失败只记录一次日志，不影响识别
+ */
+public class LiveVttWriter implements Closeable {
+
+    private final SubtitleWriter writer;
+    private boolean failed;
+
+    public LiveVttWriter(String vttPath) throws IOException {
+        writer = SubtitleFormat.VTT.newWriter(FileChannel.open(Paths.get(vttPath),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        writer.begin();
+        writer.flush();
+    }
+
+    public synchronized void append(Segment segment) {
+        if (failed) {
+            return;
+        }
+        try {
+            writer.write(segment);
+            writer.flush();
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("写入实时字幕失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 已完整写入的字幕条数，写入失败时返回 -1
+     */
+    public synchronized int getCount() {
+        return failed ? -1 : writer.getCount();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,17 +1,36 @@
 package com.hsx.videototext.utils;
 
+import com.hsx.videototext.audio.DecodeProfile;
+import com.hsx.videototext.audio.PcmBuffer;
+import com.hsx.videototext.audio.PcmDecoder;
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.audio.WavFiles;
+import com.hsx.videototext.engine.LiveSegments;
+import com.hsx.videototext.engine.SphinxRecognizerPool;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.subtitle.SubtitleFiles;
+import com.hsx.videototext.subtitle.SubtitleFormat;
+import com.hsx.videototext.websocket.ProgressWebSocketHandler;
 import edu.cmu.sphinx.api.Configuration;
-import edu.cmu.sphinx.api.SpeechResult;
-import edu.cmu.sphinx.api.StreamSpeechRecognizer;
+import org.bytedeco.ffmpeg.global.avcodec;
 import org.bytedeco.javacv.FFmpegFrameGrabber;
 import org.bytedeco.javacv.FFmpegFrameRecorder;
 import org.bytedeco.javacv.Frame;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * 英语语音转文字工具类
@@ -20,7 +39,8 @@ import java.util.Random;
 public class SpeechToWavUtil {
 
     /**
-     * 从视频中提取音频并保存为WAV文件
+     * 从视频中提取音频并保存为 16kHz 单声道 WAV 文件（Sphinx 英语模型的输入格式）
+     * 只解码音频流，解码参数见 DecodeProfile
      */
     public static String extractAudioToWav(String videoPath) throws Exception {
         File file = new File(videoPath);
@@ -29,37 +49,32 @@ public class SpeechToWavUtil {
         }
 
         FFmpegFrameGrabber frameGrabber = new FFmpegFrameGrabber(videoPath);
-        Frame frame = null;
         FFmpegFrameRecorder recorder = null;
         String fileName = null;
 
         try {
-            frameGrabber.start();
+            DecodeProfile.start(frameGrabber);
 
             Random random = new Random();
             fileName = videoPath.substring(0, videoPath.lastIndexOf('.')) + "_audio_" + random.nextInt(100) + ".wav";
             System.out.println("生成的音频文件名: " + fileName);
 
-            recorder = new FFmpegFrameRecorder(fileName, frameGrabber.getAudioChannels());
+            recorder = new FFmpegFrameRecorder(fileName, 1);
             recorder.setFormat("wav");
-            recorder.setSampleRate(frameGrabber.getSampleRate());
-            recorder.setTimestamp(frameGrabber.getTimestamp());
+            recorder.setSampleRate(PcmPipe.SAMPLE_RATE);
+            recorder.setAudioCodec(avcodec.AV_CODEC_ID_PCM_S16LE);
             recorder.setAudioQuality(0);
             recorder.start();
 
-            int index = 0;
-            while (true) {
-                frame = frameGrabber.grab();
-                if (frame == null) {
-                    System.out.println("视频处理完成");
-                    break;
-                }
+            Frame frame;
+            int frameCount = 0;
+            while ((frame = frameGrabber.grabSamples()) != null) {
                 if (frame.samples != null) {
                     recorder.recordSamples(frame.sampleRate, frame.audioChannels, frame.samples);
+                    frameCount++;
                 }
-                System.out.println("处理帧: " + index);
-                index++;
             }
+            System.out.println("音频提取完成，共处理 " + frameCount + " 帧");
 
             return fileName;
         } finally {
@@ -67,58 +82,99 @@ public class SpeechToWavUtil {
                 try { recorder.stop(); } catch (Exception e) { e.printStackTrace(); }
                 try { recorder.release(); } catch (Exception e) { e.printStackTrace(); }
             }
-            if (frameGrabber != null) {
-                try { frameGrabber.stop(); } catch (Exception e) { e.printStackTrace(); }
-            }
+            try { frameGrabber.stop(); } catch (Exception e) { e.printStackTrace(); }
+            try { frameGrabber.release(); } catch (Exception e) { e.printStackTrace(); }
         }
     }
 
     /**
-     * 将英语音频转换为文字
+     * Sphinx4 英语模型配置
      */
-    public static String transcribeEnglishAudio(String audioFilePath) throws IOException {
+    public static Configuration englishConfiguration() {
         Configuration configuration = new Configuration();
 
         // 设置英语模型路径
         configuration.setAcousticModelPath("resource:/edu/cmu/sphinx/models/en-us/en-us");
         configuration.setDictionaryPath("resource:/edu/cmu/sphinx/models/en-us/cmudict-en-us.dict");
         configuration.setLanguageModelPath("resource:/edu/cmu/sphinx/models/en-us/en-us.lm.bin");
+        return configuration;
+    }
 
-        StreamSpeechRecognizer recognizer = new StreamSpeechRecognizer(configuration);
+    /**
+     * 将英语音频（16kHz 单声道 WAV）转换为文字，WAV 以内存映射方式读取
+     */
+    public static String transcribeEnglishAudio(SphinxRecognizerPool pool, String audioFilePath) throws IOException {
+        return transcribeEnglishAudio(pool, PcmBuffer.asInputStream(WavFiles.map(new File(audioFilePath))));
+    }
+
+    /**
+     * 将英语音频流（16kHz 单声道 s16le）转换为文字，边读边识别；识别器从传入的池中借用
+     */
+    public static String transcribeEnglishAudio(SphinxRecognizerPool pool, InputStream stream) throws IOException {
         StringBuilder resultText = new StringBuilder();
-        
-        try (InputStream stream = new FileInputStream(new File(audioFilePath))) {
-            recognizer.startRecognition(stream);
-            SpeechResult result;
-            
-            while ((result = recognizer.getResult()) != null) {
-                String hypothesis = result.getHypothesis();
-                resultText.append(hypothesis).append(" ");
-                System.out.println("识别结果: " + hypothesis);
-            }
-        } finally {
-            recognizer.stopRecognition();
-        }
-        
+
+        pool.recognize(stream, result -> {
+            String hypothesis = result.getHypothesis();
+            resultText.append(hypothesis).append(" ");
+            System.out.println("识别结果: " + hypothesis);
+        });
+
         return resultText.toString().trim();
     }
 
     /**
      * 完整的英语视频转文字流程
+     * 解码线程把 16kHz PCM 写入有界缓冲，识别器同时从缓冲读取，不生成中间 WAV 文件
      */
-    public static String videoToEnglishText(String videoPath) throws Exception {
-        // 1. 提取音频
-        String audioPath = extractAudioToWav(videoPath);
-        
-        // 2. 语音转文字
-        String text = transcribeEnglishAudio(audioPath);
-        
+    public static String videoToEnglishText(SphinxRecognizerPool pool, String videoPath) throws Exception {
+        File file = new File(videoPath);
+        if (!file.exists()) {
+            throw new IOException("视频文件不存在: " + videoPath);
+        }
+
+        // 1. 后台解码音频
+        String text;
+        try (PcmPipe pipe = new PcmPipe()) {
+            Future<?> decoding = PcmDecoder.start(videoPath, pipe);
+
+            // 2. 语音转文字（与解码并行）
+            text = transcribeEnglishAudio(pool, pipe.asInputStream());
+            try {
+                decoding.get();
+            } catch (ExecutionException e) {
+                throw new IOException("音频解码失败: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
         // 3. 生成文本文件
         String textFilePath = videoPath.substring(0, videoPath.lastIndexOf('.')) + "_transcription.txt";
-        try (java.io.FileWriter writer = new java.io.FileWriter(textFilePath)) {
-            writer.write(text);
+        Files.write(Paths.get(textFilePath), text.getBytes(StandardCharsets.UTF_8));
+
+        return textFilePath;
+    }
+
+    /**
+     * 用指定引擎完成英语视频转文字，返回文本文件路径
+     */
+    public static String videoToEnglishText(String videoPath, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
+        // 识别出的句子实时推送给客户端
+        Consumer<Segment> previous = LiveSegments.bind(ProgressWebSocketHandler.emitter()::cue);
+        List<Segment> segments;
+        try {
+            segments = VideoToWavUtil.transcribe(videoPath, engine, options);
+        } finally {
+            LiveSegments.restore(previous);
         }
-        
+
+        long subtitleStart = System.nanoTime();
+        String basePath = videoPath.substring(0, videoPath.lastIndexOf('.'));
+        String transcriptPath = basePath + "_transcription.json";
+        SubtitleFiles.write(segments, SubtitleFormat.JSON, new File(transcriptPath));
+        options.setTranscriptPath(transcriptPath);
+
+        String textFilePath = basePath + "_transcription.txt";
+        SubtitleFiles.write(segments, SubtitleFormat.TXT, new File(textFilePath));
+        PipelineMetrics.record(PipelineMetrics.SUBTITLE, engine, options.getModel(), subtitleStart);
         return textFilePath;
     }
-}
\ No newline at end of file
+}
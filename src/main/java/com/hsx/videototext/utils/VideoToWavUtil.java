@@ -9,11 +9,37 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.*;
 import java.net.URL;
 import java.net.HttpURLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import com.hsx.videototext.audio.DecodeProfile;
+import com.hsx.videototext.audio.PcmBuffer;
+import com.hsx.videototext.audio.PcmDecoder;
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.engine.LiveSegments;
+import com.hsx.videototext.engine.ParallelTranscriber;
+import com.hsx.videototext.engine.TranscriptionEngine;
+import com.hsx.videototext.metrics.PipelineMetrics;
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import com.hsx.videototext.subtitle.SubtitleFiles;
+import com.hsx.videototext.subtitle.SubtitleFormat;
+import com.hsx.videototext.websocket.ProgressEmitter;
+import com.hsx.videototext.websocket.ProgressStage;
 import com.hsx.videototext.websocket.ProgressWebSocketHandler;
 
 /**
@@ -22,29 +48,24 @@ import com.hsx.videototext.websocket.ProgressWebSocketHandler;
 public class VideoToWavUtil {
 
     /**
-     * 完整的视频转字幕流程（从在线视频URL）
+     * 完整的视频转字幕流程（从在线视频URL），视频下载到 dir 下
      */
-    public static String videoUrlToVtt(String videoUrl) throws Exception {
+    public static String videoUrlToVtt(String videoUrl, File dir, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
         // 1. 下载在线视频
-        File videoFile = downloadVideoFromUrl(videoUrl);
+        File videoFile = downloadVideoFromUrl(videoUrl, dir);
 
         // 2. 处理视频生成字幕
-        return processVideoToVtt(videoFile);
+        return processVideoToVtt(videoFile, engine, options);
     }
 
     /**
-     * 从在线视频URL下载视频
+     * 从在线视频URL下载视频，保存在 dir 下（通常为 WorkspaceManager.scratchDir()），调用方用完后删除（遗留的由清理线程删除）
      */
-    public static File downloadVideoFromUrl(String videoUrl) throws IOException {
+    public static File downloadVideoFromUrl(String videoUrl, File dir) throws IOException {
         System.out.println("开始下载在线视频: " + videoUrl);
 
         // 创建临时文件
-        File customTempDir = new File("F:/temp_dir");
-        if (!customTempDir.exists()) {
-            customTempDir.mkdirs();
-        }
-        File tempFile = File.createTempFile("temp_video_", ".mp4", customTempDir);
-        tempFile.deleteOnExit();
+        File tempFile = File.createTempFile("temp_video_", ".mp4", dir);
 
         HttpURLConnection connection = null;
         InputStream inputStream = null;
@@ -86,68 +107,204 @@ public class VideoToWavUtil {
     /**
      * 处理视频生成VTT字幕
      */
-    public static String UploadVideo(MultipartFile file) throws Exception {
+    public static String UploadVideo(MultipartFile file, File dir, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
         ProgressWebSocketHandler.sendProgress("开始处理上传的视频文件...");
         ProgressWebSocketHandler.sendProgress("文件大小: " + (file.getSize() / 1024 / 1024) + " MB");
 
-        // 创建临时目录
-        File customTempDir = new File("F:/temp_dir");
-        if (!customTempDir.exists()) {
-            customTempDir.mkdirs();
-        }
-
         // 将MultipartFile保存到临时文件
-        File tempFile = File.createTempFile("uploaded_video_", ".mp4", customTempDir);
-        tempFile.deleteOnExit();
-
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        UploadedVideo upload = saveUpload(file, dir, "uploaded_video_" + UUID.randomUUID());
 
         // 处理视频生成字幕
-        String result = processVideoToVtt(tempFile);
+        String result = processVideoToVtt(upload.getFile(), engine, options);
 
         ProgressWebSocketHandler.sendProgress("视频处理完成！");
         return result;
     }
 
+    /**
+     * 将上传文件写到 dir 下的 {name}.mp4（通常 dir 为任务的工作目录），写入的同时计算 MD5，不再单独读一遍文件
+     */
+    public static UploadedVideo saveUpload(MultipartFile file, File dir, String name) throws IOException {
+        File tempFile = new File(dir.getAbsoluteFile(), name + ".mp4");
+        MessageDigest digest = md5Digest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return new UploadedVideo(tempFile, toHex(digest.digest()), tempFile.length());
+    }
+
+    /**
+     * 用直接缓冲区顺序读取文件计算 MD5
+     */
+    public static String md5Hex(File file) throws IOException {
+        MessageDigest digest = md5Digest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest md5Digest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
     /**
      * 从视频文件到VTT字幕
+     * 识别过程中每得到一条字幕就追加到 VTT 文件并推送给客户端，识别结束时字幕文件已基本写完
      */
-    public static String processVideoToVtt(File videoFile) throws Exception {
+    public static String processVideoToVtt(File videoFile, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
         ProgressWebSocketHandler.sendProgress("开始视频处理流程...");
 
-        // 1. 提取音频
-        ProgressWebSocketHandler.sendProgress("步骤1/3: 准备提取音频...");
-        String audioPath = extractAudioFromVideo(videoFile.getAbsolutePath());
+        String videoPath = videoFile.getAbsolutePath();
+        String vttPath = videoPath.replace(".mp4", ".vtt");
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+
+        // 1-2. 提取音频并语音转文字，字幕实时写入
+        List<Segment> segments;
+        int written;
+        try (LiveVttWriter live = new LiveVttWriter(vttPath)) {
+            options.setSubtitlePath(vttPath);
+            Consumer<Segment> previous = LiveSegments.bind(segment -> {
+                live.append(segment);
+                emitter.cue(segment);
+            });
+            try {
+                segments = transcribe(videoPath, engine, options);
+            } finally {
+                LiveSegments.restore(previous);
+            }
+            written = live.getCount();
+        }
 
-        // 2. 语音转文字
-        ProgressWebSocketHandler.sendProgress("步骤2/3: 准备语音转文字...");
-        String subtitleText = transcribeAudio(audioPath);
+        // 保存 JSON 转写稿，其他字幕格式按需由它生成
+        long subtitleStart = System.nanoTime();
+        String transcriptPath = videoPath.replace(".mp4", ".json");
+        SubtitleFiles.write(segments, SubtitleFormat.JSON, new File(transcriptPath));
+        options.setTranscriptPath(transcriptPath);
+
+        // 3. 实时写入的字幕与最终结果不一致时（引擎未逐条输出或写入失败）重新生成VTT文件
+        if (written == segments.size()) {
+            emitter.stage(ProgressStage.SUBTITLE, "步骤3/3: 字幕已在识别过程中写入，共 " + written + " 条");
+        } else {
+            emitter.stage(ProgressStage.SUBTITLE, "步骤3/3: 准备生成字幕文件...");
+            generateVttFile(segments, vttPath);
+        }
+        PipelineMetrics.record(PipelineMetrics.SUBTITLE, engine, options.getModel(), subtitleStart);
+        return vttPath;
+    }
 
-        // 3. 生成VTT文件
-        ProgressWebSocketHandler.sendProgress("步骤3/3: 准备生成字幕文件...");
-        return generateVttFile(subtitleText, audioPath);
+    /**
+     * 用指定引擎识别视频中的语音
+     * 并行度为 1 时：流式引擎边解码边识别，不生成中间 WAV，其余引擎先提取 16kHz WAV 再识别；
+     * 否则准备好整段音频（短视频在内存缓冲中，长视频为内存映射的 WAV）后在静音处切段，多段并行识别；
+     * 不支持窗口识别的引擎始终按并行度 1 处理
+     */
+    public static List<Segment> transcribe(String videoPath, TranscriptionEngine engine, TranscribeOptions options) throws Exception {
+        ParallelTranscriber.normalize(engine, options);
+        String model = options.getModel();
+        long start = System.nanoTime();
+        List<Segment> segments;
+        if (options.getParallelism() != 1) {
+            // 1. 提取音频
+            String audioPath = prepareAudio(videoPath, options);
+
+            // 2. 分段并行语音转文字
+            ProgressWebSocketHandler.emitter().stage(ProgressStage.TRANSCRIBE, "步骤2/3: 准备分段并行语音转文字(" + engine.getName() + ")...");
+            try {
+                segments = audioPath != null
+                        ? ParallelTranscriber.transcribe(new File(audioPath), engine, options)
+                        : ParallelTranscriber.transcribe(options.getPcm().samples(), engine, options);
+            } finally {
+                releasePcm(options);
+            }
+        } else if (engine.isStreaming()) {
+            // 已有提取好的 WAV 时直接读 WAV，省去视频解复用和音频解码
+            String source = options.getAudioPath() != null ? options.getAudioPath() : videoPath;
+            ProgressWebSocketHandler.emitter().stage(ProgressStage.TRANSCRIBE, "步骤1-2/3: 解码音频并进行语音识别(" + engine.getName() + ")...");
+            try (PcmPipe pipe = new PcmPipe()) {
+                Future<?> decoding = PcmDecoder.start(source, pipe);
+                segments = engine.transcribe(pipe, model);
+                try {
+                    decoding.get();
+                } catch (ExecutionException e) {
+                    throw new IOException("音频解码失败: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } else {
+            // 1. 提取音频
+            String audioPath = prepareAudio(videoPath, options);
+
+            // 2. 语音转文字
+            ProgressWebSocketHandler.emitter().stage(ProgressStage.TRANSCRIBE, "步骤2/3: 准备语音转文字(" + engine.getName() + ")...");
+            segments = engine.transcribe(new File(audioPath), model);
+        }
+        PipelineMetrics.record(PipelineMetrics.TRANSCRIBE, engine, model, start);
+        ProgressWebSocketHandler.sendProgress("语音转文字完成，共识别 " + segments.size() + " 个片段");
+        return segments;
+    }
+
+    /**
+     * 返回可用的 16kHz WAV：已有则直接使用，否则从视频提取并回填到 options
+     * 分段识别的短视频（不超过 decode.in-memory-max-seconds）解码到缓冲池的堆外内存，放在 options.pcm 中并返回 null
+     */
+    public static String prepareAudio(String videoPath, TranscribeOptions options) throws Exception {
+        if (options.getAudioPath() != null && new File(options.getAudioPath()).isFile()) {
+            ProgressWebSocketHandler.emitter().stage(ProgressStage.EXTRACT, "步骤1/3: 使用已提取的音频，跳过提取");
+            return options.getAudioPath();
+        }
+        if (options.getPcm() != null) {
+            return null;
+        }
+        ProgressWebSocketHandler.emitter().stage(ProgressStage.EXTRACT, "步骤1/3: 准备提取音频...");
+        if (options.getParallelism() != 1) {
+            PcmBuffer pcm = PcmDecoder.decodeToBuffer(videoPath);
+            if (pcm != null) {
+                options.setPcm(pcm);
+                ProgressWebSocketHandler.emitter().message("音频已解码到内存，共 " + pcm.size() / PcmPipe.SAMPLE_RATE + " 秒");
+                return null;
+            }
+        }
+        String audioPath = extractAudioFromVideo(videoPath);
+        options.setAudioPath(audioPath);
+        return audioPath;
     }
 
     /**
      * 从视频中提取音频
+     * 只解码音频流（grabSamples），解码参数见 DecodeProfile；进度按已解码帧的时间戳（毫秒）占容器总时长的比例计算，整个文件只读一遍
      */
-    private static String extractAudioFromVideo(String videoPath) throws Exception {
-        System.out.println("开始从视频中提取音频...");
-        ProgressWebSocketHandler.sendProgress("开始从视频中提取音频...");
+    public static String extractAudioFromVideo(String videoPath) throws Exception {
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+        emitter.message("开始从视频中提取音频...");
 
         String audioPath = videoPath.replace(".mp4", "_audio.wav");
         FFmpegFrameGrabber grabber = null;
         FFmpegFrameRecorder recorder = null;
 
         try {
-            ProgressWebSocketHandler.sendProgress("正在初始化音频提取器...");
             grabber = new FFmpegFrameGrabber(videoPath);
-            grabber.start();
-            grabber.setAudioStream(0); // 选择第一个音频流
+            DecodeProfile.start(grabber);
+
+            // 容器时长（微秒），部分流式封装可能拿不到，此时只报告已处理时长
+            long totalTime = grabber.getLengthInTime();
 
-            ProgressWebSocketHandler.sendProgress("正在配置音频录制器...");
             recorder = new FFmpegFrameRecorder(audioPath, 1); // 单声道
             recorder.setFormat("wav");
             recorder.setSampleRate(16000);
@@ -158,37 +315,20 @@ public class VideoToWavUtil {
             recorder.setAudioQuality(0);
             recorder.start();
 
-            ProgressWebSocketHandler.sendProgress("开始提取音频数据...");
             Frame frame;
             int frameCount = 0;
-            int totalFrames = 0;
-
-            // 先计算总帧数（用于进度计算）
-            while ((frame = grabber.grab()) != null) {
-                if (frame.samples != null) {
-                    totalFrames++;
-                }
-            }
 
-            // 重新开始提取
-            grabber.stop();
-            grabber.start();
-            grabber.setAudioStream(0);
-
-            while ((frame = grabber.grab()) != null) {
-                if (frame.samples != null) {
-                    recorder.recordSamples(frame.sampleRate, frame.audioChannels, frame.samples);
-                    frameCount++;
-                    if (frameCount % 50 == 0) {
-                        int progress = (int) ((frameCount * 100.0) / totalFrames);
-                        System.out.println("音频提取进度: " + progress + "% (" + frameCount + "/" + totalFrames + ")");
-                        ProgressWebSocketHandler.sendProgress("音频提取进度: " + progress + "% (" + frameCount + "/" + totalFrames + ")");
-                    }
+            // 只抓取音频帧，视频流已在解复用层丢弃
+            while ((frame = grabber.grabSamples()) != null) {
+                if (frame.samples == null) {
+                    continue;
                 }
+                recorder.recordSamples(frame.sampleRate, frame.audioChannels, frame.samples);
+                frameCount++;
+                emitter.progress(grabber.getTimestamp() / 1000, totalTime / 1000);
             }
 
-            System.out.println("音频提取完成，共处理 " + frameCount + " 帧");
-            ProgressWebSocketHandler.sendProgress("音频提取完成，共处理 " + frameCount + " 帧");
+            emitter.message("音频提取完成，共处理 " + frameCount + " 帧");
 
         } finally {
             if (recorder != null) {
@@ -205,119 +345,24 @@ public class VideoToWavUtil {
     }
 
     /**
-     * 语音转文字
+     * 把解码到内存的音频归还缓冲池，可重复调用
      */
-    private static String transcribeAudio(String audioPath) throws Exception {
-        System.out.println("开始语音转文字...");
-        ProgressWebSocketHandler.sendProgress("开始语音转文字...");
-
-        String pythonScriptPath = "F:\\test\\fasterWhisper.py";
-        ProcessBuilder pb = new ProcessBuilder("python", pythonScriptPath, audioPath);
-        pb.redirectErrorStream(true);
-
-        ProgressWebSocketHandler.sendProgress("正在启动Whisper语音识别引擎...");
-        Process process = pb.start();
-        StringBuilder output = new StringBuilder();
-        int lineCount = 0;
-
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                lineCount++;
-                System.out.println("[Whisper] " + line); // 实时输出转写进度
-
-                // 智能解析Whisper输出
-                if (line.contains("Loading model")) {
-                    ProgressWebSocketHandler.sendProgress("正在加载Whisper模型...");
-                } else if (line.contains("Transcribing")) {
-                    ProgressWebSocketHandler.sendProgress("正在转写音频内容...");
-                } else if (line.contains("Processing")) {
-                    ProgressWebSocketHandler.sendProgress("正在处理音频片段...");
-                } else if (line.contains("Detected language")) {
-                    ProgressWebSocketHandler.sendProgress("检测到语言: " + line);
-                } else if (line.contains("Transcription completed")) {
-                    ProgressWebSocketHandler.sendProgress("转写完成！");
-                } else if (lineCount % 10 == 0) {
-                    // 每10行输出一次进度
-                    ProgressWebSocketHandler.sendProgress("语音转写进行中... (已处理 " + lineCount + " 行输出)");
-                }
-            }
-        }
-
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new RuntimeException("语音转文字失败，退出码: " + exitCode);
+    public static void releasePcm(TranscribeOptions options) {
+        PcmBuffer pcm = options.getPcm();
+        if (pcm != null) {
+            options.setPcm(null);
+            pcm.close();
         }
-
-        System.out.println("语音转文字完成");
-        ProgressWebSocketHandler.sendProgress("语音转文字完成，共处理 " + lineCount + " 行输出");
-        return output.toString();
     }
 
     /**
      * 生成VTT字幕文件（确保UTF-8无BOM编码）
      */
-    private static String generateVttFile(String subtitleText, String audioPath) throws IOException {
-        System.out.println("开始生成VTT字幕文件...");
-        ProgressWebSocketHandler.sendProgress("开始生成VTT字幕文件...");
-
-        String vttPath = audioPath.replace("_audio.wav", ".vtt");
-
-        // 使用FileOutputStream直接写入字节，避免BOM问题
-        try (OutputStream out = new FileOutputStream(vttPath);
-             BufferedWriter writer = new BufferedWriter(
-                     new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
-
-            // 写入VTT文件头
-            writer.write("WEBVTT");
-            writer.newLine();
-            writer.newLine();
-            ProgressWebSocketHandler.sendProgress("已写入VTT文件头");
-
-            String[] blocks = subtitleText.split("\n\n");
-            int totalBlocks = blocks.length;
-            ProgressWebSocketHandler.sendProgress("共需要处理 " + totalBlocks + " 个字幕块");
-
-            for(int i = 0; i < blocks.length; i++) {
-                String block = blocks[i].trim();
-                if (block.isEmpty()) {
-                    continue;
-                }
-
-                // 报告当前处理进度
-                int progress = (int) ((i + 1) * 100.0 / totalBlocks);
-                String progressMsg = String.format("正在处理字幕块 %d/%d (%.1f%%)",
-                        i + 1, totalBlocks, (i + 1) * 100.0 / totalBlocks);
-                ProgressWebSocketHandler.sendProgress(progressMsg);
-
-                String[] lines = block.split("\n");
-                if (lines.length >= 3) {
-                    // 序号
-                    writer.write(String.valueOf(i + 1));
-                    writer.newLine();
-                    // 时间轴（VTT格式与SRT相同）
-                    writer.write(lines[1].replace(",", ".")); // VTT使用点作为毫秒分隔符
-                    writer.newLine();
-                    // 内容（添加前缀）
-                    writer.write("=== " + lines[2]);
-                    writer.newLine();
-                    // 空行分隔
-                    writer.newLine();
-
-                    // 每处理10个块报告一次详细进度
-                    if ((i + 1) % 10 == 0 || (i + 1) == totalBlocks) {
-                        ProgressWebSocketHandler.sendProgress(
-                                String.format("已处理 %d/%d 个字幕块", i + 1, totalBlocks));
-                    }
-                }
-            }
-        }
-
-        String completionMsg = "VTT字幕文件已生成(UTF-8无BOM): " + vttPath;
-        System.out.println(completionMsg);
-        ProgressWebSocketHandler.sendProgress(completionMsg);
+    public static String generateVttFile(List<Segment> segments, String vttPath) throws IOException {
+        ProgressEmitter emitter = ProgressWebSocketHandler.emitter();
+        emitter.message("开始生成VTT字幕文件，共 " + segments.size() + " 个字幕块");
+        SubtitleFiles.write(segments, SubtitleFormat.VTT, new File(vttPath));
+        emitter.message("VTT字幕文件已生成(UTF-8无BOM): " + vttPath);
         return vttPath;
     }
 
@@ -0,0 +1,99 @@
+package com.hsx.videototext.websocket;
+
+import com.hsx.videototext.model.entity.Segment;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个任务的进度发送器
+ * progress 可在热循环中每帧/每块调用：未到发送间隔时只比较一次时间戳，不创建对象也不格式化字符串；
+ * stage 切换、message 文字说明和 cue 实时字幕总是发送；日志只记录阶段切换
+ */
+public class ProgressEmitter {
+
+    /**
+     * 未绑定任务时使用，所有调用都不做任何事
+     */
+    static final ProgressEmitter NOOP = new ProgressEmitter(null, 1);
+
+    private final String taskId;
+    private final long minIntervalNanos;
+    private final AtomicLong lastSent = new AtomicLong();
+
+    private volatile ProgressStage stage = ProgressStage.QUEUED;
+
+    /**
+     * 上一次写入日志的阶段，同一阶段内重复调用 stage 时不再打印
+     */
+    private ProgressStage loggedStage;
+
+    ProgressEmitter(String taskId, int maxPerSecond) {
+        this.taskId = taskId;
+        this.minIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxPerSecond);
+        this.lastSent.set(System.nanoTime() - minIntervalNanos);
+    }
+
+    public String getTaskId() {
+        return taskId;
+    }
+
+    public ProgressStage getStage() {
+        return stage;
+    }
+
+    /**
+     * 进入新阶段，立即发送
+     */
+    public void stage(ProgressStage stage, String msg) {
+        if (taskId == null) {
+            return;
+        }
+        this.stage = stage;
+        logTransition(stage, msg);
+        lastSent.set(System.nanoTime());
+        ProgressWebSocketHandler.publish(new ProgressEvent(taskId, stage, 0, 0, msg), false);
+    }
+
+    private synchronized void logTransition(ProgressStage stage, String msg) {
+        if (stage != loggedStage) {
+            loggedStage = stage;
+            System.out.println("任务 " + taskId + " 进入阶段 " + stage.toJson() + ": " + msg);
+        }
+    }
+
+    /**
+     * 当前阶段内的文字说明，立即发送
+     */
+    public void message(String msg) {
+        if (taskId == null) {
+            return;
+        }
+        ProgressWebSocketHandler.publish(new ProgressEvent(taskId, stage, 0, 0, msg), false);
+    }
+
+    /**
+     * 识别出的一条字幕，立即发送
+     */
+    public void cue(Segment segment) {
+        if (taskId == null) {
+            return;
+        }
+        ProgressWebSocketHandler.publish(new ProgressEvent(taskId, stage, 0, 0, null, segment), false);
+    }
+
+    /**
+     * 当前阶段的计数进度，total 未知时传 0；每秒最多发送 progress.max-per-second 次，客户端只保留最新一条
+     */
+    public void progress(long done, long total) {
+        if (taskId == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastSent.get();
+        if (now - last < minIntervalNanos || !lastSent.compareAndSet(last, now)) {
+            return;
+        }
+        ProgressWebSocketHandler.publish(new ProgressEvent(taskId, stage, done, total, null), true);
+    }
+}
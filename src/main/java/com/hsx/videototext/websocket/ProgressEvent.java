@@ -0,0 +1,69 @@
+package com.hsx.videototext.websocket;
+
+import com.hsx.videototext.model.entity.Segment;
+import lombok.Getter;
+import org.json.JSONObject;
+
+/**
+ * 推送给客户端的进度事件，序列化为紧凑 JSON：
+ * {"taskId":"..","stage":"transcribe","percent":42,"done":12,"total":30,"msg":".."}
+ * total 未知时不输出 percent 和 total，没有文字说明时不输出 msg
+ * 实时字幕事件额外带 "cue":{"start":1200,"end":3400,"text":".."}，时间单位毫秒
+ * JSON 在首次发送时才生成，多个订阅者共用同一份
+ */
+@Getter
+public class ProgressEvent {
+
+    private final String taskId;
+    private final ProgressStage stage;
+    private final long done;
+    private final long total;
+    private final String msg;
+    private final Segment cue;
+
+    private volatile String json;
+
+    public ProgressEvent(String taskId, ProgressStage stage, long done, long total, String msg) {
+        this(taskId, stage, done, total, msg, null);
+    }
+
+    public ProgressEvent(String taskId, ProgressStage stage, long done, long total, String msg, Segment cue) {
+        this.taskId = taskId;
+        this.stage = stage;
+        this.done = done;
+        this.total = total;
+        this.msg = msg;
+        this.cue = cue;
+    }
+
+    public int getPercent() {
+        return total > 0 ? (int) Math.min(100, done * 100 / total) : -1;
+    }
+
+    public String toJson() {
+        String result = json;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder(96);
+            sb.append("{\"taskId\":").append(JSONObject.quote(taskId))
+                    .append(",\"stage\":\"").append(stage.toJson()).append('"');
+            if (total > 0) {
+                sb.append(",\"percent\":").append(getPercent())
+                        .append(",\"done\":").append(done)
+                        .append(",\"total\":").append(total);
+            } else if (done > 0) {
+                sb.append(",\"done\":").append(done);
+            }
+            if (msg != null) {
+                sb.append(",\"msg\":").append(JSONObject.quote(msg));
+            }
+            if (cue != null) {
+                sb.append(",\"cue\":{\"start\":").append(cue.getStartMs())
+                        .append(",\"end\":").append(cue.getEndMs())
+                        .append(",\"text\":").append(JSONObject.quote(cue.getText())).append('}');
+            }
+            result = sb.append('}').toString();
+            json = result;
+        }
+        return result;
+    }
+}
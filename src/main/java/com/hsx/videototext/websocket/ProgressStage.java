@@ -0,0 +1,20 @@
+package com.hsx.videototext.websocket;
+
+/**
+ * 任务所处阶段，进度事件中以小写名称出现
+ */
+public enum ProgressStage {
+
+    QUEUED,
+    EXTRACT,
+    TRANSCRIBE,
+    SUBTITLE,
+    DONE,
+    FAILED;
+
+    private final String json = name().toLowerCase();
+
+    public String toJson() {
+        return json;
+    }
+}
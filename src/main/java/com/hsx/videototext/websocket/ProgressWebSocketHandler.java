@@ -1,27 +1,141 @@
 package com.hsx.videototext.websocket;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.*;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 按任务推送进度：客户端连接 /ws/progress?taskId=xxx 只收到该任务的 ProgressEvent（JSON）
+ * 发送方（FFmpeg、识别线程）只把事件放进每个会话的有界队列，由发送线程池序列化并写网络，慢客户端不会拖住处理线程
+ * 任务的推送通道只在任务开始（openTask）或客户端订阅时创建，finishTask 后迟到的事件直接丢弃，不会重新创建通道
+ * 单次发送超过 progress.send-timeout-seconds 的会话由看门狗关闭，卡住的客户端不会长期占用发送线程
+ */
 @Component
 public class ProgressWebSocketHandler extends TextWebSocketHandler {
-    private static final CopyOnWriteArraySet<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+
+    /**
+     * 每个会话最多积压的普通消息数，超出时丢弃最早的
+     */
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    /**
+     * 发送线程数固定；每个会话同一时刻最多一个发送任务在排队或执行，线程池队列长度不超过会话数
+     */
+    private static final int SENDER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService SEND_EXECUTOR = Executors.newFixedThreadPool(SENDER_THREADS, r -> {
+        Thread thread = new Thread(r, "ProgressSender-" + THREAD_INDEX.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 定期检查发送卡住的会话
+     */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ProgressSendWatchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 保留最近结束任务的最后一个事件数，供任务结束后才连接的客户端补发
+     */
+    private static final int FINISHED_CAPACITY = 256;
+
+    private static final Map<String, ProgressEvent> finished = Collections.synchronizedMap(
+            new LinkedHashMap<String, ProgressEvent>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ProgressEvent> eldest) {
+                    return size() > FINISHED_CAPACITY;
+                }
+            });
+
+    static {
+        WATCHDOG.scheduleWithFixedDelay(ProgressWebSocketHandler::closeStalled, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 当前线程正在处理的任务，进度消息据此路由；提交到其他线程池时用 bound 传递
+     */
+    private static final ThreadLocal<String> CURRENT_TASK = new ThreadLocal<>();
+
+    private static final Map<String, TaskChannel> channels = new ConcurrentHashMap<>();
+
+    private static volatile int maxPerSecond = 4;
+
+    private static volatile long sendTimeoutNanos = TimeUnit.SECONDS.toNanos(10);
+
+    @Value("${progress.max-per-second:4}")
+    public void setMaxPerSecond(int value) {
+        maxPerSecond = value;
+    }
+
+    @Value("${progress.send-timeout-seconds:10}")
+    public void setSendTimeoutSeconds(long value) {
+        sendTimeoutNanos = TimeUnit.SECONDS.toNanos(Math.max(1, value));
+    }
+
+    static void setSendTimeoutMillis(long value) {
+        sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(value);
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.add(session);
-        System.out.println("WebSocket连接已建立，当前连接数: " + sessions.size());
-        // 发送欢迎消息
-        session.sendMessage(new TextMessage("WebSocket连接已建立"));
+        String taskId = taskId(session);
+        if (taskId == null) {
+            session.sendMessage(new TextMessage("WebSocket连接已建立，请在连接地址中指定 taskId"));
+            return;
+        }
+        Subscriber subscriber = new Subscriber(session);
+        session.getAttributes().put(Subscriber.class.getName(), subscriber);
+        TaskChannel channel = channels.compute(taskId, (id, existing) -> {
+            TaskChannel subscribed = existing != null ? existing : new TaskChannel(id);
+            subscribed.subscribers.add(subscriber);
+            return subscribed;
+        });
+        System.out.println("WebSocket连接已建立，任务 " + taskId + " 当前连接数: " + channel.subscribers.size());
+        // 补发连接前的最新事件，任务已结束时补发它的最后一个事件，任务尚无事件时告知当前阶段
+        ProgressEvent last = channel.lastEvent;
+        if (last == null && !channel.opened) {
+            last = finished.get(taskId);
+        }
+        subscriber.offer(last != null ? last
+                : new ProgressEvent(taskId, channel.emitter.getStage(), 0, 0, "WebSocket连接已建立"), false);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session);
-        System.out.println("WebSocket连接已关闭，当前连接数: " + sessions.size());
+        String taskId = taskId(session);
+        Object subscriber = session.getAttributes().get(Subscriber.class.getName());
+        if (taskId == null || subscriber == null) {
+            return;
+        }
+        // 只为订阅而创建的通道（任务未开始或已结束）在最后一个连接关闭时删除，进行中任务的通道保留到 finishTask
+        TaskChannel channel = channels.computeIfPresent(taskId, (id, existing) -> {
+            existing.subscribers.remove(subscriber);
+            return existing.subscribers.isEmpty() && !existing.opened ? null : existing;
+        });
+        System.out.println("WebSocket连接已关闭，任务 " + taskId + " 剩余连接数: "
+                + (channel == null ? 0 : channel.subscribers.size()));
     }
 
     @Override
@@ -30,17 +144,237 @@ public class ProgressWebSocketHandler extends TextWebSocketHandler {
         exception.printStackTrace();
     }
 
+    private static String taskId(WebSocketSession session) {
+        if (session.getUri() == null) {
+            return null;
+        }
+        return UriComponentsBuilder.fromUri(session.getUri()).build().getQueryParams().getFirst("taskId");
+    }
+
+    public static void bindTask(String taskId) {
+        CURRENT_TASK.set(taskId);
+    }
+
+    public static void unbindTask() {
+        CURRENT_TASK.remove();
+    }
+
+    public static String currentTask() {
+        return CURRENT_TASK.get();
+    }
+
+    /**
+     * 包装提交到其他线程池的任务，使其进度消息仍归属当前任务
+     */
+    public static <T> Callable<T> bound(Callable<T> task) {
+        String taskId = CURRENT_TASK.get();
+        return () -> {
+            String previous = CURRENT_TASK.get();
+            CURRENT_TASK.set(taskId);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT_TASK.remove();
+                } else {
+                    CURRENT_TASK.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 当前订阅任务进度的连接数
+     */
+    public static int sessionCount() {
+        int count = 0;
+        for (TaskChannel channel : channels.values()) {
+            count += channel.subscribers.size();
+        }
+        return count;
+    }
+
+    /**
+     * 任务开始（提交、恢复、开始边传边提取）时创建推送通道，直到 finishTask 释放；返回该任务的进度发送器
+     */
+    public static ProgressEmitter openTask(String taskId) {
+        finished.remove(taskId);
+        return channels.compute(taskId, (id, existing) -> {
+            TaskChannel channel = existing != null ? existing : new TaskChannel(id);
+            channel.opened = true;
+            return channel;
+        }).emitter;
+    }
+
+    /**
+     * 当前线程所属任务的进度发送器，未绑定任务或任务的通道已释放时返回空实现
+     */
+    public static ProgressEmitter emitter() {
+        return emitter(CURRENT_TASK.get());
+    }
+
+    public static ProgressEmitter emitter(String taskId) {
+        TaskChannel channel = taskId == null ? null : channels.get(taskId);
+        return channel == null ? ProgressEmitter.NOOP : channel.emitter;
+    }
+
+    /**
+     * 当前阶段内的文字说明
+     */
     public static void sendProgress(String message) {
-        System.out.println("发送进度消息: " + message);
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen()) {
+        emitter().message(message);
+    }
+
+    public static void sendProgress(String taskId, String message) {
+        emitter(taskId).message(message);
+    }
+
+    /**
+     * 发送任务的最后一个事件（done 或 failed）并释放该任务的推送通道，最后一个事件保留给之后才连接的客户端
+     */
+    public static void finishTask(String taskId, ProgressStage stage, String message) {
+        emitter(taskId).stage(stage, message);
+        if (taskId == null) {
+            return;
+        }
+        TaskChannel channel = channels.remove(taskId);
+        if (channel != null && channel.lastEvent != null) {
+            finished.put(taskId, channel.lastEvent);
+        }
+    }
+
+    /**
+     * 关闭单次发送超时的会话，关闭后阻塞的写操作随之失败，发送线程得以释放
+     */
+    static void closeStalled() {
+        long now = System.nanoTime();
+        for (TaskChannel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                if (subscriber.stalled(now)) {
+                    subscriber.abort();
+                }
+            }
+        }
+    }
+
+    static void publish(ProgressEvent event, boolean coalesce) {
+        TaskChannel channel = channels.get(event.getTaskId());
+        if (channel == null) {
+            return;
+        }
+        channel.lastEvent = event;
+        for (Subscriber subscriber : channel.subscribers) {
+            subscriber.offer(event, coalesce);
+        }
+    }
+
+    /**
+     * 一个任务的订阅者、进度发送器和最新一个事件（供晚连接的客户端补发）
+     */
+    private static class TaskChannel {
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        private final ProgressEmitter emitter;
+        private volatile ProgressEvent lastEvent;
+
+        /**
+         * 任务已开始，通道保留到 finishTask；为 false 时只是客户端订阅了尚未开始或已结束的任务
+         */
+        private volatile boolean opened;
+
+        TaskChannel(String taskId) {
+            this.emitter = new ProgressEmitter(taskId, maxPerSecond);
+        }
+    }
+
+    /**
+     * 单个会话的发送队列：普通消息有界排队，进度消息只保留最新一条；同一时刻最多一个发送线程在写该会话
+     */
+    private static class Subscriber implements Runnable {
+        private final WebSocketSession session;
+        private final ArrayDeque<ProgressEvent> queue = new ArrayDeque<>();
+        private ProgressEvent latestProgress;
+        private boolean draining;
+
+        /**
+         * 当前这次发送开始的时间，0 表示没有在发送
+         */
+        private volatile long sendingSince;
+        private volatile boolean aborted;
+
+        Subscriber(WebSocketSession session) {
+            this.session = session;
+        }
+
+        void offer(ProgressEvent event, boolean coalesce) {
+            synchronized (this) {
+                if (coalesce) {
+                    latestProgress = event;
+                } else {
+                    // 先把待发的进度排进队列，保证与阶段消息的先后顺序
+                    if (latestProgress != null) {
+                        enqueue(latestProgress);
+                        latestProgress = null;
+                    }
+                    enqueue(event);
+                }
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            SEND_EXECUTOR.execute(this);
+        }
+
+        private void enqueue(ProgressEvent event) {
+            if (queue.size() >= QUEUE_CAPACITY) {
+                queue.poll();
+            }
+            queue.offer(event);
+        }
+
+        private synchronized ProgressEvent next() {
+            ProgressEvent event = queue.poll();
+            if (event == null) {
+                event = latestProgress;
+                latestProgress = null;
+            }
+            if (event == null) {
+                draining = false;
+            }
+            return event;
+        }
+
+        @Override
+        public void run() {
+            ProgressEvent event;
+            while ((event = next()) != null) {
+                if (!session.isOpen()) {
+                    continue;
+                }
+                sendingSince = System.nanoTime();
                 try {
-                    session.sendMessage(new TextMessage(message));
+                    session.sendMessage(new TextMessage(event.toJson()));
                 } catch (Exception e) {
                     System.err.println("发送消息失败: " + e.getMessage());
-                    e.printStackTrace();
+                } finally {
+                    sendingSince = 0;
                 }
             }
         }
+
+        boolean stalled(long now) {
+            long since = sendingSince;
+            return since != 0 && !aborted && now - since > sendTimeoutNanos;
+        }
+
+        void abort() {
+            aborted = true;
+            System.err.println("进度推送发送超时，关闭连接: " + session.getId());
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (Exception e) {
+                System.err.println("关闭连接失败: " + e.getMessage());
+            }
+        }
     }
-} 
\ No newline at end of file
+}
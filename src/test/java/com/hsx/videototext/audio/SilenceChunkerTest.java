@@ -0,0 +1,66 @@
+package com.hsx.videototext.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ShortBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SilenceChunkerTest {
+
+    private static final int RATE = PcmPipe.SAMPLE_RATE;
+
+    /**
+     * 每 3 秒一个周期：2.5 秒音调 + 0.5 秒静音
+     */
+    private static ShortBuffer speech(int seconds) {
+        short[] pcm = new short[seconds * RATE];
+        for (int i = 0; i < pcm.length; i++) {
+            double t = i / (double) RATE;
+            pcm[i] = (t % 3.0) < 2.5 ? (short) (8000 * Math.sin(2 * Math.PI * 300 * t)) : 0;
+        }
+        return ShortBuffer.wrap(pcm);
+    }
+
+    @Test
+    void cutsInsideSilenceAndCoversWholeAudio() {
+        ShortBuffer pcm = speech(95);
+        List<AudioChunk> chunks = SilenceChunker.split(pcm, 30);
+
+        assertEquals(4, chunks.size());
+        int expectedStart = 0;
+        for (AudioChunk chunk : chunks) {
+            assertEquals(expectedStart, chunk.getStartSample());
+            assertTrue(chunk.getLength() <= 30 * RATE);
+            expectedStart += chunk.getLength();
+            if (expectedStart < pcm.remaining()) {
+                double cutSecond = expectedStart / (double) RATE;
+                assertTrue(cutSecond % 3.0 >= 2.5, "切点应落在静音中: " + cutSecond);
+            }
+        }
+        assertEquals(pcm.remaining(), expectedStart);
+    }
+
+    @Test
+    void marksSilentChunks() {
+        short[] pcm = new short[70 * RATE];
+        for (int i = 0; i < 10 * RATE; i++) {
+            pcm[i] = (short) (8000 * Math.sin(2 * Math.PI * 300 * i / (double) RATE));
+        }
+        List<AudioChunk> chunks = SilenceChunker.split(ShortBuffer.wrap(pcm), 30);
+
+        assertFalse(chunks.get(0).isSilent());
+        assertTrue(chunks.get(chunks.size() - 1).isSilent());
+    }
+
+    @Test
+    void shortAudioIsSingleChunk() {
+        List<AudioChunk> chunks = SilenceChunker.split(speech(10), 30);
+
+        assertEquals(1, chunks.size());
+        assertEquals(10 * RATE, chunks.get(0).getLength());
+    }
+}
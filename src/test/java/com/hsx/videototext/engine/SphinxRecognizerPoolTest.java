@@ -0,0 +1,114 @@
+package com.hsx.videototext.engine;
+
+import edu.cmu.sphinx.api.StreamSpeechRecognizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 识别器用 mock 代替，不加载声学模型
+ */
+class SphinxRecognizerPoolTest {
+
+    private final AtomicInteger newRecognizers = new AtomicInteger();
+
+    private final SphinxRecognizerPool pool = new SphinxRecognizerPool() {
+        @Override
+        protected StreamSpeechRecognizer newRecognizer() {
+            newRecognizers.incrementAndGet();
+            return mock(StreamSpeechRecognizer.class);
+        }
+    };
+
+    private static StreamSpeechRecognizer borrow(SphinxRecognizerPool pool) {
+        try {
+            return pool.acquire();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void reusesReleasedRecognizerAndWaitsWhenAllBorrowed() throws Exception {
+        pool.setSize(2);
+        StreamSpeechRecognizer first = pool.acquire();
+        StreamSpeechRecognizer second = pool.acquire();
+        assertEquals(2, pool.getCreatedCount());
+
+        CompletableFuture<StreamSpeechRecognizer> waiting = CompletableFuture.supplyAsync(() -> borrow(pool));
+        Thread.sleep(200);
+        assertFalse(waiting.isDone());
+        pool.release(first);
+
+        assertSame(first, waiting.get(5, TimeUnit.SECONDS));
+        pool.release(second);
+        assertEquals(2, newRecognizers.get());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void discardFreesSlotForWaitingRequest() throws Exception {
+        pool.setSize(1);
+        pool.acquire();
+        CompletableFuture<StreamSpeechRecognizer> waiting = CompletableFuture.supplyAsync(() -> borrow(pool));
+        Thread.sleep(200);
+        assertFalse(waiting.isDone());
+
+        pool.discard();
+
+        waiting.get(5, TimeUnit.SECONDS);
+        assertEquals(2, newRecognizers.get());
+        assertEquals(1, pool.getCreatedCount());
+    }
+
+    @Test
+    void failedRecognitionDiscardsRecognizer() throws Exception {
+        SphinxRecognizerPool failing = new SphinxRecognizerPool() {
+            @Override
+            protected StreamSpeechRecognizer newRecognizer() {
+                StreamSpeechRecognizer recognizer = mock(StreamSpeechRecognizer.class);
+                doThrow(new IllegalStateException("解码失败")).when(recognizer).startRecognition(any());
+                return recognizer;
+            }
+        };
+        failing.setSize(1);
+
+        assertThrows(IllegalStateException.class,
+                () -> failing.recognize(new ByteArrayInputStream(new byte[0]), result -> { }));
+        assertEquals(0, failing.getCreatedCount());
+        assertEquals(0, failing.getIdleCount());
+    }
+
+    @Test
+    void shrinkingWhileBorrowedDropsSurplusOnRelease() throws Exception {
+        pool.setSize(3);
+        StreamSpeechRecognizer first = pool.acquire();
+        StreamSpeechRecognizer second = pool.acquire();
+        StreamSpeechRecognizer third = pool.acquire();
+        pool.release(third);
+
+        pool.setSize(1);
+        assertEquals(2, pool.getCreatedCount());
+        assertEquals(0, pool.getIdleCount());
+
+        pool.release(first);
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(0, pool.getIdleCount());
+        pool.release(second);
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(1, pool.getIdleCount());
+        assertSame(second, pool.acquire());
+    }
+}
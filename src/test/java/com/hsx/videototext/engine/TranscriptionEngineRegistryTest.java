@@ -0,0 +1,117 @@
+package com.hsx.videototext.engine;
+
+import com.hsx.videototext.audio.PcmPipe;
+import com.hsx.videototext.model.entity.Segment;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TranscriptionEngineRegistryTest {
+
+    private static class FakeEngine implements TranscriptionEngine {
+        private final String name;
+        private final String language;
+        private final double rtf;
+
+        FakeEngine(String name, String language, double rtf) {
+            this.name = name;
+            this.language = language;
+            this.rtf = rtf;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean supports(String model) {
+            return name.equals(model);
+        }
+
+        @Override
+        public boolean supportsLanguage(String language) {
+            return this.language == null || this.language.equals(language);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public List<Segment> transcribe(PcmPipe pipe, String model) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Segment> transcribe(File wavFile, String model) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<Segment> transcribe(ShortBuffer samples, String model) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public double getRealTimeFactor() {
+            return rtf;
+        }
+    }
+
+    private static TranscriptionEngineRegistry registry(TranscriptionEngine... engines) {
+        TranscriptionEngineRegistry registry = new TranscriptionEngineRegistry(Arrays.asList(engines));
+        ReflectionTestUtils.setField(registry, "rtfBudget", 1.0);
+        ReflectionTestUtils.setField(registry, "defaultLanguage", "zh");
+        return registry;
+    }
+
+    @Test
+    void autoSkipsEnginesThatCannotRecognizeTheLanguage() {
+        FakeEngine sphinx = new FakeEngine("sphinx", "en", 0.1);
+        FakeEngine whisper = new FakeEngine("whisper", null, 0.5);
+        TranscriptionEngineRegistry registry = registry(sphinx, whisper);
+
+        assertSame(whisper, registry.resolve("auto"));
+        assertSame(sphinx, registry.resolve("auto", TranscriptionEngineRegistry.ENGLISH));
+    }
+
+    @Test
+    void measuredEngineWithinBudgetBeatsUnmeasured() {
+        FakeEngine unmeasured = new FakeEngine("new", null, -1);
+        FakeEngine measured = new FakeEngine("measured", null, 0.8);
+
+        assertSame(measured, registry(unmeasured, measured).resolve("auto"));
+    }
+
+    @Test
+    void unmeasuredIsFallbackBeforeSlowEngines() {
+        FakeEngine slow = new FakeEngine("slow", null, 3.0);
+        FakeEngine unmeasured = new FakeEngine("new", null, -1);
+
+        assertSame(unmeasured, registry(slow, unmeasured).resolve("auto"));
+        FakeEngine slower = new FakeEngine("slower", null, 5.0);
+        assertSame(slow, registry(slower, slow).resolve("auto"));
+    }
+
+    @Test
+    void autoFailsWhenNoEngineSupportsTheLanguage() {
+        TranscriptionEngineRegistry registry = registry(new FakeEngine("sphinx", "en", 0.1));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.resolve("auto"));
+    }
+}
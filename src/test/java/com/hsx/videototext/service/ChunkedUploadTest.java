@@ -0,0 +1,222 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.utils.VideoToWavUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkedUploadTest {
+
+    private static final int CHUNK = 1000;
+
+    private final byte[] content = new byte[3 * CHUNK + 500];
+
+    @TempDir
+    Path dir;
+
+    private ChunkedUpload upload;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (upload != null) {
+            upload.close();
+        }
+    }
+
+    private ChunkedUpload newUpload(long idleTimeoutMillis) throws IOException {
+        new Random(7).nextBytes(content);
+        upload = new ChunkedUpload("test", dir.resolve("upload.mp4").toFile(), content.length, CHUNK,
+                idleTimeoutMillis, null, new TranscribeOptions());
+        return upload;
+    }
+
+    private boolean write(int index) throws IOException {
+        int start = index * CHUNK;
+        int end = Math.min(content.length, start + CHUNK);
+        return upload.writeChunk(index, new ByteArrayInputStream(Arrays.copyOfRange(content, start, end)));
+    }
+
+    @Test
+    void acceptsOutOfOrderAndDuplicateChunks() throws IOException {
+        newUpload(5000);
+
+        assertTrue(write(2));
+        assertTrue(write(0));
+        assertEquals(Arrays.asList(1, 3), upload.missingChunks());
+        assertTrue(write(3));
+        assertFalse(write(3));
+        assertTrue(write(1));
+
+        assertTrue(upload.isComplete());
+        assertEquals(Collections.emptyList(), upload.missingChunks());
+        assertEquals(content.length, upload.receivedBytes());
+        assertArrayEquals(content, Files.readAllBytes(upload.getFile().toPath()));
+        assertEquals(VideoToWavUtil.md5Hex(upload.getFile()), upload.md5Hex());
+    }
+
+    @Test
+    void reuploadOfHashedChunkInvalidatesIncrementalHash() throws IOException {
+        newUpload(5000);
+        for (int i = 0; i < 4; i++) {
+            write(i);
+        }
+        write(0);
+
+        assertNull(upload.md5Hex());
+    }
+
+    @Test
+    void truncatedReuploadMarksChunkMissing() throws IOException {
+        newUpload(5000);
+        for (int i = 0; i < 4; i++) {
+            write(i);
+        }
+
+        assertThrows(IOException.class,
+                () -> upload.writeChunk(1, new ByteArrayInputStream(Arrays.copyOfRange(content, CHUNK, CHUNK + 10))));
+        assertFalse(upload.isComplete());
+        assertEquals(Collections.singletonList(1), upload.missingChunks());
+        assertThrows(IllegalStateException.class, () -> upload.markCompleted());
+        assertNull(upload.md5Hex());
+
+        assertFalse(write(1));
+        assertTrue(upload.markCompleted());
+        assertArrayEquals(content, Files.readAllBytes(upload.getFile().toPath()));
+    }
+
+    @Test
+    void rejectsChunkOutOfRange() throws IOException {
+        newUpload(5000);
+
+        assertThrows(IllegalArgumentException.class, () -> write(4));
+    }
+
+    @Test
+    void readerBlocksUntilChunkArrives() throws Exception {
+        newUpload(5000);
+        write(0);
+        CompletableFuture<byte[]> read = CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = upload.openStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[700];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(200);
+        assertFalse(read.isDone());
+        write(3);
+        write(1);
+        Thread.sleep(100);
+        assertFalse(read.isDone());
+        write(2);
+
+        assertArrayEquals(content, read.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void readerFailsAfterIdleTimeout() throws IOException {
+        newUpload(300);
+        write(0);
+        InputStream in = upload.openStream();
+        in.skip(CHUNK);
+
+        long start = System.nanoTime();
+        IOException e = assertThrows(IOException.class, () -> in.read(new byte[10]));
+        assertTrue(e.getMessage().contains("超时"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 3000);
+    }
+
+    @Test
+    void abortWakesBlockedReader() throws Exception {
+        newUpload(60_000);
+        CompletableFuture<Integer> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                return upload.openStream().read(new byte[10]);
+            } catch (IOException e) {
+                return -2;
+            }
+        });
+        Thread.sleep(200);
+        upload.abort();
+
+        assertEquals(-2, read.get(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> write(0));
+    }
+
+    @Test
+    void serviceBoundsChunkSizeAndExpiresIdleSessions() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager();
+        workspaces.setRoot(dir.toString());
+        ChunkedUploadService service = new ChunkedUploadService();
+        ReflectionTestUtils.setField(service, "workspaces", workspaces);
+        ReflectionTestUtils.setField(service, "defaultChunkSizeMb", 8);
+        ReflectionTestUtils.setField(service, "maxSizeMb", 100L);
+        ReflectionTestUtils.setField(service, "minChunkSizeKb", 256);
+        ReflectionTestUtils.setField(service, "maxChunkSizeMb", 64);
+        ReflectionTestUtils.setField(service, "idleTimeoutSeconds", 5L);
+        ReflectionTestUtils.setField(service, "sessionTtlMinutes", 0L);
+
+        assertThrows(IllegalArgumentException.class, () -> service.init(10_000_000, 1, null, new TranscribeOptions()));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.init(10_000_000, 128 * 1024 * 1024, null, new TranscribeOptions()));
+
+        ChunkedUpload idle = service.init(10_000_000, null, null, new TranscribeOptions());
+        assertTrue(idle.getFile().exists());
+        Thread.sleep(20);
+        service.expire();
+
+        assertThrows(IllegalArgumentException.class, () -> service.get(idle.getUploadId()));
+        assertFalse(idle.getFile().getParentFile().exists());
+    }
+
+    @Test
+    void serviceCompletesOnlyOnce() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager();
+        workspaces.setRoot(dir.toString());
+        ChunkedUploadService service = new ChunkedUploadService();
+        ReflectionTestUtils.setField(service, "workspaces", workspaces);
+        ReflectionTestUtils.setField(service, "maxSizeMb", 100L);
+        ReflectionTestUtils.setField(service, "minChunkSizeKb", 1);
+        ReflectionTestUtils.setField(service, "maxChunkSizeMb", 64);
+        ReflectionTestUtils.setField(service, "idleTimeoutSeconds", 5L);
+        new Random(7).nextBytes(content);
+        upload = service.init(content.length, 1024, null, new TranscribeOptions());
+        for (int i = 0; i < upload.getChunkCount(); i++) {
+            int start = i * 1024;
+            upload.writeChunk(i, new ByteArrayInputStream(
+                    Arrays.copyOfRange(content, start, Math.min(content.length, start + 1024))));
+        }
+
+        assertEquals(VideoToWavUtil.md5Hex(upload.getFile()), service.complete(upload.getUploadId()).getMd5());
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> service.complete(upload.getUploadId()));
+        assertTrue(e.getMessage().contains("已完成"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FairJobQueueTest {
+
+    private static TranscriptionJob job(String taskId, String userId, boolean shortClip) {
+        TranscriptionJob job = new TranscriptionJob(taskId, userId, null, null, new TranscribeOptions(), "vtt");
+        job.setShortClip(shortClip);
+        return job;
+    }
+
+    private static List<String> drain(FairJobQueue queue) throws InterruptedException {
+        List<String> order = new ArrayList<>();
+        while (queue.size() > 0) {
+            order.add(queue.take().getTaskId());
+        }
+        return order;
+    }
+
+    @Test
+    void rotatesBetweenUsersWithinALane() throws InterruptedException {
+        FairJobQueue queue = new FairJobQueue(3);
+        queue.add(job("a1", "alice", true));
+        queue.add(job("a2", "alice", true));
+        queue.add(job("a3", "alice", true));
+        queue.add(job("b1", "bob", true));
+        queue.add(job("c1", "carol", true));
+
+        assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "a3"), drain(queue));
+    }
+
+    @Test
+    void longLaneGetsATurnAfterShortLaneWeight() throws InterruptedException {
+        FairJobQueue queue = new FairJobQueue(2);
+        queue.add(job("l1", "alice", false));
+        queue.add(job("l2", "alice", false));
+        for (int i = 1; i <= 5; i++) {
+            queue.add(job("s" + i, "user" + i, true));
+        }
+
+        assertEquals(Arrays.asList("s1", "s2", "l1", "s3", "s4", "l2", "s5"), drain(queue));
+    }
+
+    @Test
+    void aheadMatchesTakeOrderWithoutChangingQueue() throws InterruptedException {
+        FairJobQueue queue = new FairJobQueue(1);
+        TranscriptionJob longJob = job("l1", "alice", false);
+        TranscriptionJob last = job("s2", "alice", true);
+        queue.add(longJob);
+        queue.add(job("s1", "bob", true));
+        queue.add(last);
+
+        List<String> ahead = new ArrayList<>();
+        for (TranscriptionJob job : queue.ahead(last)) {
+            ahead.add(job.getTaskId());
+        }
+        assertEquals(Arrays.asList("s1", "l1"), ahead);
+        assertNull(queue.ahead(job("other", "bob", true)));
+        assertEquals(Arrays.asList("s1", "l1", "s2"), drain(queue));
+    }
+}
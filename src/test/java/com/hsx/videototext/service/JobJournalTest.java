@@ -0,0 +1,100 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.Segment;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private JobJournal open(int compactAfter) throws IOException {
+        JobJournal journal = new JobJournal();
+        ReflectionTestUtils.setField(journal, "journalDir", dir.toString());
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        ReflectionTestUtils.setField(journal, "compactAfter", compactAfter);
+        journal.open();
+        return journal;
+    }
+
+    private List<String> lines() throws IOException {
+        return Files.readAllLines(dir.resolve("jobs.log"), StandardCharsets.UTF_8);
+    }
+
+    private static TranscriptionJob job(String taskId) {
+        UploadedVideo upload = new UploadedVideo(new File("/tmp/" + taskId + ".mp4"), "md5-" + taskId, 100);
+        return new TranscriptionJob(taskId, "alice", upload, null,
+                new TranscribeOptions().setModel("base").setChunkSeconds(30), "vtt");
+    }
+
+    private static List<Segment> segments(String text) {
+        return Collections.singletonList(new Segment(0, 1000, text));
+    }
+
+    @Test
+    void recoversPendingJobsAndSkipsTruncatedLastLine() throws IOException {
+        JobJournal first = open(0);
+        first.submitted(job("a"));
+        first.chunkDone("a", 0, segments("hello"));
+        first.submitted(job("b"));
+        first.finished("b", true, "/tmp/b.vtt");
+        first.close();
+        Files.write(dir.resolve("jobs.log"), "{\"type\":\"chunk\",\"taskId\":\"a\",\"ind".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        JobJournal reopened = open(0);
+        List<JobJournal.PendingJob> pending = reopened.takePending();
+        reopened.close();
+
+        assertEquals(1, pending.size());
+        assertEquals("a", pending.get(0).getSubmit().getString("taskId"));
+        assertEquals("hello", pending.get(0).getChunks().get(0).get(0).getText());
+        // 启动时的压缩去掉了已结束的任务和写了一半的记录
+        List<String> lines = lines();
+        assertEquals(2, lines.size());
+        for (String line : lines) {
+            assertEquals("a", new JSONObject(line).getString("taskId"));
+        }
+    }
+
+    @Test
+    void compactsWhileRunningAfterThreshold() throws IOException {
+        JobJournal journal = open(2);
+        journal.submitted(job("a"));
+        journal.submitted(job("b"));
+        journal.submitted(job("c"));
+        journal.chunkDone("a", 3, segments("kept"));
+        journal.finished("b", true, "/tmp/b.vtt");
+        assertEquals(5, lines().size());
+
+        journal.finished("c", false, "error");
+        assertEquals(2, lines().size());
+
+        // 压缩后继续追加到新文件
+        journal.audioExtracted("a", "/tmp/a.wav");
+        journal.close();
+        assertEquals(3, lines().size());
+
+        List<JobJournal.PendingJob> pending = open(2).takePending();
+        assertEquals(1, pending.size());
+        assertEquals("/tmp/a.wav", pending.get(0).getAudioPath());
+        assertTrue(pending.get(0).getChunks().containsKey(3));
+    }
+}
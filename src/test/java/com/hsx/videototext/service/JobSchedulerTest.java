@@ -0,0 +1,104 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.hsx.videototext.model.entity.UploadedVideo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobSchedulerTest {
+
+    @TempDir
+    Path root;
+
+    private WorkspaceManager workspaces;
+    private JobScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        workspaces = new WorkspaceManager();
+        workspaces.setRoot(root.toString());
+        scheduler = new JobScheduler();
+        ReflectionTestUtils.setField(scheduler, "workspaces", workspaces);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(scheduler, "maxQueued", 3);
+        ReflectionTestUtils.setField(scheduler, "maxQueuedPerUser", 2);
+        ReflectionTestUtils.setField(scheduler, "shortLaneWeight", 3);
+        // 不启动工作线程，只检查准入
+        scheduler.start();
+    }
+
+    @Test
+    void rejectsUserOverPerUserLimit() {
+        scheduler.reserve("alice", 0);
+        scheduler.reserve("alice", 0);
+
+        JobRejectedException e = assertThrows(JobRejectedException.class, () -> scheduler.reserve("alice", 0));
+        assertTrue(e.getEstimatedStartTime() > 0);
+        scheduler.reserve("bob", 0);
+    }
+
+    @Test
+    void rejectsWhenQueueIsFullUntilReservationReleased() {
+        scheduler.reserve("alice", 0);
+        scheduler.reserve("bob", 0);
+        JobScheduler.Reservation carol = scheduler.reserve("carol", 0);
+
+        assertThrows(JobRejectedException.class, () -> scheduler.reserve("dave", 0));
+        assertThrows(JobRejectedException.class, () -> scheduler.checkAdmission("dave"));
+
+        carol.release();
+        carol.release();
+        scheduler.reserve("dave", 0);
+        assertThrows(JobRejectedException.class, () -> scheduler.reserve("erin", 0));
+    }
+
+    @Test
+    void rejectsUploadThatDoesNotFitWorkspaceQuota() {
+        ReflectionTestUtils.setField(workspaces, "quotaMb", 1L);
+
+        assertThrows(JobRejectedException.class, () -> scheduler.reserve("alice", 2 * 1024 * 1024));
+        scheduler.reserve("alice", 512 * 1024);
+    }
+
+    @Test
+    void admittedUploadsReserveWorkspaceUntilReleased() {
+        ReflectionTestUtils.setField(workspaces, "quotaMb", 1L);
+
+        JobScheduler.Reservation alice = scheduler.reserve("alice", 600 * 1024);
+        assertThrows(JobRejectedException.class, () -> scheduler.reserve("bob", 600 * 1024));
+
+        JobScheduler.Reservation carol = scheduler.reserve("carol", 0);
+        assertFalse(carol.reserveBytes(600 * 1024));
+        assertEquals(600 * 1024, workspaces.getReservedBytes());
+
+        alice.release();
+        alice.release();
+        assertEquals(0, workspaces.getReservedBytes());
+        assertTrue(carol.reserveBytes(600 * 1024));
+    }
+
+    @Test
+    void findsOnlyRegisteredResultFiles() {
+        File video = root.resolve("jobs/t1/chunked_upload.mp4").toFile();
+        String result = root.resolve("cache/md5/sphinx_sphinx.vtt").toString();
+        TranscriptionJob job = new TranscriptionJob("t1", "alice", new UploadedVideo(video, "md5", 1),
+                null, new TranscribeOptions(), "vtt");
+        scheduler.recordCached(job, result);
+
+        assertSame(job, scheduler.findByResult(root.resolve("cache/md5/../md5/sphinx_sphinx.vtt").toString()));
+        assertNull(scheduler.findByResult(video.getPath()));
+    }
+}
@@ -0,0 +1,111 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.engine.TranscriptionEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SubtitleCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private SubtitleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SubtitleCache();
+        ReflectionTestUtils.setField(cache, "cacheDir", dir.resolve("cache").toString());
+        ReflectionTestUtils.setField(cache, "maxSizeMb", 1L);
+        cache.load();
+    }
+
+    private static TranscriptionEngine engine(String name, String modelName) {
+        TranscriptionEngine engine = mock(TranscriptionEngine.class);
+        when(engine.getName()).thenReturn(name);
+        when(engine.modelName(any())).thenReturn(modelName);
+        return engine;
+    }
+
+    private File wav(String name) throws IOException {
+        return Files.write(dir.resolve(name), new byte[600 * 1024]).toFile();
+    }
+
+    @Test
+    void pinnedAudioIsNotEvictedUntilUnpinned() throws IOException {
+        String first = cache.putAudio("md5a", wav("a.wav"));
+        assertTrue(cache.pin(first));
+
+        cache.putAudio("md5b", wav("b.wav"));
+        assertEquals(first, cache.getAudio("md5a"));
+        assertTrue(new File(first).isFile());
+
+        cache.unpin(first);
+        cache.putAudio("md5c", wav("c.wav"));
+        assertNull(cache.getAudio("md5a"));
+        assertFalse(new File(first).exists());
+    }
+
+    @Test
+    void resultsAreKeyedByResolvedModel() throws IOException {
+        TranscriptionEngine whisper = engine("whisper-jni", "whisper-large");
+        File vtt = Files.write(dir.resolve("a.vtt"), new byte[10]).toFile();
+
+        String cached = cache.putResult("md5a", whisper, "whisper", "vtt", vtt);
+
+        assertEquals(cached, cache.getResult("md5a", whisper, "whisper-large", "vtt"));
+        assertNull(cache.getResult("md5a", engine("whisper-jni", "whisper-small"), "whisper", "vtt"));
+    }
+
+    @Test
+    void modelNamesThatSanitizeAlikeUseDifferentFiles() throws IOException {
+        File first = Files.write(dir.resolve("a.vtt"), new byte[]{1}).toFile();
+        File second = Files.write(dir.resolve("b.vtt"), new byte[]{2}).toFile();
+
+        String slash = cache.putResult("md5a", engine("vosk", "a/b"), "a/b", "vtt", first);
+        String underscore = cache.putResult("md5a", engine("vosk", "a_b"), "a_b", "vtt", second);
+
+        assertFalse(slash.equals(underscore));
+        assertEquals(1, Files.readAllBytes(new File(slash).toPath())[0]);
+        assertEquals(2, Files.readAllBytes(new File(underscore).toPath())[0]);
+    }
+
+    @Test
+    void recountIncludesVariantsAndEvicts() throws IOException {
+        File json = Files.write(dir.resolve("a.json"), new byte[100]).toFile();
+        String transcript = cache.putResult("md5a", engine("vosk", "small"), "vosk", "json", json);
+        String audio = cache.putAudio("md5b", wav("b.wav"));
+        Files.write(new File(transcript + ".srt").toPath(), new byte[500 * 1024]);
+
+        assertEquals(100 + 600 * 1024, cache.getTotalBytes());
+
+        cache.recount(new File(transcript));
+
+        assertNull(cache.getAudio("md5b"));
+        assertFalse(new File(audio).exists());
+        assertEquals(100 + 500 * 1024, cache.getTotalBytes());
+    }
+
+    @Test
+    void pinReportsAlreadyEvictedFile() throws IOException {
+        String first = cache.putAudio("md5a", wav("a.wav"));
+        cache.putAudio("md5b", wav("b.wav"));
+
+        assertFalse(cache.pin(first));
+        cache.unpin(first);
+    }
+}
@@ -0,0 +1,194 @@
+package com.hsx.videototext.service;
+
+import com.hsx.videototext.model.dto.TranscribeOptions;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 用本地 HttpServer 作为源站，验证分段并行下载、单段重试和不支持 Range 时的断线续传，
+ * 以及目标主机检查（本地源站通过 allowed-hosts 放行）
+ */
+class UrlDownloadServiceTest {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private final byte[] content = new byte[5 * 1024 * 1024 / 2];
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private ChunkedUploadService uploads;
+    private UrlDownloadService downloads;
+    private ChunkedUpload upload;
+    private WorkspaceManager workspaces;
+
+    @TempDir
+    Path workspaceRoot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        new Random(42).nextBytes(content);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        workspaces = new WorkspaceManager();
+        workspaces.setRoot(workspaceRoot.toString());
+        uploads = new ChunkedUploadService();
+        ReflectionTestUtils.setField(uploads, "workspaces", workspaces);
+        ReflectionTestUtils.setField(uploads, "defaultChunkSizeMb", 8);
+        ReflectionTestUtils.setField(uploads, "maxSizeMb", 100L);
+        ReflectionTestUtils.setField(uploads, "minChunkSizeKb", 256);
+        ReflectionTestUtils.setField(uploads, "maxChunkSizeMb", 64);
+        ReflectionTestUtils.setField(uploads, "idleTimeoutSeconds", 5L);
+        downloads = new UrlDownloadService();
+        ReflectionTestUtils.setField(downloads, "chunkedUploadService", uploads);
+        ReflectionTestUtils.setField(downloads, "workspaces", workspaces);
+        ReflectionTestUtils.setField(downloads, "connections", 3);
+        ReflectionTestUtils.setField(downloads, "rangeSizeMb", 1);
+        ReflectionTestUtils.setField(downloads, "retries", 2);
+        ReflectionTestUtils.setField(downloads, "connectTimeoutSeconds", 5);
+        ReflectionTestUtils.setField(downloads, "readTimeoutSeconds", 5);
+        ReflectionTestUtils.setField(downloads, "allowedHosts", "127.0.0.1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        if (upload != null) {
+            uploads.discard(upload.getUploadId(), true);
+        }
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/video.mp4";
+    }
+
+    @Test
+    void downloadsRangesInParallelAndRetriesFailedRange() throws Exception {
+        AtomicInteger secondRangeAttempts = new AtomicInteger();
+        server.createContext("/video.mp4", exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            requests.add(range);
+            Matcher m = RANGE.matcher(range);
+            assertTrue(m.matches());
+            int start = Integer.parseInt(m.group(1));
+            int end = Math.min(Integer.parseInt(m.group(2)), content.length - 1);
+            if (start == 1024 * 1024 && secondRangeAttempts.incrementAndGet() == 1) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            send(exchange, 206, start, end + 1 - start);
+        });
+
+        upload = downloads.download("t1", url(), null, new TranscribeOptions());
+
+        assertEquals(3, upload.getChunkCount());
+        assertTrue(upload.isComplete());
+        assertEquals(2, secondRangeAttempts.get());
+        assertEquals(4, requests.size());
+        assertArrayEquals(content, Files.readAllBytes(upload.getFile().toPath()));
+    }
+
+    @Test
+    void streamsAndResumesWhenServerIgnoresRange() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        server.createContext("/video.mp4", exchange -> {
+            requests.add(String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+            if (attempts.incrementAndGet() == 1) {
+                // 第一次只发出一部分就断开
+                exchange.sendResponseHeaders(200, content.length);
+                exchange.getResponseBody().write(content, 0, content.length / 3);
+                exchange.close();
+                return;
+            }
+            send(exchange, 200, 0, content.length);
+        });
+
+        upload = downloads.download("t1", url(), null, new TranscribeOptions());
+
+        assertEquals(2, attempts.get());
+        assertTrue(upload.isComplete());
+        assertArrayEquals(content, Files.readAllBytes(upload.getFile().toPath()));
+    }
+
+    @Test
+    void rejectsDownloadThatDoesNotFitWorkspaceQuota() throws Exception {
+        ReflectionTestUtils.setField(workspaces, "quotaMb", 1L);
+        server.createContext("/video.mp4", exchange -> {
+            exchange.getResponseHeaders().set("Content-Range", "bytes 0-1048575/" + content.length);
+            send(exchange, 206, 0, 1024 * 1024);
+        });
+
+        IOException e = assertThrows(IOException.class, () -> downloads.download("t1", url(), null, new TranscribeOptions()));
+
+        assertTrue(e.getMessage().contains("临时空间不足"));
+        assertFalse(workspaceRoot.resolve("jobs/t1").toFile().exists());
+    }
+
+    @Test
+    void rejectsInternalAddressesWithoutAllowList() {
+        ReflectionTestUtils.setField(downloads, "allowedHosts", "");
+
+        for (String url : new String[]{url(), "http://localhost/a.mp4", "http://169.254.169.254/latest/meta-data/",
+                "http://10.1.2.3/a.mp4", "http://192.168.0.1/a.mp4", "http://[::1]/a.mp4", "http://0.0.0.0/a.mp4"}) {
+            assertThrows(IllegalArgumentException.class, () -> downloads.download("t1", url, null, new TranscribeOptions()), url);
+        }
+        assertTrue(requests.isEmpty());
+    }
+
+    @Test
+    void checksEveryRedirectHop() throws Exception {
+        server.createContext("/video.mp4", exchange -> {
+            requests.add(exchange.getRequestURI().getPath());
+            exchange.getResponseHeaders().set("Location", "/moved.mp4");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/moved.mp4", exchange -> {
+            requests.add(exchange.getRequestURI().getPath());
+            exchange.getResponseHeaders().set("Location", "http://169.254.169.254/latest/meta-data/");
+            exchange.sendResponseHeaders(307, -1);
+            exchange.close();
+        });
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> downloads.download("t1", url(), null, new TranscribeOptions()));
+
+        assertTrue(e.getMessage().contains("169.254.169.254"));
+        assertEquals(Arrays.asList("/video.mp4", "/moved.mp4"), requests);
+    }
+
+    private void send(HttpExchange exchange, int code, int offset, int length) throws IOException {
+        exchange.sendResponseHeaders(code, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, offset, length);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.hsx.videototext.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkspaceManagerTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void sweepsIdleUploadSessionsButKeepsJobs() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager();
+        workspaces.setRoot(root.toString());
+        ReflectionTestUtils.setField(workspaces, "orphanMinutes", 0L);
+
+        File session = workspaces.createSession("abandoned");
+        Files.write(new File(session, "chunked_upload.mp4").toPath(), new byte[1024]);
+        File submitted = workspaces.createSession("submitted");
+        workspaces.adopt("submitted");
+        File job = workspaces.create("job");
+        Thread.sleep(20);
+
+        workspaces.sweep();
+
+        assertFalse(session.exists());
+        assertTrue(submitted.exists());
+        assertTrue(job.exists());
+        assertEquals(2, workspaces.getActiveCount());
+    }
+
+    @Test
+    void touchKeepsSessionAlive() throws Exception {
+        WorkspaceManager workspaces = new WorkspaceManager();
+        workspaces.setRoot(root.toString());
+        ReflectionTestUtils.setField(workspaces, "orphanMinutes", 1L);
+
+        File session = workspaces.createSession("uploading");
+        workspaces.touch("uploading");
+        workspaces.sweep();
+
+        assertTrue(session.exists());
+    }
+}
@@ -0,0 +1,45 @@
+package com.hsx.videototext.subtitle;
+
+import com.hsx.videototext.model.entity.Segment;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubtitleWriterTest {
+
+    private static String render(SubtitleFormat format, String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SubtitleWriter writer = format.newWriter(Channels.newChannel(out))) {
+            writer.begin();
+            writer.write(new Segment(1500, 3250, text));
+            writer.end();
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void vttEscapesMarkupAndDropsBlankLines() throws IOException {
+        String vtt = render(SubtitleFormat.VTT, "a <b> & c --> d\r\n\r\n  \nsecond line\n\n");
+
+        assertEquals("WEBVTT\n\n1\n00:00:01.500 --> 00:00:03.250\na &lt;b&gt; &amp; c -> d\nsecond line\n\n", vtt);
+    }
+
+    @Test
+    void srtKeepsTextButRemovesCueBreakers() throws IOException {
+        String srt = render(SubtitleFormat.SRT, "\na <i>x</i> & y-->z\n\n\nnext");
+
+        assertEquals("1\n00:00:01,500 --> 00:00:03,250\na <i>x</i> & y->z\nnext\n\n", srt);
+    }
+
+    @Test
+    void closeWritesMultiByteTextCompletely() throws IOException {
+        String text = "中文字幕😀";
+
+        assertEquals("1\n00:00:01,500 --> 00:00:03,250\n" + text + "\n\n", render(SubtitleFormat.SRT, text));
+    }
+}
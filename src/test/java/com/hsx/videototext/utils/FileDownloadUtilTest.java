@@ -0,0 +1,143 @@
+package com.hsx.videototext.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloadUtilTest {
+
+    @TempDir
+    Path dir;
+
+    private File file(int size) throws IOException {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        return Files.write(dir.resolve("result.vtt"), content).toFile();
+    }
+
+    private MockHttpServletResponse serve(File file, boolean compress, MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileDownloadUtil.serve(file, "text/vtt", 60, compress, request, response);
+        return response;
+    }
+
+    @Test
+    void servesWholeFileWithEtag() throws IOException {
+        File file = file(100);
+
+        MockHttpServletResponse response = serve(file, true, new MockHttpServletRequest());
+
+        assertEquals(200, response.getStatus());
+        assertNotNull(response.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(Files.readAllBytes(file.toPath()), response.getContentAsByteArray());
+    }
+
+    @Test
+    void ifNoneMatchReturnsNotModified() throws IOException {
+        File file = file(100);
+        String etag = serve(file, true, new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag);
+        MockHttpServletResponse response = serve(file, true, request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void etagChangesWhenFileIsReplaced() throws IOException {
+        File file = file(100);
+        String before = serve(file, true, new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG);
+        Files.write(file.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(before.equals(serve(file, true, new MockHttpServletRequest()).getHeader(HttpHeaders.ETAG)));
+    }
+
+    @Test
+    void rangeReturnsPartialContent() throws IOException {
+        File file = file(100);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-19");
+
+        MockHttpServletResponse response = serve(file, true, request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-19/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(Files.readAllBytes(file.toPath()), 10, 20), response.getContentAsByteArray());
+    }
+
+    @Test
+    void suffixRangeReturnsTail() throws IOException {
+        File file = file(100);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-5");
+
+        MockHttpServletResponse response = serve(file, true, request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 95-99/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void unsatisfiableRangeReturns416() throws IOException {
+        File file = file(100);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=200-");
+
+        MockHttpServletResponse response = serve(file, true, request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void gzipVariantOnlyWhenAllowed() throws IOException {
+        File file = file(4096);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        MockHttpServletResponse plain = serve(file, false, request);
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertFalse(new File(file.getPath() + ".gz").exists());
+
+        MockHttpServletResponse gzip = serve(file, true, request);
+        assertEquals("gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(new File(file.getPath() + ".gz").isFile());
+        assertTrue(gzip.getHeader(HttpHeaders.ETAG).endsWith("-gz\""));
+    }
+
+    @Test
+    void missingFileReturns404() throws IOException {
+        assertEquals(404, serve(dir.resolve("missing.vtt").toFile(), true, new MockHttpServletRequest()).getStatus());
+    }
+
+    @Test
+    void isWithinResolvesParentReferences() throws IOException {
+        File root = Files.createDirectory(dir.resolve("cache")).toFile();
+        File sibling = Files.createDirectory(dir.resolve("cache2")).toFile();
+
+        assertTrue(FileDownloadUtil.isWithin(new File(root, "a/b.vtt"), root));
+        assertFalse(FileDownloadUtil.isWithin(new File(root, "../cache2/b.vtt"), root));
+        assertFalse(FileDownloadUtil.isWithin(new File(sibling, "b.vtt"), root));
+        assertTrue(FileDownloadUtil.isWithin(new File(sibling, "b.vtt"), root, sibling));
+    }
+}
@@ -0,0 +1,33 @@
+package com.hsx.videototext.utils;
+
+import com.hsx.videototext.model.entity.UploadedVideo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VideoToWavUtilTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void saveUploadHashesWhileWriting() throws Exception {
+        byte[] content = new byte[3 * 1024 * 1024 + 17];
+        new Random(7).nextBytes(content);
+        MockMultipartFile file = new MockMultipartFile("file", "video.mp4", "video/mp4", content);
+
+        UploadedVideo upload = VideoToWavUtil.saveUpload(file, dir.toFile(), "uploaded_video");
+
+        assertEquals(dir.resolve("uploaded_video.mp4").toFile(), upload.getFile());
+        assertArrayEquals(content, Files.readAllBytes(upload.getFile().toPath()));
+        assertEquals(content.length, upload.getSize());
+        assertEquals(VideoToWavUtil.md5Hex(upload.getFile()), upload.getMd5());
+    }
+}
@@ -0,0 +1,175 @@
+package com.hsx.videototext.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProgressWebSocketHandlerTest {
+
+    private final ProgressWebSocketHandler handler = new ProgressWebSocketHandler();
+
+    @Test
+    void eventsAfterFinishDoNotRecreateChannel() {
+        ProgressEmitter emitter = ProgressWebSocketHandler.openTask("finished-task");
+        assertNotSame(ProgressEmitter.NOOP, emitter);
+        assertSame(emitter, ProgressWebSocketHandler.emitter("finished-task"));
+
+        ProgressWebSocketHandler.finishTask("finished-task", ProgressStage.DONE, "done");
+        emitter.message("late message");
+        ProgressWebSocketHandler.sendProgress("finished-task", "late progress");
+
+        assertSame(ProgressEmitter.NOOP, ProgressWebSocketHandler.emitter("finished-task"));
+    }
+
+    @Test
+    void unknownTaskHasNoChannel() {
+        ProgressWebSocketHandler.bindTask("never-opened");
+        try {
+            ProgressWebSocketHandler.emitter().stage(ProgressStage.EXTRACT, "ignored");
+            assertSame(ProgressEmitter.NOOP, ProgressWebSocketHandler.emitter());
+        } finally {
+            ProgressWebSocketHandler.unbindTask();
+        }
+    }
+
+    @Test
+    void eventsReachOnlySubscribersOfTheirTask() throws Exception {
+        ProgressEmitter a = ProgressWebSocketHandler.openTask("task-a");
+        ProgressWebSocketHandler.openTask("task-b");
+        List<String> sentA = new CopyOnWriteArrayList<>();
+        List<String> sentB = new CopyOnWriteArrayList<>();
+        WebSocketSession sessionA = session("task-a", sentA, null);
+        WebSocketSession sessionB = session("task-b", sentB, null);
+        handler.afterConnectionEstablished(sessionA);
+        handler.afterConnectionEstablished(sessionB);
+        try {
+            a.stage(ProgressStage.EXTRACT, "only for a");
+            awaitSize(sentA, 2);
+            Thread.sleep(100);
+
+            assertEquals(1, sentB.size());
+            assertTrue(sentB.get(0).contains("\"taskId\":\"task-b\""));
+            assertTrue(sentA.get(1).contains("only for a"));
+        } finally {
+            handler.afterConnectionClosed(sessionA, CloseStatus.NORMAL);
+            handler.afterConnectionClosed(sessionB, CloseStatus.NORMAL);
+            ProgressWebSocketHandler.finishTask("task-a", ProgressStage.DONE, null);
+            ProgressWebSocketHandler.finishTask("task-b", ProgressStage.DONE, null);
+        }
+    }
+
+    @Test
+    void progressIsCoalescedWhileQueueIsFull() throws Exception {
+        ProgressWebSocketHandler.openTask("busy-task");
+        List<String> sent = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = session("busy-task", sent, release);
+        handler.afterConnectionEstablished(session);
+        try {
+            // 第一条补发消息卡在发送中，之后的事件都在会话队列里积压
+            verify(session, timeout(5000)).sendMessage(any());
+            for (int i = 0; i < 100; i++) {
+                ProgressWebSocketHandler.publish(new ProgressEvent("busy-task", ProgressStage.EXTRACT, 0, 0, "msg-" + i), false);
+            }
+            for (int i = 1; i <= 50; i++) {
+                ProgressWebSocketHandler.publish(new ProgressEvent("busy-task", ProgressStage.EXTRACT, i, 1000, null), true);
+            }
+            release.countDown();
+
+            awaitSize(sent, 66);
+            Thread.sleep(100);
+            assertEquals(66, sent.size());
+            assertTrue(sent.get(1).contains("msg-36"));
+            assertTrue(sent.get(64).contains("msg-99"));
+            assertTrue(sent.get(65).contains("\"done\":50"));
+        } finally {
+            release.countDown();
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+            ProgressWebSocketHandler.finishTask("busy-task", ProgressStage.DONE, null);
+        }
+    }
+
+    @Test
+    void lateSubscriberGetsTerminalStage() throws Exception {
+        ProgressWebSocketHandler.openTask("done-task").stage(ProgressStage.TRANSCRIBE, "working");
+        ProgressWebSocketHandler.finishTask("done-task", ProgressStage.FAILED, "broken");
+
+        List<String> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session("done-task", sent, null);
+        handler.afterConnectionEstablished(session);
+        try {
+            awaitSize(sent, 1);
+            assertTrue(sent.get(0).contains("\"stage\":\"failed\""), sent.get(0));
+            assertTrue(sent.get(0).contains("broken"));
+        } finally {
+            handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        }
+    }
+
+    @Test
+    void stalledSessionIsClosed() throws Exception {
+        ProgressWebSocketHandler.openTask("stalled-task");
+        CountDownLatch release = new CountDownLatch(1);
+        WebSocketSession session = session("stalled-task", new CopyOnWriteArrayList<>(), release);
+        doAnswer(invocation -> {
+            release.countDown();
+            return null;
+        }).when(session).close(any(CloseStatus.class));
+        ProgressWebSocketHandler.setSendTimeoutMillis(200);
+        try {
+            handler.afterConnectionEstablished(session);
+            verify(session, timeout(5000)).close(CloseStatus.SESSION_NOT_RELIABLE);
+        } finally {
+            ProgressWebSocketHandler.setSendTimeoutMillis(TimeUnit.SECONDS.toMillis(10));
+            release.countDown();
+            handler.afterConnectionClosed(session, CloseStatus.SESSION_NOT_RELIABLE);
+            ProgressWebSocketHandler.finishTask("stalled-task", ProgressStage.DONE, null);
+        }
+    }
+
+    /**
+     * 模拟会话：把发出的消息记到 sent；给了 block 时第一条消息要等 block 放行才算发完
+     */
+    private static WebSocketSession session(String taskId, List<String> sent, CountDownLatch block) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getUri()).thenReturn(URI.create("ws://localhost/ws/progress?taskId=" + taskId));
+        when(session.getAttributes()).thenReturn(new HashMap<>());
+        when(session.getId()).thenReturn(taskId);
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(invocation -> {
+            if (block != null && sent.isEmpty()) {
+                block.await(10, TimeUnit.SECONDS);
+            }
+            sent.add(((TextMessage) invocation.getArgument(0)).getPayload());
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private static void awaitSize(List<String> sent, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, sent.size());
+    }
+}